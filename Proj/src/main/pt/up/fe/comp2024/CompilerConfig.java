@@ -2,14 +2,19 @@ package pt.up.fe.comp2024;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class CompilerConfig {
 
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String COMPACT_AST = "compactAst";
+    private static final String UNROLL = "unroll";
+    private static final String PURE_METHODS = "pureMethods";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +23,9 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("c", CompilerConfig.COMPACT_AST);
+        shortToLong.put("u", CompilerConfig.UNROLL);
+        shortToLong.put("p", CompilerConfig.PURE_METHODS);
     }
 
 
@@ -32,36 +40,81 @@ public class CompilerConfig {
         return Optional.of(new File(inputFile));
     }
 
+    public static void setInputFile(Map<String, String> config, File inputFile) {
+        config.put(INPUT_FILE, inputFile.getAbsolutePath());
+    }
+
     public static boolean getOptimize(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
 
+    /**
+     * @return true if the parser should build a {@link pt.up.fe.comp2024.ast.compact.CompactAst} instead of a tree of
+     * JmmNodeImpl
+     */
+    public static boolean getCompactAst(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(COMPACT_AST, "false"));
+    }
+
     public static int getRegisterAllocation(Map<String, String> config) {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * @return the number of iterations that loops whose trip count is not known are unrolled into, 1 to not unroll
+     * them
+     */
+    public static int getUnrollFactor(Map<String, String> config) {
+        var factor = Integer.parseInt(config.getOrDefault(UNROLL, "1"));
 
-    public static Map<String, String> getDefault() {
+        if (factor < 1) {
+            throw new RuntimeException("Expected an unroll factor of at least 1, got " + factor);
+        }
 
-        var config = new HashMap<String, String>();
+        return factor;
+    }
 
-        config.put(CompilerConfig.OPTIMIZE, "false");
-        config.put(CompilerConfig.REGISTER, "-1");
+    /**
+     * @return the imported methods that the optimizations can assume to be pure, given as a comma-separated list of
+     * names such as {@code MathUtils.max}
+     */
+    public static Set<String> getPureMethods(Map<String, String> config) {
+        var pureMethods = new HashSet<String>();
+
+        for (var name : config.getOrDefault(PURE_METHODS, "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
 
-        return config;
-    }
+            if (!name.matches("[^.]+\\.[^.]+")) {
+                throw new RuntimeException("Expected a pure method as <class>.<method>, got '" + name + "'");
+            }
 
-    private static String getLongOpt(String shortOpt) {
+            pureMethods.add(name);
+        }
 
-        return shortToLong.get(shortOpt);
+        return pureMethods;
     }
 
-    private static boolean isShortOpt(String shortOpt) {
 
-        return shortToLong.containsKey(shortOpt);
+    public static Map<String, String> getDefault() {
+
+        var config = new HashMap<String, String>();
+
+        config.put(CompilerConfig.OPTIMIZE, "false");
+        config.put(CompilerConfig.REGISTER, "-1");
+        config.put(CompilerConfig.COMPACT_AST, "false");
+        config.put(CompilerConfig.UNROLL, "1");
+        config.put(CompilerConfig.PURE_METHODS, "");
+
+        return config;
     }
 
-    public static Map<String, String> parseArgs(String[] args) {
+    /**
+     * Same as {@link #parseArgs(String[])}, but does not require an input file.
+     */
+    public static Map<String, String> parseOptions(String[] args) {
 
         // default options for config
         var config = getDefault();
@@ -89,6 +142,23 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
+        return config;
+    }
+
+    private static String getLongOpt(String shortOpt) {
+
+        return shortToLong.get(shortOpt);
+    }
+
+    private static boolean isShortOpt(String shortOpt) {
+
+        return shortToLong.containsKey(shortOpt);
+    }
+
+    public static Map<String, String> parseArgs(String[] args) {
+
+        var config = parseOptions(args);
+
         if (!config.containsKey(INPUT_FILE)) {
 
             throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
@@ -106,6 +176,9 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getCompactAst(config);
+        getUnrollFactor(config);
+        getPureMethods(config);
 
         return config;
     }
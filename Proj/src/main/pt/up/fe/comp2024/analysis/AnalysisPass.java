@@ -5,6 +5,7 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Represents an analysis pass.
@@ -20,4 +21,14 @@ public interface AnalysisPass {
      */
     List<Report> analyze(JmmNode root, SymbolTable table);
 
+    /**
+     * Analyses the given node, without visiting the subtrees whose root is accepted by {@code skip}.
+     *
+     * @param root  the root node that will be visited for analysis
+     * @param table the symbol table
+     * @param skip  returns true for the nodes whose subtree must not be visited
+     * @return a list of reports with the results of the analysis
+     */
+    List<Report> analyze(JmmNode root, SymbolTable table, Predicate<JmmNode> skip);
+
 }
\ No newline at end of file
@@ -4,9 +4,12 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.KindDispatch;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 /**
  *
@@ -14,12 +17,21 @@ import java.util.List;
 public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
 
     private List<Report> reports;
+    private Predicate<JmmNode> skip;
+
+    private final KindDispatch<SymbolTable, Void> dispatch = new KindDispatch<>(super::getVisit);
 
     public AnalysisVisitor() {
         reports = new ArrayList<>();
+        skip = node -> false;
         setDefaultValue(() -> null);
     }
 
+    @Override
+    protected BiFunction<JmmNode, SymbolTable, Void> getVisit(JmmNode node) {
+        return dispatch.getVisit(node);
+    }
+
     protected void addReport(Report report) {
         reports.add(report);
     }
@@ -29,8 +41,26 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
     }
 
 
+    @Override
+    public Void visit(JmmNode node, SymbolTable table) {
+        if (skip.test(node)) {
+            return null;
+        }
+
+        return super.visit(node, table);
+    }
+
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
+        return analyze(root, table, node -> false);
+    }
+
+    @Override
+    public List<Report> analyze(JmmNode root, SymbolTable table, Predicate<JmmNode> skip) {
+        // Each analysis starts with no reports
+        reports = new ArrayList<>();
+        this.skip = skip;
+
         // Visit the node
         visit(root, table);
 
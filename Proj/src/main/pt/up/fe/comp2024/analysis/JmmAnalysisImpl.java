@@ -8,17 +8,36 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.incremental.IncrementalCache;
+import pt.up.fe.comp2024.incremental.MethodFingerprint;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
+
+import static pt.up.fe.comp2024.ast.Kind.CLASS_DECL;
+import static pt.up.fe.comp2024.ast.Kind.METHOD_DECL;
 
 public class JmmAnalysisImpl implements JmmAnalysis {
 
 
     private final List<AnalysisPass> analysisPasses;
 
+    private final IncrementalCache cache;
+
     public JmmAnalysisImpl() {
+        this(null);
+    }
+
+    /**
+     * @param cache results of previous analyses, only methods that changed since then are analysed again. If null,
+     *              the whole class is always analysed.
+     */
+    public JmmAnalysisImpl(IncrementalCache cache) {
+
+        this.cache = cache;
 
         this.analysisPasses = List.of(new UndeclaredIdentifier(),
                                       new OperandsIncompatibleWithOperation(),
@@ -49,6 +68,10 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
 
+        if (cache != null) {
+            return incrementalAnalysis(parserResult, table);
+        }
+
         List<Report> reports = new ArrayList<>();
 
         // Visit all nodes in the AST
@@ -56,19 +79,11 @@ public class JmmAnalysisImpl implements JmmAnalysis {
             try {
                 var passReports = analysisPass.analyze(rootNode, table);
                 reports.addAll(passReports);
-                if (!passReports.isEmpty() && (analysisPass instanceof UndeclaredIdentifier ||
-                        analysisPass instanceof OperandsIncompatibleWithOperation ||
-                        analysisPass instanceof MethodNotFoundAndClassHasNoSuper ||
-                        analysisPass instanceof MainMethodIncorrectDeclaration)) {
+                if (!passReports.isEmpty() && isBlocking(analysisPass)) {
                     return new JmmSemanticsResult(parserResult, table, reports);
                 }
             } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
-                        e)
-                );
+                reports.add(newPassError(analysisPass, e));
                 return new JmmSemanticsResult(parserResult, table, reports);
             }
 
@@ -76,4 +91,120 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         return new JmmSemanticsResult(parserResult, table, reports);
     }
+
+    /**
+     * Analyses the class-level declarations and each method separately, reusing the cached reports of the parts whose
+     * fingerprint did not change, and drops the cached results of methods that are no longer in the class. The reports
+     * of each pass are then joined in the same order as the full analysis, which stops after the first blocking pass
+     * that reports on any part.
+     */
+    private JmmSemanticsResult incrementalAnalysis(JmmParserResult parserResult, SymbolTable table) {
+
+        JmmNode rootNode = parserResult.getRootNode();
+        List<List<List<Report>>> parts = new ArrayList<>();
+
+        // Methods that are gone would otherwise be kept for as long as the cache
+        cache.retainMethods(table);
+
+        // Class-level declarations, without entering the methods
+        var classFingerprint = MethodFingerprint.ofClass(rootNode, table);
+        var classReports = cache.getClassReports(classFingerprint).orElseGet(() -> {
+            var newReports = analyze(rootNode, table, METHOD_DECL::check);
+            cache.putClassReports(classFingerprint, newReports);
+            return newReports;
+        });
+        parts.add(classReports);
+
+        var classDecl = rootNode.getChildren(CLASS_DECL).get(0);
+        for (var method : classDecl.getChildren(METHOD_DECL)) {
+            var methodName = method.get("name");
+            var methodLine = NodeUtils.getLine(method);
+            var fingerprint = MethodFingerprint.of(method, table);
+
+            var methodReports = cache.getMethodReports(methodName, fingerprint, methodLine).orElseGet(() -> {
+                var newReports = analyze(method, table, node -> false);
+                cache.putMethodReports(methodName, fingerprint, methodLine, newReports);
+                return newReports;
+            });
+            parts.add(methodReports);
+        }
+
+        List<Report> reports = new ArrayList<>();
+
+        for (int i = 0; i < analysisPasses.size(); i++) {
+            boolean stop = false;
+
+            for (var part : parts) {
+                // A part only stops before the last pass when that pass was blocking and reported, or failed
+                stop |= part.size() == i + 1;
+
+                if (i < part.size()) {
+                    var passError = part.get(i).stream()
+                            .filter(report -> report.getException().isPresent())
+                            .findFirst();
+
+                    // A pass that fails on the whole class only gives its error
+                    if (passError.isPresent()) {
+                        reports.add(passError.get());
+                        return new JmmSemanticsResult(parserResult, table, reports);
+                    }
+                }
+            }
+
+            for (var part : parts) {
+                if (i < part.size()) {
+                    reports.addAll(part.get(i));
+                }
+            }
+
+            if (stop) {
+                break;
+            }
+        }
+
+        return new JmmSemanticsResult(parserResult, table, reports);
+    }
+
+    /**
+     * Applies the analysis passes to a single part of the tree, stopping at the first blocking pass that reports.
+     *
+     * @return the reports of each pass that ran, in order
+     */
+    private List<List<Report>> analyze(JmmNode root, SymbolTable table, Predicate<JmmNode> skip) {
+
+        List<List<Report>> reports = new ArrayList<>();
+
+        for (var analysisPass : analysisPasses) {
+            try {
+                var passReports = analysisPass.analyze(root, table, skip);
+                reports.add(passReports);
+                if (!passReports.isEmpty() && isBlocking(analysisPass)) {
+                    break;
+                }
+            } catch (Exception e) {
+                reports.add(List.of(newPassError(analysisPass, e)));
+                break;
+            }
+        }
+
+        return reports;
+    }
+
+    /**
+     * @return true if the passes after the given one cannot run when it reports problems
+     */
+    private static boolean isBlocking(AnalysisPass analysisPass) {
+        return analysisPass instanceof UndeclaredIdentifier ||
+                analysisPass instanceof OperandsIncompatibleWithOperation ||
+                analysisPass instanceof MethodNotFoundAndClassHasNoSuper ||
+                analysisPass instanceof MainMethodIncorrectDeclaration;
+    }
+
+    private static Report newPassError(AnalysisPass analysisPass, Exception e) {
+        return Report.newError(Stage.SEMANTIC,
+                -1,
+                -1,
+                "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
+                e);
+    }
 }
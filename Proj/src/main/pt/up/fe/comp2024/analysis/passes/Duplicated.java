@@ -12,6 +12,7 @@ import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.specs.util.SpecsCheck;
 
+import java.util.HashSet;
 import java.util.List;
 
 public class Duplicated extends AnalysisVisitor {
@@ -29,36 +30,8 @@ public class Duplicated extends AnalysisVisitor {
 
         var methodName = method.get("name");
 
-        var i = 1;
-
-        for (var param : table.getParameters(methodName)) {
-            if (table.getParameters(methodName).subList(i, table.getParameters(methodName).size()).contains(param)) {
-                var message = "Method has duplicated parameters.";
-                addReport(Report.newError(
-                        Stage.SEMANTIC,
-                        NodeUtils.getLine(method),
-                        NodeUtils.getColumn(method),
-                        message,
-                        null)
-                );
-            }
-            i++;
-        }
-
-        i = 1;
-        for (var localVar : table.getLocalVariables(methodName)) {
-            if (table.getLocalVariables(methodName).subList(i, table.getLocalVariables(methodName).size()).contains(localVar)) {
-                var message = "Method has duplicated local variables.";
-                addReport(Report.newError(
-                        Stage.SEMANTIC,
-                        NodeUtils.getLine(method),
-                        NodeUtils.getColumn(method),
-                        message,
-                        null)
-                );
-            }
-            i++;
-        }
+        reportDuplicates(method.getChildren(Kind.PARAM), "parameter");
+        reportDuplicates(method.getChildren(Kind.VAR_DECL), "local variable");
 
         //Check if the method has more than one return statement
         if (method.getDescendants(Kind.RETURN_STMT).size() > 1) {
@@ -90,57 +63,51 @@ public class Duplicated extends AnalysisVisitor {
     }
 
     private Void visitClassDecl(JmmNode classNode, SymbolTable table) {
-        var className = classNode.get("name");
-
-        var prevImportClassName = "";
-        for (String importStr : table.getImports()) {
-            String[] parts = importStr.split("\\.");
-            String importClassName = parts[parts.length - 1];
-            if (importClassName.equals(prevImportClassName)) {
-                var message = "Method has duplicated imports.";
-                addReport(Report.newError(
-                        Stage.SEMANTIC,
-                        NodeUtils.getLine(classNode),
-                        NodeUtils.getColumn(classNode),
-                        message,
-                        null)
-                );
-                break;
+        var program = classNode.getParent();
+
+        // Imports are duplicated when they import classes with the same name
+        if (program != null) {
+            var importedClasses = new HashSet<String>();
+            for (var importDecl : program.getChildren(Kind.IMPORT_DECL)) {
+                var importName = importDecl.getObjectAsList("name", String.class);
+                var importClassName = importName.get(importName.size() - 1);
+
+                if (!importedClasses.add(importClassName)) {
+                    addDuplicatedReport(importDecl, "import", importClassName);
+                }
             }
-            prevImportClassName = importClassName;
         }
 
-        int i = 1;
-        for (var field : table.getFields()) {
-            if (table.getFields().subList(i, table.getFields().size()).contains(field)) {
-                var message = "Method has duplicated fields.";
-                addReport(Report.newError(
-                        Stage.SEMANTIC,
-                        NodeUtils.getLine(classNode),
-                        NodeUtils.getColumn(classNode),
-                        message,
-                        null)
-                );
-            }
-            i++;
-        }
+        reportDuplicates(classNode.getChildren(Kind.VAR_DECL), "field");
+        reportDuplicates(classNode.getChildren(Kind.METHOD_DECL), "method");
 
-        i = 1;
-        for (var method : table.getMethods()) {
-            if (table.getMethods().subList(i, table.getMethods().size()).contains(method)) {
-                var message = "Method has duplicated methods.";
-                addReport(Report.newError(
-                        Stage.SEMANTIC,
-                        NodeUtils.getLine(classNode),
-                        NodeUtils.getColumn(classNode),
-                        message,
-                        null)
-                );
+        return null;
+    }
+
+    /**
+     * Reports every declaration whose name was already declared by a previous one of the same scope.
+     */
+    private void reportDuplicates(List<JmmNode> declarations, String declarationKind) {
+        var names = new HashSet<String>();
+
+        for (var declaration : declarations) {
+            var name = declaration.get("name");
+
+            if (!names.add(name)) {
+                addDuplicatedReport(declaration, declarationKind, name);
             }
-            i++;
         }
+    }
 
-        return null;
+    private void addDuplicatedReport(JmmNode declaration, String declarationKind, String name) {
+        var message = String.format("Duplicated %s '%s'.", declarationKind, name);
+        addReport(Report.newError(
+                Stage.SEMANTIC,
+                NodeUtils.getLine(declaration),
+                NodeUtils.getColumn(declaration),
+                message,
+                null)
+        );
     }
 
 }
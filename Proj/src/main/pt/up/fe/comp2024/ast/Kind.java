@@ -1,9 +1,13 @@
 package pt.up.fe.comp2024.ast;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.compact.CompactNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 public enum Kind {
@@ -42,9 +46,17 @@ public enum Kind {
     IDENTIFIER,
     THIS;
 
-    private static final Set<Kind> TYPE = Set.of(INT_ARRAY_TYPE, INT_VAR_ARGS_TYPE, BOOL_TYPE, INT_TYPE, STR_TYPE, STR_ARRAY_TYPE, OBJ_TYPE, VOID_TYPE);
-    private static final Set<Kind> STATEMENTS = Set.of(BLOCK_STMT, IF_ELSE_STMT, WHILE_STMT, EXPR_STMT, ASSIGN_STMT, RETURN_STMT);
-    private static final Set<Kind> EXPRESSIONS = Set.of(MEMBER_METHOD_ACCESS, ARRAY_ACCESS, PARENTHESES, NEGATION, NEW_ARRAY_EXPR, NEW_OBJ_EXPR, ARITHMETIC_EXPR, RELATIONAL_EXPR, LOGICAL_EXPR, ARRAY_INIT_EXPR, INTEGER_LITERAL, BOOL_LITERAL, IDENTIFIER, THIS);
+    private static final Set<Kind> TYPE = EnumSet.of(INT_ARRAY_TYPE, INT_VAR_ARGS_TYPE, BOOL_TYPE, INT_TYPE, STR_TYPE, STR_ARRAY_TYPE, OBJ_TYPE, VOID_TYPE);
+    private static final Set<Kind> STATEMENTS = EnumSet.of(BLOCK_STMT, IF_ELSE_STMT, WHILE_STMT, EXPR_STMT, ASSIGN_STMT, RETURN_STMT);
+    private static final Set<Kind> EXPRESSIONS = EnumSet.of(MEMBER_METHOD_ACCESS, ARRAY_ACCESS, PARENTHESES, NEGATION, NEW_ARRAY_EXPR, NEW_OBJ_EXPR, ARITHMETIC_EXPR, RELATIONAL_EXPR, LOGICAL_EXPR, ARRAY_INIT_EXPR, INTEGER_LITERAL, BOOL_LITERAL, IDENTIFIER, THIS);
+
+    private static final Map<String, Kind> BY_NODE_NAME = new HashMap<>();
+
+    static {
+        for (Kind k : Kind.values()) {
+            BY_NODE_NAME.put(k.getNodeName(), k);
+        }
+    }
 
     private final String name;
 
@@ -57,13 +69,36 @@ public enum Kind {
     }
 
     public static Kind fromString(String kind) {
+        var k = BY_NODE_NAME.get(kind);
 
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+
+        return k;
+    }
+
+    /**
+     * @param node
+     * @return the kind of the node, read from the node itself if the AST caches it
+     */
+    public static Kind of(JmmNode node) {
+        if (node instanceof CompactNode compactNode) {
+            return compactNode.getKindEnum();
+        }
+
+        return fromString(node.getKind());
+    }
+
+    /**
+     * Same as {@link #of(JmmNode)}, but returns null for nodes whose kind is not a Kind.
+     */
+    static Kind ofOrNull(JmmNode node) {
+        if (node instanceof CompactNode compactNode) {
+            return compactNode.getKindEnum();
+        }
+
+        return BY_NODE_NAME.get(node.getKind());
     }
 
     public String getNodeName() {
@@ -94,11 +129,13 @@ public enum Kind {
     }
 
     public static boolean isNameExpr(String name) {
-        return EXPRESSIONS.stream().map(Kind::toString).toList().contains(name);
+        var kind = BY_NODE_NAME.get(name);
+        return kind != null && kind.isExpr();
     }
 
     public static boolean isNameStmt(String name) {
-        return STATEMENTS.stream().map(Kind::toString).toList().contains(name);
+        var kind = BY_NODE_NAME.get(name);
+        return kind != null && kind.isStmt();
     }
 
     /**
@@ -108,6 +145,10 @@ public enum Kind {
      * @return
      */
     public boolean check(JmmNode node) {
+        if (node instanceof CompactNode compactNode) {
+            return compactNode.getKindEnum() == this;
+        }
+
         return node.getKind().equals(getNodeName());
     }
 
@@ -158,6 +199,7 @@ public enum Kind {
     }
 
     public static boolean checkIsType(JmmNode node) {
-        return TYPE.stream().map(Kind::getNodeName).anyMatch(type_name -> type_name.equals(node.getKind()));
+        var kind = ofOrNull(node);
+        return kind != null && kind.isType();
     }
 }
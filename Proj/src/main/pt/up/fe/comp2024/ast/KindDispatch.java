@@ -0,0 +1,56 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Caches, for each {@link Kind}, the visit method that a visitor resolves for it, so that finding the visit method of
+ * a node is an array access indexed by the ordinal of its kind instead of a lookup per name in its hierarchy.
+ * <p>
+ * Every node of a given kind is expected to resolve to the same visit method, which holds for nodes created by the
+ * parser, and the visitor must not add visit methods after its first visit, as visitors that add them all in
+ * buildVisitor do. Nodes whose kind is not a {@link Kind} are always resolved by the visitor.
+ * <p>
+ * A visitor only has to find its visit methods through a dispatch created from its own lookup, e.g.:
+ * <pre>{@code
+ * private final KindDispatch<Void, String> dispatch = new KindDispatch<>(super::getVisit);
+ *
+ * protected BiFunction<JmmNode, Void, String> getVisit(JmmNode node) {
+ *     return dispatch.getVisit(node);
+ * }
+ * }</pre>
+ *
+ * @param <D> the data type of the visitor
+ * @param <R> the return type of the visitor
+ */
+public class KindDispatch<D, R> {
+
+    private final Function<JmmNode, BiFunction<JmmNode, D, R>> resolver;
+    private final BiFunction<JmmNode, D, R>[] visits;
+
+    /**
+     * @param resolver finds the visit method of a node, usually the getVisit of the visitor
+     */
+    @SuppressWarnings("unchecked")
+    public KindDispatch(Function<JmmNode, BiFunction<JmmNode, D, R>> resolver) {
+        this.resolver = resolver;
+        this.visits = new BiFunction[Kind.values().length];
+    }
+
+    public BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        var kind = Kind.ofOrNull(node);
+        if (kind == null) {
+            return resolver.apply(node);
+        }
+
+        var visit = visits[kind.ordinal()];
+        if (visit == null) {
+            visit = resolver.apply(node);
+            visits[kind.ordinal()] = visit;
+        }
+
+        return visit;
+    }
+}
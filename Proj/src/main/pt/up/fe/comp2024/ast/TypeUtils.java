@@ -38,7 +38,7 @@ public class TypeUtils {
      * @return
      */
     public static Type getExprType(JmmNode expr, SymbolTable table, String currentMethod) {
-        var kind = Kind.fromString(expr.getKind());
+        var kind = Kind.of(expr);
 
         Type type = switch (kind) {
             case MEMBER_METHOD_ACCESS -> getMemberMethodAccessType(expr, table, currentMethod);
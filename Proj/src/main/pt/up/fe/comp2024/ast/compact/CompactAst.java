@@ -0,0 +1,470 @@
+package pt.up.fe.comp2024.ast.compact;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AST stored as columns indexed by an integer node id, instead of one object with a map of attributes per node.
+ * <p>
+ * The structure is kept in parent, first child, next sibling and child count arrays, the kind of each node as its
+ * {@link Kind} ordinal, and positions as plain ints. Children are looked up by index in an array of their ids, built
+ * for each node the first time one of its children is looked up that way and dropped when its children change.
+ * <p>
+ * Each attribute name has its own column, whose entries index a pool where values are interned, since names and
+ * types repeat a lot. Strings, types and boxed primitives are interned by value. Other values, such as lists or nodes,
+ * can be changed by the code that put them, so they are interned by identity and read back as the same object. Entries
+ * of the pool count the columns that use them and are reused once no column does.
+ * <p>
+ * Code that works over {@link JmmNode} uses the views returned by {@link #getRoot()} and {@link #getNode(int)}, which
+ * are created on demand and not kept, so views of the same id are equal but not always the same object.
+ */
+public class CompactAst {
+
+    static final int NO_NODE = -1;
+
+    // Value of a column for nodes that do not have the attribute
+    private static final int NO_VALUE = 0;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    static final String LINE_START = NodePosition.LINE_START.getKey();
+    static final String COL_START = NodePosition.COL_START.getKey();
+    static final String LINE_END = NodePosition.LINE_END.getKey();
+    static final String COL_END = NodePosition.COL_END.getKey();
+
+    private static final List<String> POSITION_ATTRIBUTES = List.of(LINE_START, COL_START, LINE_END, COL_END);
+
+    private int size;
+
+    // Structure
+    private byte[] kinds;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] numChildren;
+
+    // Ids of the children of each node, null until a child is looked up by index
+    private int[][] children;
+
+    // Positions
+    private int[] lineStarts;
+    private int[] colStarts;
+    private int[] lineEnds;
+    private int[] colEnds;
+
+    // Attributes, one column per attribute name
+    private final Map<String, int[]> columns;
+
+    // Values of the columns, with the number of entries of the columns that use each one
+    private final List<Object> pool;
+    private int[] uses;
+    private final List<Integer> freeIndexes;
+    private final Map<Object, Integer> interned;
+    private final Map<Object, Integer> internedObjects;
+
+    // Hierarchy of each kind, indexed by ordinal
+    private final List<String>[] hierarchies;
+
+    @SuppressWarnings("unchecked")
+    CompactAst(int capacity) {
+        this.size = 0;
+
+        this.kinds = new byte[capacity];
+        this.parents = new int[capacity];
+        this.firstChildren = new int[capacity];
+        this.nextSiblings = new int[capacity];
+        this.numChildren = new int[capacity];
+        this.children = new int[capacity][];
+
+        this.lineStarts = new int[capacity];
+        this.colStarts = new int[capacity];
+        this.lineEnds = new int[capacity];
+        this.colEnds = new int[capacity];
+
+        this.columns = new LinkedHashMap<>();
+        this.pool = new ArrayList<>();
+        this.uses = new int[16];
+        this.freeIndexes = new ArrayList<>();
+        this.interned = new HashMap<>();
+        this.internedObjects = new IdentityHashMap<>();
+
+        // Index 0 is reserved for NO_VALUE
+        this.pool.add(null);
+
+        this.hierarchies = new List[KINDS.length];
+    }
+
+    /**
+     * @return the first node that was created, which is the root of a parsed program
+     */
+    public JmmNode getRoot() {
+        return getNode(0);
+    }
+
+    /**
+     * @return the number of nodes, including nodes that were created and later detached
+     */
+    public int size() {
+        return size;
+    }
+
+    public CompactNode getNode(int id) {
+        if (id == NO_NODE) {
+            return null;
+        }
+
+        return new CompactNode(this, id);
+    }
+
+    // Creation
+
+    int newNode(Kind kind, List<String> hierarchy) {
+        if (size == kinds.length) {
+            grow();
+        }
+
+        int id = size++;
+
+        kinds[id] = (byte) kind.ordinal();
+        parents[id] = NO_NODE;
+        firstChildren[id] = NO_NODE;
+        nextSiblings[id] = NO_NODE;
+        numChildren[id] = 0;
+        children[id] = null;
+
+        if (hierarchies[kind.ordinal()] == null) {
+            hierarchies[kind.ordinal()] = List.copyOf(hierarchy);
+        }
+
+        return id;
+    }
+
+    void setPosition(int id, int lineStart, int colStart, int lineEnd, int colEnd) {
+        lineStarts[id] = lineStart;
+        colStarts[id] = colStart;
+        lineEnds[id] = lineEnd;
+        colEnds[id] = colEnd;
+    }
+
+    int copyNode(int id) {
+        int copy = newNode(getKind(id), hierarchies[kinds[id]]);
+
+        setPosition(copy, lineStarts[id], colStarts[id], lineEnds[id], colEnds[id]);
+
+        for (var column : columns.values()) {
+            column[copy] = column[id];
+
+            if (column[id] != NO_VALUE) {
+                uses[column[id]]++;
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Shrinks the arrays to the number of nodes, after the tree has been built.
+     */
+    void trim() {
+        resize(size);
+    }
+
+    private void grow() {
+        resize(Math.max(16, kinds.length + (kinds.length >> 1)));
+    }
+
+    private void resize(int capacity) {
+        kinds = Arrays.copyOf(kinds, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        numChildren = Arrays.copyOf(numChildren, capacity);
+        children = Arrays.copyOf(children, capacity);
+
+        lineStarts = Arrays.copyOf(lineStarts, capacity);
+        colStarts = Arrays.copyOf(colStarts, capacity);
+        lineEnds = Arrays.copyOf(lineEnds, capacity);
+        colEnds = Arrays.copyOf(colEnds, capacity);
+
+        columns.replaceAll((name, column) -> Arrays.copyOf(column, capacity));
+    }
+
+    // Kinds
+
+    Kind getKind(int id) {
+        return KINDS[kinds[id]];
+    }
+
+    List<String> getHierarchy(int id) {
+        return hierarchies[kinds[id]];
+    }
+
+    // Structure
+
+    int getParent(int id) {
+        return parents[id];
+    }
+
+    int getFirstChild(int id) {
+        return firstChildren[id];
+    }
+
+    int getNextSibling(int id) {
+        return nextSiblings[id];
+    }
+
+    int getNumChildren(int id) {
+        return numChildren[id];
+    }
+
+    /**
+     * @return the id of the child at the given index, or NO_NODE if there is no such child
+     */
+    int getChild(int id, int index) {
+        if (index < 0 || index >= numChildren[id]) {
+            return NO_NODE;
+        }
+
+        if (children[id] == null) {
+            var ids = new int[numChildren[id]];
+
+            int child = firstChildren[id];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = child;
+                child = nextSiblings[child];
+            }
+
+            children[id] = ids;
+        }
+
+        return children[id][index];
+    }
+
+    int getIndexOfChild(int id, int child) {
+        int index = 0;
+
+        for (int current = firstChildren[id]; current != NO_NODE; current = nextSiblings[current]) {
+            if (current == child) {
+                return index;
+            }
+            index++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Links a node without parent after the given child of another node, or as its first child if there is no previous
+     * child. Used while building, where children are appended in order.
+     */
+    void insertAfter(int id, int child, int previous) {
+        if (previous == NO_NODE) {
+            nextSiblings[child] = firstChildren[id];
+            firstChildren[id] = child;
+        } else {
+            nextSiblings[child] = nextSiblings[previous];
+            nextSiblings[previous] = child;
+        }
+
+        addChild(id, child);
+    }
+
+    /**
+     * Inserts a node without parent at the given position of the children of another node.
+     */
+    void insertChild(int id, int child, int index) {
+        if (index == 0) {
+            nextSiblings[child] = firstChildren[id];
+            firstChildren[id] = child;
+        } else {
+            int previous = getChild(id, index - 1);
+            if (previous == NO_NODE) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getNumChildren(id));
+            }
+
+            nextSiblings[child] = nextSiblings[previous];
+            nextSiblings[previous] = child;
+        }
+
+        addChild(id, child);
+    }
+
+    private void addChild(int id, int child) {
+        parents[child] = id;
+        numChildren[id]++;
+        children[id] = null;
+    }
+
+    /**
+     * Removes a node from the children of its parent, if it has one.
+     */
+    void unlink(int id) {
+        int parent = parents[id];
+        if (parent == NO_NODE) {
+            return;
+        }
+
+        if (firstChildren[parent] == id) {
+            firstChildren[parent] = nextSiblings[id];
+        } else {
+            int previous = firstChildren[parent];
+            while (nextSiblings[previous] != id) {
+                previous = nextSiblings[previous];
+            }
+            nextSiblings[previous] = nextSiblings[id];
+        }
+
+        parents[id] = NO_NODE;
+        nextSiblings[id] = NO_NODE;
+        numChildren[parent]--;
+        children[parent] = null;
+    }
+
+    // Attributes
+
+    List<String> getAttributes(int id) {
+        var attributes = new ArrayList<>(POSITION_ATTRIBUTES);
+
+        for (var column : columns.entrySet()) {
+            if (column.getValue()[id] != NO_VALUE) {
+                attributes.add(column.getKey());
+            }
+        }
+
+        return attributes;
+    }
+
+    boolean hasAttribute(int id, String attribute) {
+        if (isPosition(attribute)) {
+            return true;
+        }
+
+        var column = columns.get(attribute);
+        return column != null && column[id] != NO_VALUE;
+    }
+
+    /**
+     * @return the value of the attribute, or null if the node does not have it
+     */
+    Object getAttribute(int id, String attribute) {
+        if (isPosition(attribute)) {
+            // Positions are Strings in nodes created by the parser
+            return Integer.toString(getPosition(id, attribute));
+        }
+
+        var column = columns.get(attribute);
+        if (column == null) {
+            return null;
+        }
+
+        return pool.get(column[id]);
+    }
+
+    Object putAttribute(int id, String attribute, Object value) {
+        var previous = getAttribute(id, attribute);
+
+        if (isPosition(attribute)) {
+            setPosition(id, attribute, Integer.parseInt(value.toString()));
+            return previous;
+        }
+
+        var column = columns.computeIfAbsent(attribute, name -> new int[kinds.length]);
+
+        // Interned before the previous value is released, so putting the same value again keeps its entry
+        int index = value == null ? NO_VALUE : intern(value);
+        release(column[id]);
+        column[id] = index;
+
+        return previous;
+    }
+
+    /**
+     * @return the number of values in the pool that are used by some column
+     */
+    int getNumValues() {
+        return pool.size() - 1 - freeIndexes.size();
+    }
+
+    private int intern(Object value) {
+        var indexes = isInternedByValue(value) ? interned : internedObjects;
+
+        var index = indexes.get(value);
+        if (index == null) {
+            if (freeIndexes.isEmpty()) {
+                index = pool.size();
+                pool.add(value);
+            } else {
+                index = freeIndexes.remove(freeIndexes.size() - 1);
+                pool.set(index, value);
+            }
+
+            if (index == uses.length) {
+                uses = Arrays.copyOf(uses, uses.length * 2);
+            }
+
+            indexes.put(value, index);
+        }
+
+        uses[index]++;
+        return index;
+    }
+
+    private void release(int index) {
+        if (index == NO_VALUE || --uses[index] > 0) {
+            return;
+        }
+
+        var value = pool.get(index);
+        (isInternedByValue(value) ? interned : internedObjects).remove(value);
+
+        pool.set(index, null);
+        freeIndexes.add(index);
+    }
+
+    // Values that cannot be changed after they are created, or whose equality does not depend on what can change
+    private static boolean isInternedByValue(Object value) {
+        return value instanceof String || value instanceof Type || value instanceof Integer
+                || value instanceof Boolean;
+    }
+
+    static boolean isPosition(String attribute) {
+        return attribute.equals(LINE_START) || attribute.equals(COL_START)
+                || attribute.equals(LINE_END) || attribute.equals(COL_END);
+    }
+
+    private int getPosition(int id, String attribute) {
+        if (attribute.equals(LINE_START)) {
+            return lineStarts[id];
+        }
+        if (attribute.equals(COL_START)) {
+            return colStarts[id];
+        }
+        if (attribute.equals(LINE_END)) {
+            return lineEnds[id];
+        }
+
+        return colEnds[id];
+    }
+
+    private void setPosition(int id, String attribute, int value) {
+        if (attribute.equals(LINE_START)) {
+            lineStarts[id] = value;
+        } else if (attribute.equals(COL_START)) {
+            colStarts[id] = value;
+        } else if (attribute.equals(LINE_END)) {
+            lineEnds[id] = value;
+        } else {
+            colEnds[id] = value;
+        }
+    }
+}
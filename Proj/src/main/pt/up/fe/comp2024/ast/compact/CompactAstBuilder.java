@@ -0,0 +1,214 @@
+package pt.up.fe.comp2024.ast.compact;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts an ANTLR parse tree into a {@link CompactAst}, producing the same nodes and attributes as
+ * {@link pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter} without creating a {@link pt.up.fe.comp.jmm.ast.JmmNode}
+ * per node.
+ * <p>
+ * The kind, hierarchy and attribute fields of each context class are looked up by reflection only once.
+ */
+public class CompactAstBuilder {
+
+    private final Parser parser;
+    private final Set<String> ignoreList;
+    private final Map<Class<?>, RuleInfo> rules;
+
+    private final CompactAst ast;
+
+    // Attributes whose value is a rule context, resolved once every context has an id
+    private final Map<ParseTree, Integer> contextIds;
+    private final List<PendingAttribute> pendingAttributes;
+
+    private CompactAstBuilder(Parser parser, int capacity) {
+        this.parser = parser;
+        this.ignoreList = new HashSet<>(AntlrParser.getIgnoreList(parser));
+        this.rules = new HashMap<>();
+        this.ast = new CompactAst(capacity);
+        this.contextIds = new IdentityHashMap<>();
+        this.pendingAttributes = new ArrayList<>();
+    }
+
+    public static CompactAst build(ParseTree root, Parser parser) {
+        // Tokens are a good upper bound for the number of nodes
+        var builder = new CompactAstBuilder(parser, parser.getTokenStream().size());
+
+        builder.convert(root, CompactAst.NO_NODE, CompactAst.NO_NODE);
+        builder.resolvePendingAttributes();
+        builder.ast.trim();
+
+        return builder.ast;
+    }
+
+    /**
+     * Converts a node and appends it to the children of the given parent, after the given sibling.
+     *
+     * @return the last child of the parent after the conversion
+     */
+    private int convert(ParseTree node, int parent, int previousSibling) {
+        var context = (ParserRuleContext) node;
+        var rule = getRuleInfo(context.getClass());
+
+        // Nodes in the ignore list are replaced by their children
+        if (ignoreList.contains(rule.kind.getNodeName())) {
+            if (parent == CompactAst.NO_NODE) {
+                System.err.println(
+                        "Warning: the root node cannot be used in the ingnore list. The AST will keep this node.");
+            } else {
+                return convertChildren(context, parent, previousSibling);
+            }
+        }
+
+        int id = ast.newNode(rule.kind, rule.hierarchy);
+        contextIds.put(node, id);
+
+        if (parent != CompactAst.NO_NODE) {
+            ast.insertAfter(parent, id, previousSibling);
+        }
+
+        var start = parser.getTokenStream().get(node.getSourceInterval().a);
+        var end = parser.getTokenStream().get(node.getSourceInterval().b);
+        ast.setPosition(id, start.getLine(), start.getCharPositionInLine(), end.getLine(), end.getCharPositionInLine());
+
+        addAttributes(id, context, rule);
+
+        convertChildren(context, id, CompactAst.NO_NODE);
+
+        return id;
+    }
+
+    private int convertChildren(ParserRuleContext context, int parent, int previousSibling) {
+        for (int i = 0; i < context.getChildCount(); i++) {
+            var child = context.getChild(i);
+
+            // Terminal nodes are only kept as attributes
+            if (child instanceof TerminalNode) {
+                continue;
+            }
+
+            previousSibling = convert(child, parent, previousSibling);
+        }
+
+        return previousSibling;
+    }
+
+    private void addAttributes(int id, ParserRuleContext context, RuleInfo rule) {
+        for (var field : rule.fields) {
+            Object value;
+            try {
+                value = field.get(context);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Could not access field '" + field.getName() + "' from node " + context);
+            }
+
+            if (value instanceof Token token) {
+                ast.putAttribute(id, field.getName(), token.getText());
+            } else if (value instanceof ParseTree tree) {
+                pendingAttributes.add(new PendingAttribute(id, field.getName(), tree));
+            } else if (value != null) {
+                ast.putAttribute(id, field.getName(), processValue(value));
+            }
+        }
+    }
+
+    private Object processValue(Object value) {
+        if (value instanceof Token token) {
+            return token.getText();
+        }
+
+        if (value instanceof List<?> list) {
+            return list.stream()
+                    .map(this::processValue)
+                    .toList();
+        }
+
+        return value;
+    }
+
+    private void resolvePendingAttributes() {
+        for (var pending : pendingAttributes) {
+            var tree = pending.value;
+
+            // If node is in ignore list, use its only child instead
+            while (!contextIds.containsKey(tree) && tree.getChildCount() == 1) {
+                tree = tree.getChild(0);
+            }
+
+            var id = contextIds.get(tree);
+            if (id == null) {
+                System.out.println("Could not find node for ANTLR node " + pending.value);
+                continue;
+            }
+
+            ast.putAttribute(pending.node, pending.attribute, ast.getNode(id));
+        }
+    }
+
+    private RuleInfo getRuleInfo(Class<?> contextClass) {
+        return rules.computeIfAbsent(contextClass, RuleInfo::new);
+    }
+
+    private static String getKindName(Class<?> contextClass) {
+        String className = contextClass.getSimpleName();
+
+        // Rules end with context
+        if (!className.endsWith("Context")) {
+            throw new RuntimeException("Expected classname to end with 'Context' " + className);
+        }
+
+        return className.substring(0, className.length() - "Context".length());
+    }
+
+    private static class RuleInfo {
+        private final Kind kind;
+        private final List<String> hierarchy;
+        private final List<Field> fields;
+
+        private RuleInfo(Class<?> contextClass) {
+            this.hierarchy = new ArrayList<>();
+            this.fields = new ArrayList<>();
+
+            // Same classes and fields that AntlrToJmmNodeConverter uses
+            for (Class<?> current = contextClass; !current.equals(ParserRuleContext.class); current = current.getSuperclass()) {
+                hierarchy.add(getKindName(current));
+
+                for (var field : current.getDeclaredFields()) {
+                    if (Modifier.isPublic(field.getModifiers())) {
+                        fields.add(field);
+                    }
+                }
+            }
+
+            this.kind = Kind.fromString(hierarchy.get(0));
+        }
+    }
+
+    private static class PendingAttribute {
+        private final int node;
+        private final String attribute;
+        private final ParseTree value;
+
+        private PendingAttribute(int node, String attribute, ParseTree value) {
+            this.node = node;
+            this.attribute = attribute;
+            this.value = value;
+        }
+    }
+}
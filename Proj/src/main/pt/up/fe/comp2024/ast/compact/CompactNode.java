@@ -0,0 +1,284 @@
+package pt.up.fe.comp2024.ast.compact;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.specs.util.SpecsCheck;
+import pt.up.fe.specs.util.SpecsSystem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static pt.up.fe.comp2024.ast.compact.CompactAst.NO_NODE;
+
+/**
+ * {@link JmmNode} view of a node of a {@link CompactAst}. Holds no state besides the id of the node, every read and
+ * write goes to the columns of the tree. Views are created each time a node is looked up, and views of the same node
+ * are equal.
+ * <p>
+ * Nodes can only be connected to nodes of the same tree, in the same way that a {@link pt.up.fe.comp.jmm.ast.JmmNodeImpl}
+ * only accepts children of its own class.
+ */
+public class CompactNode implements JmmNode {
+
+    private final CompactAst ast;
+    private final int id;
+
+    CompactNode(CompactAst ast, int id) {
+        this.ast = ast;
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    CompactAst getAst() {
+        return ast;
+    }
+
+    public Kind getKindEnum() {
+        return ast.getKind(id);
+    }
+
+    @Override
+    public String getKind() {
+        return ast.getKind(id).getNodeName();
+    }
+
+    @Override
+    public Collection<String> getHierarchy() {
+        return ast.getHierarchy(id);
+    }
+
+    // Attributes
+
+    @Override
+    public Collection<String> getAttributes() {
+        return ast.getAttributes(id);
+    }
+
+    @Override
+    public boolean hasAttribute(String attribute) {
+        return ast.hasAttribute(id, attribute);
+    }
+
+    @Override
+    public Object getObject(String attribute) {
+        var value = ast.getAttribute(id, attribute);
+
+        SpecsCheck.checkNotNull(value, () -> "Node " + getKind() + " does not contain attribute '" + attribute + "'");
+
+        return value;
+    }
+
+    @Override
+    public Object putObject(String attribute, Object value) {
+        return ast.putAttribute(id, attribute, value);
+    }
+
+    // Structure
+
+    @Override
+    public JmmNode getParent() {
+        return ast.getNode(ast.getParent(id));
+    }
+
+    @Deprecated
+    @Override
+    public JmmNode getJmmParent() {
+        return getParent();
+    }
+
+    @Override
+    public List<JmmNode> getChildren() {
+        var children = new ArrayList<JmmNode>();
+
+        for (int child = ast.getFirstChild(id); child != NO_NODE; child = ast.getNextSibling(child)) {
+            children.add(ast.getNode(child));
+        }
+
+        return children;
+    }
+
+    @Override
+    public int getNumChildren() {
+        return ast.getNumChildren(id);
+    }
+
+    @Override
+    public JmmNode getChild(int index) {
+        int child = ast.getChild(id, index);
+
+        if (index < 0 || child == NO_NODE) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getNumChildren());
+        }
+
+        return ast.getNode(child);
+    }
+
+    @Override
+    public JmmNode getJmmChild(int index) {
+        return getChild(index);
+    }
+
+    @Override
+    public int getIndexOfSelf() {
+        int parent = ast.getParent(id);
+        if (parent == NO_NODE) {
+            return -1;
+        }
+
+        return ast.getIndexOfChild(parent, id);
+    }
+
+    @Override
+    public void add(JmmNode child, int index) {
+        var compactChild = toSameTree(child);
+
+        // A node can only be in the children of one parent
+        ast.unlink(compactChild.id);
+        ast.insertChild(id, compactChild.id, index);
+    }
+
+    @Override
+    public void setChild(JmmNode newNode, int index) {
+        var compactNode = toSameTree(newNode);
+        var currentChild = getChild(index);
+
+        if (compactNode.equals(currentChild)) {
+            return;
+        }
+
+        var newNodeParent = compactNode.getParent();
+        int newNodeIndex = compactNode.getIndexOfSelf();
+
+        currentChild.removeParent();
+        compactNode.removeParent();
+
+        // Swapping two children of this node, the lower position must be filled first
+        if (equals(newNodeParent) && newNodeIndex < index) {
+            add(currentChild, newNodeIndex);
+            add(compactNode, index);
+            return;
+        }
+
+        add(compactNode, index);
+
+        // If new node had a parent, set the replaced node at the old position of the new node
+        if (newNodeParent != null) {
+            newNodeParent.add(currentChild, newNodeIndex);
+        }
+    }
+
+    @Override
+    public JmmNode removeJmmChild(int index) {
+        int numChildren = getNumChildren();
+        if (index >= numChildren) {
+            System.out.println(
+                    "[WARNING] Tried to remove child at index " + index + ", but node only has " + numChildren
+                            + " children");
+            return null;
+        }
+
+        var removedChild = getChild(index);
+        removedChild.removeParent();
+        return removedChild;
+    }
+
+    @Override
+    public int removeChild(JmmNode node) {
+        int index = node instanceof CompactNode compactNode && compactNode.ast == ast
+                ? ast.getIndexOfChild(id, compactNode.id)
+                : -1;
+
+        if (index == -1) {
+            System.out.println("[WARNING] Tried to remove child from node, but could not find it.\nChild:" + node
+                    + "\nParent:" + this);
+            return -1;
+        }
+
+        removeJmmChild(index);
+        return index;
+    }
+
+    @Deprecated
+    @Override
+    public int removeJmmChild(JmmNode node) {
+        return removeChild(node);
+    }
+
+    @Override
+    public JmmNode detach() {
+        if (ast.getParent(id) == NO_NODE) {
+            System.out.println("[WARNING] Tried to remove itself from the tree, but node has no parent");
+            return this;
+        }
+
+        ast.unlink(id);
+        return this;
+    }
+
+    @Override
+    public void removeParent() {
+        ast.unlink(id);
+    }
+
+    @Override
+    public void setParent(JmmNode parent) {
+        ast.unlink(id);
+
+        if (parent != null) {
+            var compactParent = toSameTree(parent);
+            ast.insertChild(compactParent.id, id, compactParent.getNumChildren());
+        }
+    }
+
+    @Override
+    public JmmNode copyNode() {
+        return ast.getNode(ast.copyNode(id));
+    }
+
+    private CompactNode toSameTree(JmmNode node) {
+        if (!(node instanceof CompactNode compactNode) || compactNode.ast != ast) {
+            throw new RuntimeException(
+                    getClass().getName() + " can only have children of the same " + CompactAst.class.getSimpleName()
+                            + ".");
+        }
+
+        return compactNode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CompactNode other && other.ast == ast && other.id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        var string = new StringBuilder(getKind());
+
+        var attrs = ast.getAttributes(id).stream()
+                .filter(attr -> !CompactAst.isPosition(attr))
+                .toList();
+
+        if (!attrs.isEmpty()) {
+            string.append(attrs.stream()
+                    .map(attr -> attr + ": " + get(attr))
+                    .collect(Collectors.joining(", ", " (", ")")));
+        }
+
+        if (SpecsSystem.isDebug()) {
+            string.append(" ").append(get(CompactAst.LINE_START)).append(":").append(get(CompactAst.COL_START))
+                    .append("->").append(get(CompactAst.LINE_END)).append(":").append(get(CompactAst.COL_END));
+        }
+
+        return string.toString();
+    }
+}
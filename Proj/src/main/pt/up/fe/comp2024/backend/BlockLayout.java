@@ -0,0 +1,353 @@
+package pt.up.fe.comp2024.backend;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Orders the basic blocks of the Jasmin code of a method, so that most of them fall through to the block that runs
+ * after them instead of jumping to it.
+ * <p>
+ * Blocks are the instructions between labels and jumps, in the order they were added, each one continuing to the next
+ * one unless it ends with a goto or a return. Jumps to a block that only jumps go directly to its target, and a goto to
+ * a block that only tests a condition is replaced by a copy of the test, so that loops that jump back to their
+ * condition test it at the end instead. Each block is then followed by the block it continues to or jumps to, if that
+ * one was not placed yet and is not the block another one continues to. A branch to the block that follows it jumps
+ * to its other successor on the opposite condition.
+ */
+class BlockLayout {
+
+    private static final String NL = "\n";
+    private static final String TAB = "   ";
+
+    private static final Map<String, String> OPPOSITE_JUMPS = Map.of(
+            "ifeq", "ifne", "ifne", "ifeq",
+            "if_icmpeq", "if_icmpne", "if_icmpne", "if_icmpeq",
+            "if_icmplt", "if_icmpge", "if_icmpge", "if_icmplt",
+            "if_icmpgt", "if_icmple", "if_icmple", "if_icmpgt");
+
+    private static class Block {
+
+        private final List<String> labels = new ArrayList<>();
+        private final StringBuilder code = new StringBuilder();
+
+        // Code of the test of the branch that ends the block, without its jump instruction, or null
+        private String condition;
+        private String jump;
+
+        // Label of the block that the branch or goto that ends the block goes to, and the block itself once resolved
+        private String targetLabel;
+        private Block target;
+
+        // Block that runs next when the block does not jump, null if it ends with a goto or a return
+        private Block next;
+        private boolean returns;
+
+        private boolean isEmpty() {
+            return code.isEmpty();
+        }
+
+        private boolean isGoto() {
+            return target != null && condition == null;
+        }
+
+        private boolean isBranch() {
+            return condition != null;
+        }
+    }
+
+    private final List<Block> blocks;
+    private final Set<String> usedLabels;
+
+    // Block of the instructions being added, null after a jump or return
+    private Block current;
+
+    BlockLayout() {
+        this.blocks = new ArrayList<>();
+        this.usedLabels = new HashSet<>();
+        this.current = null;
+    }
+
+    /**
+     * Adds an instruction that does not jump.
+     *
+     * @param labels labels of the instruction
+     * @param code   Jasmin code of the instruction, with each line indented and ending in a newline
+     */
+    void addInstruction(List<String> labels, String code) {
+        startBlock(labels).code.append(code);
+    }
+
+    void addReturn(List<String> labels, String code) {
+        var block = startBlock(labels);
+        block.code.append(code);
+        block.returns = true;
+        current = null;
+    }
+
+    void addGoto(List<String> labels, String targetLabel) {
+        startBlock(labels).targetLabel = targetLabel;
+        current = null;
+    }
+
+    /**
+     * Adds a branch, whose code ends with a conditional jump to the target.
+     */
+    void addBranch(List<String> labels, String code, String targetLabel) {
+        var block = startBlock(labels);
+
+        // The jump is the last line, e.g., "if_icmplt label"
+        int lastLine = code.stripTrailing().lastIndexOf(NL) + 1;
+        block.condition = code.substring(0, lastLine);
+        block.jump = code.substring(lastLine).strip().split("\\s+")[0];
+        block.targetLabel = targetLabel;
+
+        current = null;
+    }
+
+    private Block startBlock(List<String> labels) {
+        if (current == null || !labels.isEmpty() && (!current.isEmpty() || !current.labels.isEmpty())) {
+            var block = new Block();
+            blocks.add(block);
+            current = block;
+        }
+
+        current.labels.addAll(labels);
+        usedLabels.addAll(labels);
+
+        return current;
+    }
+
+    /**
+     * @return the code of the blocks, in the order that needs the fewest jumps
+     */
+    String toJasmin() {
+        if (blocks.isEmpty()) {
+            return "";
+        }
+
+        resolveSuccessors();
+        threadJumps();
+        copyConditions();
+
+        var order = getLayout();
+
+        // Blocks that were only reached by falling through may now need a label
+        var jumps = new ArrayList<String>();
+        for (int i = 0; i < order.size(); i++) {
+            var following = i + 1 < order.size() ? order.get(i + 1) : null;
+            jumps.add(getJumps(order.get(i), following));
+        }
+
+        var code = new StringBuilder();
+        for (int i = 0; i < order.size(); i++) {
+            var block = order.get(i);
+
+            for (var label : block.labels) {
+                code.append(label).append(":").append(NL);
+            }
+
+            code.append(block.code).append(jumps.get(i));
+        }
+
+        return code.toString();
+    }
+
+    private void resolveSuccessors() {
+        var blocksByLabel = new HashMap<String, Block>();
+        for (var block : blocks) {
+            block.labels.forEach(label -> blocksByLabel.put(label, block));
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+
+            if (block.targetLabel != null) {
+                block.target = blocksByLabel.get(block.targetLabel);
+            }
+
+            if (!block.returns && !block.isGoto() && i + 1 < blocks.size()) {
+                block.next = blocks.get(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Makes jumps and blocks that go to a block that only jumps go to the target of that block instead.
+     */
+    private void threadJumps() {
+        for (var block : blocks) {
+            if (block.target != null) {
+                block.target = getFinalTarget(block.target);
+            }
+
+            if (block.next != null) {
+                block.next = getFinalTarget(block.next);
+            }
+        }
+    }
+
+    private static Block getFinalTarget(Block block) {
+        var visited = new HashSet<Block>();
+
+        while (block.isEmpty() && block.isGoto() && visited.add(block)) {
+            block = block.target;
+        }
+
+        return block;
+    }
+
+    /**
+     * Replaces gotos to a block that only tests a condition by a copy of the test.
+     */
+    private void copyConditions() {
+        for (var block : blocks) {
+            var target = block.target;
+
+            if (block.isGoto() && target != block && target.isEmpty() && target.isBranch()) {
+                block.condition = target.condition;
+                block.jump = target.jump;
+                block.target = target.target;
+                block.next = target.next;
+            }
+        }
+    }
+
+    /**
+     * @return the blocks reachable from the first one, which stays first, each one after the block that goes to it when
+     * possible
+     */
+    private List<Block> getLayout() {
+        var reachable = getReachable();
+
+        // Blocks that another block would fall through to in the original order are left for that block
+        var fallThroughs = new HashMap<Block, Block>();
+        for (var block : reachable) {
+            if (block.next != null) {
+                fallThroughs.putIfAbsent(block.next, block);
+            }
+        }
+
+        var indices = new HashMap<Block, Integer>();
+        for (int i = 0; i < blocks.size(); i++) {
+            indices.put(blocks.get(i), i);
+        }
+
+        // Reachable blocks not placed yet, in their original order, to continue from when a block has no successor left
+        var pending = new ArrayDeque<>(reachable);
+
+        var order = new ArrayList<Block>();
+        var placed = new HashSet<Block>();
+        var block = blocks.get(0);
+
+        while (block != null) {
+            order.add(block);
+            placed.add(block);
+
+            // The successor that came first after the block keeps the order of the code, e.g., the body of a loop
+            // follows its condition, even when the condition jumped over a goto to the exit
+            int index = indices.get(block);
+            var successors = Stream.of(block.next, block.target)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparingInt(successor ->
+                            Math.floorMod(indices.get(successor) - index, blocks.size())))
+                    .toList();
+
+            Block following = null;
+            for (var successor : successors) {
+                var predecessor = fallThroughs.get(successor);
+
+                if (!placed.contains(successor)
+                        && (predecessor == null || predecessor == block || placed.contains(predecessor))) {
+                    following = successor;
+                    break;
+                }
+            }
+
+            if (following == null) {
+                while (!pending.isEmpty() && placed.contains(pending.peekFirst())) {
+                    pending.removeFirst();
+                }
+
+                following = pending.peekFirst();
+            }
+
+            block = following;
+        }
+
+        return order;
+    }
+
+    /**
+     * @return the blocks reachable from the first one, in their original order
+     */
+    private Set<Block> getReachable() {
+        var reached = new HashSet<Block>();
+        var pending = new ArrayList<Block>();
+        pending.add(blocks.get(0));
+
+        while (!pending.isEmpty()) {
+            var block = pending.remove(pending.size() - 1);
+
+            if (block != null && reached.add(block)) {
+                pending.add(block.next);
+                pending.add(block.target);
+            }
+        }
+
+        var reachable = new LinkedHashSet<Block>();
+        blocks.stream().filter(reached::contains).forEach(reachable::add);
+
+        return reachable;
+    }
+
+    /**
+     * @param following block placed after the block, or null
+     * @return the code that goes from the block to its successors
+     */
+    private String getJumps(Block block, Block following) {
+        var code = new StringBuilder();
+
+        if (block.isBranch()) {
+            code.append(block.condition);
+
+            var opposite = OPPOSITE_JUMPS.get(block.jump);
+            if (block.target == following && block.next != null && opposite != null) {
+                code.append(TAB).append(opposite).append(" ").append(getLabel(block.next)).append(NL);
+                return code.toString();
+            }
+
+            code.append(TAB).append(block.jump).append(" ").append(getLabel(block.target)).append(NL);
+        }
+
+        var successor = block.isGoto() ? block.target : block.next;
+        if (successor != null && successor != following) {
+            code.append(TAB).append("goto ").append(getLabel(successor)).append(NL);
+        }
+
+        return code.toString();
+    }
+
+    private String getLabel(Block block) {
+        if (block.labels.isEmpty()) {
+            for (int number = 0; ; number++) {
+                var label = "block_" + number;
+
+                if (usedLabels.add(label)) {
+                    block.labels.add(label);
+                    break;
+                }
+            }
+        }
+
+        return block.labels.get(0);
+    }
+}
@@ -36,6 +36,9 @@ public class JasminGenerator {
     int currStack = 0;
     int maxStack = 0;
 
+    // Number of the next label generated for the code of an instruction
+    int labelNum = 0;
+
     public JasminGenerator(OllirResult ollirResult) {
         this.ollirResult = ollirResult;
 
@@ -83,7 +86,18 @@ public class JasminGenerator {
         var superClass = ollirResult.getOllirClass().getSuperClass() != null ?
                 ollirResult.getOllirClass().getSuperClass() :
                 "java/lang/Object";
-        code.append(".super ").append(superClass).append(NL).append(NL);
+        code.append(".super ").append(superClass).append(NL);
+
+        // generate fields, which getfield and putfield refer to
+        for (var field : ollirResult.getOllirClass().getFields()) {
+            var modifier = field.getFieldAccessModifier() != AccessModifier.DEFAULT ?
+                    field.getFieldAccessModifier().name().toLowerCase() + " " :
+                    "";
+
+            code.append(".field ").append(modifier).append(field.getFieldName()).append(" ")
+                .append(getTypeDesc(field.getFieldType())).append(NL);
+        }
+        code.append(NL);
         var defaultContructor = """
                 ;default constructor
                 .method public <init>()V
@@ -121,7 +135,7 @@ public class JasminGenerator {
 
         var methodName = method.getMethodName();
 
-        if (methodName.equals("main")){
+        if (method.isStaticMethod()) {
             modifier += "static ";
         }
 
@@ -143,10 +157,6 @@ public class JasminGenerator {
 
         // First loop to calculate limit stack
         for (var inst : method.getInstructions()) {
-            if (!method.getLabels(inst).isEmpty()) {
-                code.append(method.getLabels(inst).get(0)).append(":").append(NL);
-            }
-
             StringLines.getLines(generators.apply(inst)).stream()
                        .collect(Collectors.joining(NL + TAB, TAB, NL));
         }
@@ -157,18 +167,31 @@ public class JasminGenerator {
         code.append(TAB).append(".limit stack ").append(limitStack).append(NL);
         code.append(TAB).append(".limit locals ").append(limitLocals).append(NL);
 
-        // Second loop to append the code
+        // Second loop to append the code, with its blocks in the order that needs the fewest jumps
+        var layout = new BlockLayout();
         for (var inst : method.getInstructions()) {
-            if (!method.getLabels(inst).isEmpty()) {
-                code.append(method.getLabels(inst).get(0)).append(":").append(NL);
+            // Conditions with several parts can jump to the same instruction from different labels
+            var labels = method.getLabels(inst);
+
+            if (inst instanceof GotoInstruction gotoInst) {
+                layout.addGoto(labels, gotoInst.getLabel());
+                continue;
             }
 
             var instCode = StringLines.getLines(generators.apply(inst)).stream()
                     .collect(Collectors.joining(NL + TAB, TAB, NL));
 
-            code.append(instCode);
+            if (inst instanceof CondBranchInstruction branch) {
+                layout.addBranch(labels, instCode, branch.getLabel());
+            } else if (inst instanceof ReturnInstruction) {
+                layout.addReturn(labels, instCode);
+            } else {
+                layout.addInstruction(labels, instCode);
+            }
         }
 
+        code.append(layout.toJasmin());
+
         code.append(".end method\n");
 
         // unset method
@@ -414,19 +437,34 @@ public class JasminGenerator {
     }
 
     private String generateBinaryOp(BinaryOpInstruction binaryOp) {
+        if (binaryOp.getOperation().getOpType() == OperationType.MUL) {
+            var shift = generateShift(binaryOp.getLeftOperand(), binaryOp.getRightOperand());
+
+            if (shift == null) {
+                shift = generateShift(binaryOp.getRightOperand(), binaryOp.getLeftOperand());
+            }
+
+            if (shift != null) {
+                return shift;
+            }
+        }
+
         var code = new StringBuilder();
 
         // load values on the left and on the right
         code.append(generators.apply(binaryOp.getLeftOperand()));
         code.append(generators.apply(binaryOp.getRightOperand()));
 
+        if (binaryOp.getOperation().getOpType() == OperationType.LTH) {
+            return code.append(generateComparisonValue("if_icmplt")).toString();
+        }
+
         // apply operation
         var op = switch (binaryOp.getOperation().getOpType()) {
             case ADD -> "iadd";
             case SUB -> "isub";
             case MUL -> "imul";
             case DIV -> "idiv";
-            case LTH -> "if_icmplt";
             case AND -> "iand";
             default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
         };
@@ -437,6 +475,61 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    /**
+     * Comparisons used as values push 1 when the jump is taken and 0 otherwise.
+     *
+     * @param jump instruction that compares the two values on the stack
+     */
+    private String generateComparisonValue(String jump) {
+        var trueLabel = "cmp_true_" + labelNum;
+        var endLabel = "cmp_end_" + labelNum;
+        labelNum++;
+
+        var code = new StringBuilder();
+
+        decrementStack();
+        decrementStack();
+        code.append(jump).append(" ").append(trueLabel).append(NL);
+
+        code.append("iconst_0").append(NL);
+        code.append("goto ").append(endLabel).append(NL);
+
+        incrementStack();
+        code.append(trueLabel).append(":").append(NL);
+        code.append("iconst_1").append(NL);
+        code.append(endLabel).append(":").append(NL);
+
+        return code.toString();
+    }
+
+    /**
+     * Multiplications by a power of two are shifts to the left.
+     *
+     * @return the code of the multiplication as a shift, or null if the factor is not a literal power of two
+     */
+    private String generateShift(Element operand, Element factor) {
+        if (!(factor instanceof LiteralElement literal)) {
+            return null;
+        }
+
+        int value = Integer.parseInt(literal.getLiteral());
+        if (value <= 1 || Integer.bitCount(value) != 1) {
+            return null;
+        }
+
+        var code = new StringBuilder();
+        code.append(generators.apply(operand));
+
+        int shift = Integer.numberOfTrailingZeros(value);
+        incrementStack();
+        code.append(shift <= 5 ? "iconst_" + shift : "bipush " + shift).append(NL);
+
+        decrementStack();
+        code.append("ishl").append(NL);
+
+        return code.toString();
+    }
+
     private String generateReturn(ReturnInstruction returnInst) {
         var code = new StringBuilder();
 
@@ -525,10 +618,13 @@ public class JasminGenerator {
 
                 code.append(generators.apply(call.getOperands().get(0)));
 
+                // The arguments are all on the stack before the call pops them
                 for (var param : parameters) {
-                    decrementStack();
                     code.append(generators.apply(param));
                 }
+                for (var param : parameters) {
+                    decrementStack();
+                }
 
                 incrementStack();
                 code.append("invokevirtual ").append(className)
@@ -538,10 +634,13 @@ public class JasminGenerator {
             case invokestatic -> {
                 var className = call.getOperands().get(0).toString().split(" ")[1].split("\\.")[0];
 
+                // The arguments are all on the stack before the call pops them
                 for (var param : parameters) {
-                    decrementStack();
                     code.append(generators.apply(param));
                 }
+                for (var param : parameters) {
+                    decrementStack();
+                }
 
                 incrementStack();
                 code.append("invokestatic ").append(className)
@@ -576,34 +675,7 @@ public class JasminGenerator {
             code.append("aload ").append(reg).append(NL);
         }
 
-        if (value instanceof LiteralElement) {
-            int val = Integer.parseInt(((LiteralElement) value).getLiteral());
-
-            if (val == -1) {
-                incrementStack();
-                code.append("iconst_m1").append(NL);
-            } else if (val > -1 && val <= 5) {
-                incrementStack();
-                code.append("iconst_").append(((LiteralElement) value).getLiteral()).append(NL);
-            } else if (val >= -128 && val <= 127) {
-                incrementStack();
-                code.append("bipush ").append(((LiteralElement) value).getLiteral()).append(NL);
-            } else if (val >= -32768 && val <= 32767) {
-                incrementStack();
-                code.append("sipush ").append(((LiteralElement) value).getLiteral()).append(NL);
-            } else if (val >= -2147483648 && val <= 2147483647) {
-                incrementStack();
-                code.append("ldc ").append(((LiteralElement) value).getLiteral()).append(NL);
-            }
-        } else if (value instanceof Operand) {
-            int val = Integer.parseInt(((Operand) value).getName());
-
-            if (val >= 0 && val <= 3) {
-                code.append(TAB).append(getInstructionsLoad(((Operand) value).getType())).append("_").append(currentMethod.getVarTable().get(((Operand) value).getName()).getVirtualReg()).append(NL);
-            } else {
-                code.append(TAB).append(getInstructionsLoad(((Operand) value).getType())).append(" ").append(currentMethod.getVarTable().get(((Operand) value).getName()).getVirtualReg()).append(NL);
-            }
-        }
+        code.append(generators.apply(value));
         for (int i = 0; i < 2; i++) {
             decrementStack();
         }
@@ -649,6 +721,20 @@ public class JasminGenerator {
     private String generateOpCond(OpCondInstruction opCond) {
         var code = new StringBuilder();
 
+        // Negated booleans jump when the boolean is false
+        if (opCond.getCondition() instanceof UnaryOpInstruction unaryOp) {
+            if (unaryOp.getOperation().getOpType() != OperationType.NOTB) {
+                throw new NotImplementedException(unaryOp.getOperation().getOpType());
+            }
+
+            code.append(generators.apply(unaryOp.getOperand()));
+
+            decrementStack();
+            code.append("ifeq ").append(opCond.getLabel()).append(NL);
+
+            return code.toString();
+        }
+
         var leftOperand = opCond.getOperands().get(0);
         var rightOperand = opCond.getOperands().get(1);
 
@@ -0,0 +1,300 @@
+package pt.up.fe.comp2024.execution;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compiles and runs every .jmm file under a folder, several files at a time.
+ * <p>
+ * Each file gets its own parser, analysis, optimization and backend instances, its own class loader and its own
+ * standard streams, so files do not affect each other. Results are always reported in the order of the paths of the
+ * files, whatever the order in which they finish.
+ * <p>
+ * Usage: {@code CorpusRunner [folder] [threads] [compiler options]}, where the folder defaults to "test", the threads
+ * to the number of processors, and compiler options are the same as for the Launcher (e.g., -o).
+ */
+public class CorpusRunner {
+
+    public enum Status {
+        OK,
+        COMPILED,
+        PARSE_ERROR,
+        SEMANTIC_ERROR,
+        OLLIR_ERROR,
+        JASMIN_ERROR,
+        RUNTIME_ERROR,
+        TIMEOUT,
+        CRASH
+    }
+
+    public static class Result {
+        private final String path;
+        private final Status status;
+        private final String detail;
+        private final String output;
+
+        private Result(String path, Status status, String detail, String output) {
+            this.path = path;
+            this.status = status;
+            this.detail = detail;
+            this.output = output;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the first error, or an empty string if there were no errors
+         */
+        public String getDetail() {
+            return detail;
+        }
+
+        /**
+         * @return what the program printed, or an empty string if it did not run
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        @Override
+        public String toString() {
+            return detail.isEmpty() ? status + " " + path : status + " " + path + ": " + detail;
+        }
+    }
+
+    private final Map<String, String> config;
+    private final int threads;
+
+    /**
+     * @param config  compiler options used for every file, the input file is set for each one
+     * @param threads maximum number of files compiled and run at the same time
+     */
+    public CorpusRunner(Map<String, String> config, int threads) {
+        this.config = Map.copyOf(config);
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) {
+        var root = new File(args.length > 0 ? args[0] : "test");
+        var threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        var options = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : new String[0];
+        var config = CompilerConfig.parseOptions(options);
+
+        var results = new CorpusRunner(config, threads).run(root);
+
+        System.out.print(report(results));
+    }
+
+    /**
+     * Compiles and runs every .jmm file under the given folder.
+     *
+     * @return one result per file, sorted by path
+     */
+    public List<Result> run(File root) {
+        return run(root, findSources(root));
+    }
+
+    /**
+     * @param root  folder the paths of the results are relative to
+     * @param files files to compile and run
+     * @return one result per file, sorted by path
+     */
+    public List<Result> run(File root, List<File> files) {
+        var sorted = new ArrayList<>(files);
+        sorted.sort(null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            var futures = new ArrayList<Future<Result>>();
+            for (var file : sorted) {
+                var path = getRelativePath(root, file);
+                futures.add(executor.submit(() -> compileAndRun(path, file)));
+            }
+
+            var results = new ArrayList<Result>();
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(getResult(futures.get(i), getRelativePath(root, sorted.get(i))));
+            }
+
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static List<File> findSources(File root) {
+        try (var paths = Files.walk(root.toPath())) {
+            return paths.filter(path -> path.toString().endsWith(".jmm"))
+                    .filter(Files::isRegularFile)
+                    .map(Path::toFile)
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list sources in '" + root + "'", e);
+        }
+    }
+
+    /**
+     * @return one line per result followed by the number of files with each status
+     */
+    public static String report(List<Result> results) {
+        var report = new StringBuilder();
+
+        var counts = new EnumMap<Status, Integer>(Status.class);
+        for (var result : results) {
+            report.append(result).append("\n");
+            counts.merge(result.getStatus(), 1, Integer::sum);
+        }
+
+        report.append("\n").append(results.size()).append(" files");
+        for (var count : counts.entrySet()) {
+            report.append(", ").append(count.getValue()).append(" ").append(count.getKey());
+        }
+        report.append("\n");
+
+        return report.toString();
+    }
+
+    private Result compileAndRun(String path, File file) {
+        // Anything the compiler prints stays with this file
+        ThreadStreams.attach(ThreadStreams.newCapture(null));
+
+        try {
+            return runFile(path, file);
+        } catch (RuntimeException | StackOverflowError e) {
+            return new Result(path, Status.CRASH, e.getClass().getSimpleName() + ": " + firstLine(e.getMessage()), "");
+        } finally {
+            ThreadStreams.release();
+        }
+    }
+
+    private Result runFile(String path, File file) {
+        var fileConfig = new HashMap<>(config);
+        CompilerConfig.setInputFile(fileConfig, file);
+
+        var parserResult = new JmmParserImpl().parse(file, fileConfig);
+        if (ReportUtils.anyError(parserResult.getReports())) {
+            return error(path, Status.PARSE_ERROR, parserResult.getReports());
+        }
+
+        var semanticsResult = new JmmAnalysisImpl().semanticAnalysis(parserResult);
+        if (ReportUtils.anyError(semanticsResult.getReports())) {
+            return error(path, Status.SEMANTIC_ERROR, semanticsResult.getReports());
+        }
+
+        var optimization = new JmmOptimizationImpl();
+        var ollirResult = optimization.toOllir(semanticsResult);
+        if (CompilerConfig.getOptimize(fileConfig)) {
+            ollirResult = optimization.optimize(ollirResult);
+        }
+        if (ReportUtils.anyError(ollirResult.getReports())) {
+            return error(path, Status.OLLIR_ERROR, ollirResult.getReports());
+        }
+
+        var jasminResult = new JasminBackendImpl().toJasmin(ollirResult);
+        if (ReportUtils.anyError(jasminResult.getReports())) {
+            return error(path, Status.JASMIN_ERROR, jasminResult.getReports());
+        }
+
+        // Classes without a main method can only be compiled
+        if (!semanticsResult.getSymbolTable().getMethods().contains("main")) {
+            return new Result(path, Status.COMPILED, "", "");
+        }
+
+        JasminAssembler.AssembledClass assembled;
+        try {
+            assembled = JasminAssembler.assemble(jasminResult.getClassName(), jasminResult.getJasminCode());
+        } catch (RuntimeException e) {
+            return new Result(path, Status.JASMIN_ERROR, firstLine(e.getMessage()), "");
+        }
+
+        var classpath = List.of(new File(JasminRunner.getLibsClasspath()), file.getAbsoluteFile().getParentFile());
+        var loader = new InMemoryClassLoader(Map.of(assembled.getName(), assembled.getBytecode()), classpath);
+        var output = JasminRunner.runMain(loader, assembled.getName(), Collections.emptyList(), null);
+
+        return switch (output.getReturnValue()) {
+            case 0 -> new Result(path, Status.OK, "", output.getOutput());
+            case -1 -> new Result(path, Status.TIMEOUT, "", output.getOutput());
+            default -> new Result(path, Status.RUNTIME_ERROR, getExceptionName(output.getStdErr()), output.getOutput());
+        };
+    }
+
+    private static Result error(String path, Status status, List<Report> reports) {
+        var firstError = reports.stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .findFirst()
+                .map(report -> "line " + report.getLine() + ": " + firstLine(report.getMessage()))
+                .orElse("");
+
+        return new Result(path, status, firstError, "");
+    }
+
+    private static Result getResult(Future<Result> future, String path) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(path, Status.CRASH, "Interrupted", "");
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            return new Result(path, Status.CRASH, cause.getClass().getSimpleName() + ": " + firstLine(cause.getMessage()), "");
+        }
+    }
+
+    /**
+     * Only the name of the exception is kept, since messages of the JVM are not always the same for the same program
+     * (e.g., the verifier does not always name the same method of a class with several errors).
+     */
+    private static String getExceptionName(String stderr) {
+        var line = firstLine(stderr);
+
+        var prefix = "Exception in thread \"main\" ";
+        if (line.startsWith(prefix)) {
+            line = line.substring(prefix.length());
+        }
+
+        var colon = line.indexOf(':');
+        return colon == -1 ? line : line.substring(0, colon);
+    }
+
+    private static String getRelativePath(File root, File file) {
+        return root.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private static String firstLine(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        return text.strip().lines().findFirst().orElse("");
+    }
+}
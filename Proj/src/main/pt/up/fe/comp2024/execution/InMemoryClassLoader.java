@@ -0,0 +1,53 @@
+package pt.up.fe.comp2024.execution;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class loader for classes assembled in memory, which finds any other class in the given classpath folders and jars.
+ * <p>
+ * The parent is the platform class loader, so each instance loads its own copy of the library classes (e.g.,
+ * {@code io}) and programs that run in different loaders do not share static state.
+ */
+public class InMemoryClassLoader extends URLClassLoader {
+
+    private final Map<String, byte[]> classes;
+
+    /**
+     * @param classes   bytecode of each class, by binary name
+     * @param classpath folders and jars where the remaining classes are found
+     */
+    public InMemoryClassLoader(Map<String, byte[]> classes, List<File> classpath) {
+        super(toUrls(classpath), ClassLoader.getPlatformClassLoader());
+        this.classes = Map.copyOf(classes);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        var bytecode = classes.get(name);
+
+        if (bytecode == null) {
+            return super.findClass(name);
+        }
+
+        return defineClass(name, bytecode, 0, bytecode.length);
+    }
+
+    private static URL[] toUrls(List<File> classpath) {
+        var urls = new URL[classpath.size()];
+
+        for (int i = 0; i < urls.length; i++) {
+            try {
+                urls[i] = classpath.get(i).toURI().toURL();
+            } catch (MalformedURLException e) {
+                throw new RuntimeException("Invalid classpath element '" + classpath.get(i) + "'", e);
+            }
+        }
+
+        return urls;
+    }
+}
@@ -0,0 +1,1090 @@
+package pt.up.fe.comp2024.execution;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Method of the class being interpreted.
+ * <p>
+ * On the first call, the OLLIR instructions of the method are translated into a form that runs without any lookups:
+ * variables become indexes of the slots of a {@link Frame}, labels become indexes of instructions, and fields and
+ * called methods are resolved once per instruction. Once the method is hot, that code is compiled by
+ * {@link MethodCompiler} and runs on the same frames.
+ */
+class InterpretedMethod {
+
+    // Returned by an instruction instead of the index of the next instruction, when the method returns
+    private static final int RETURN = -1;
+
+    private final OllirInterpreter interpreter;
+    private final Method method;
+
+    private final int numSlots;
+    private final boolean[] intSlots;
+    private final boolean[] refSlots;
+    private final int[] paramSlots;
+    private final boolean[] intParams;
+
+    private Insn[] code;
+    private Map<String, Integer> labels;
+
+    // Calls and jumps back to an earlier instruction since the method was created, which decide when it is compiled
+    private int invocations;
+    private int backEdges;
+
+    private MethodHandle compiled;
+    private boolean compileFailed;
+
+    InterpretedMethod(OllirInterpreter interpreter, Method method) {
+        this.interpreter = interpreter;
+        this.method = method;
+
+        // Instance methods always have 'this' in slot 0
+        int maxSlot = method.isStaticMethod() ? -1 : 0;
+        for (var descriptor : method.getVarTable().values()) {
+            maxSlot = Math.max(maxSlot, descriptor.getVirtualReg());
+        }
+        this.numSlots = maxSlot + 1;
+
+        this.intSlots = new boolean[numSlots];
+        this.refSlots = new boolean[numSlots];
+        if (!method.isStaticMethod()) {
+            refSlots[0] = true;
+        }
+        for (var descriptor : method.getVarTable().values()) {
+            // Fields are in the table without a register
+            if (descriptor.getVirtualReg() < 0) {
+                continue;
+            }
+
+            if (isInt(descriptor.getVarType())) {
+                intSlots[descriptor.getVirtualReg()] = true;
+            } else {
+                refSlots[descriptor.getVirtualReg()] = true;
+            }
+        }
+
+        var params = method.getParams();
+        this.paramSlots = new int[params.size()];
+        this.intParams = new boolean[params.size()];
+        for (int i = 0; i < params.size(); i++) {
+            var param = (Operand) params.get(i);
+            paramSlots[i] = getSlot(param.getName());
+            intParams[i] = isInt(param.getType());
+        }
+    }
+
+    String getName() {
+        return method.getMethodName();
+    }
+
+    boolean isStatic() {
+        return method.isStaticMethod();
+    }
+
+    int getNumParams() {
+        return paramSlots.length;
+    }
+
+    Frame newFrame() {
+        return new Frame(numSlots);
+    }
+
+    /**
+     * Sets the arguments of a call in the frame of this method, evaluating them in the frame of the caller.
+     */
+    void setArguments(Frame frame, Expr[] args, Frame caller) {
+        for (int i = 0; i < args.length; i++) {
+            if (intParams[i]) {
+                frame.ints[paramSlots[i]] = args[i].evalInt(caller);
+            } else {
+                frame.refs[paramSlots[i]] = args[i].evalRef(caller);
+            }
+        }
+    }
+
+    /**
+     * Sets the arguments of a call that comes from outside the interpreter, where ints and booleans are boxed.
+     */
+    void setArguments(Frame frame, Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (intParams[i]) {
+                frame.ints[paramSlots[i]] = OllirInterpreter.toInt(args[i]);
+            } else {
+                frame.refs[paramSlots[i]] = args[i];
+            }
+        }
+    }
+
+    /**
+     * Runs the method in the given frame, where the receiver and the arguments were already set. The returned value, if
+     * any, is left in the frame.
+     */
+    void execute(Frame frame) {
+        var code = getCode();
+
+        invocations++;
+        if (shouldCompile()) {
+            compile();
+        }
+
+        if (compiled != null) {
+            runCompiled(frame, 0);
+            return;
+        }
+
+        int pc = 0;
+        while (pc != RETURN && pc < code.length) {
+            int next = code[pc].execute(frame, pc);
+
+            // A loop that runs long enough continues in the compiled code, from the start of its next iteration
+            if (next != RETURN && next <= pc) {
+                backEdges++;
+
+                if (shouldCompile()) {
+                    compile();
+
+                    if (compiled != null) {
+                        runCompiled(frame, next);
+                        return;
+                    }
+                }
+            }
+
+            pc = next;
+        }
+    }
+
+    boolean isCompiled() {
+        return compiled != null;
+    }
+
+    private boolean shouldCompile() {
+        return compiled == null && !compileFailed
+                && (long) invocations + backEdges >= interpreter.getCompileThreshold();
+    }
+
+    private void compile() {
+        try {
+            compiled = MethodCompiler.compile(getCode(), intSlots, refSlots);
+        } catch (RuntimeException | LinkageError e) {
+            // The method keeps being interpreted
+            compileFailed = true;
+        }
+    }
+
+    private void runCompiled(Frame frame, int pc) {
+        try {
+            compiled.invokeExact(frame, pc);
+        } catch (Throwable e) {
+            throw OllirInterpreter.rethrow(e);
+        }
+    }
+
+    private Insn[] getCode() {
+        if (code == null) {
+            code = link();
+        }
+
+        return code;
+    }
+
+    // Frames
+
+    static class Frame {
+        final int[] ints;
+        final Object[] refs;
+
+        int intResult;
+        Object refResult;
+
+        Frame(int numSlots) {
+            this.ints = new int[numSlots];
+            this.refs = new Object[numSlots];
+        }
+    }
+
+    // Linked code
+
+    abstract static class Insn {
+        /**
+         * @return the index of the next instruction, or RETURN
+         */
+        abstract int execute(Frame frame, int pc);
+
+        /**
+         * Generates the bytecode of the instruction, which by default runs it as in the interpreter.
+         */
+        void emit(MethodCompiler compiler, int pc) {
+            compiler.callInterpreter(this, pc);
+        }
+    }
+
+    abstract static class Expr {
+        abstract int evalInt(Frame frame);
+
+        abstract Object evalRef(Frame frame);
+
+        /**
+         * Generates bytecode that pushes the value of {@link #evalInt(Frame)}, by default evaluated by the interpreter.
+         */
+        void emitInt(MethodCompiler compiler) {
+            compiler.callInterpreter(this, true);
+        }
+
+        /**
+         * Generates bytecode that pushes the value of {@link #evalRef(Frame)}, by default evaluated by the interpreter.
+         */
+        void emitRef(MethodCompiler compiler) {
+            compiler.callInterpreter(this, false);
+        }
+
+        /**
+         * Generates bytecode that jumps to the label if the value of the expression is true.
+         */
+        void emitBranch(MethodCompiler compiler, String label) {
+            emitInt(compiler);
+            compiler.emit("ifne " + label);
+        }
+    }
+
+    private abstract static class IntExpr extends Expr {
+        @Override
+        Object evalRef(Frame frame) {
+            return evalInt(frame);
+        }
+    }
+
+    private abstract static class RefExpr extends Expr {
+        @Override
+        int evalInt(Frame frame) {
+            return OllirInterpreter.toInt(evalRef(frame));
+        }
+    }
+
+    private Insn[] link() {
+        var instructions = method.getInstructions();
+
+        var indexes = new IdentityHashMap<Instruction, Integer>();
+        for (int i = 0; i < instructions.size(); i++) {
+            indexes.put(instructions.get(i), i);
+        }
+
+        // A label at the end of the method points past the last instruction
+        labels = new HashMap<>();
+        for (var label : method.getLabels().entrySet()) {
+            labels.put(label.getKey(), indexes.getOrDefault(label.getValue(), instructions.size()));
+        }
+
+        var linked = new Insn[instructions.size()];
+        for (int i = 0; i < linked.length; i++) {
+            linked[i] = linkInstruction(instructions.get(i));
+        }
+
+        return linked;
+    }
+
+    private Insn linkInstruction(Instruction instruction) {
+        if (instruction instanceof AssignInstruction assign) {
+            return linkAssign(assign);
+        }
+
+        if (instruction instanceof CondBranchInstruction branch) {
+            var condition = linkExpr(branch.getCondition());
+            int target = getLabel(branch.getLabel());
+
+            return new Insn() {
+                @Override
+                int execute(Frame frame, int pc) {
+                    return condition.evalInt(frame) != 0 ? target : pc + 1;
+                }
+
+                @Override
+                void emit(MethodCompiler compiler, int pc) {
+                    condition.emitBranch(compiler, compiler.getLabel(target));
+                }
+            };
+        }
+
+        if (instruction instanceof GotoInstruction gotoInst) {
+            int target = getLabel(gotoInst.getLabel());
+
+            return new Insn() {
+                @Override
+                int execute(Frame frame, int pc) {
+                    return target;
+                }
+
+                @Override
+                void emit(MethodCompiler compiler, int pc) {
+                    compiler.emit("goto " + compiler.getLabel(target));
+                }
+            };
+        }
+
+        if (instruction instanceof ReturnInstruction returnInst) {
+            return linkReturn(returnInst);
+        }
+
+        if (instruction instanceof PutFieldInstruction putField) {
+            return linkPutField(putField);
+        }
+
+        // Instructions whose value is not used, such as calls to void methods
+        var expr = linkExpr(instruction);
+
+        return new Insn() {
+            @Override
+            int execute(Frame frame, int pc) {
+                expr.evalRef(frame);
+                return pc + 1;
+            }
+
+            @Override
+            void emit(MethodCompiler compiler, int pc) {
+                expr.emitRef(compiler);
+                compiler.emit("pop");
+            }
+        };
+    }
+
+    private Insn linkAssign(AssignInstruction assign) {
+        var rhs = linkExpr(assign.getRhs());
+
+        if (assign.getDest() instanceof ArrayOperand arrayDest) {
+            int arraySlot = getSlot(arrayDest.getName());
+            var index = linkElement(arrayDest.getIndexOperands().get(0));
+
+            if (isInt(arrayDest.getType())) {
+                return new Insn() {
+                    @Override
+                    int execute(Frame frame, int pc) {
+                        ((int[]) frame.refs[arraySlot])[index.evalInt(frame)] = rhs.evalInt(frame);
+                        return pc + 1;
+                    }
+
+                    @Override
+                    void emit(MethodCompiler compiler, int pc) {
+                        compiler.loadRef(arraySlot);
+                        compiler.emit("checkcast [I");
+                        index.emitInt(compiler);
+                        rhs.emitInt(compiler);
+                        compiler.emit("iastore");
+                    }
+                };
+            }
+
+            return new Insn() {
+                @Override
+                int execute(Frame frame, int pc) {
+                    ((Object[]) frame.refs[arraySlot])[index.evalInt(frame)] = rhs.evalRef(frame);
+                    return pc + 1;
+                }
+
+                @Override
+                void emit(MethodCompiler compiler, int pc) {
+                    compiler.loadRef(arraySlot);
+                    compiler.emit("checkcast [Ljava/lang/Object;");
+                    index.emitInt(compiler);
+                    rhs.emitRef(compiler);
+                    compiler.emit("aastore");
+                }
+            };
+        }
+
+        var dest = (Operand) assign.getDest();
+        int slot = getSlot(dest.getName());
+
+        if (isInt(dest.getType())) {
+            return new Insn() {
+                @Override
+                int execute(Frame frame, int pc) {
+                    frame.ints[slot] = rhs.evalInt(frame);
+                    return pc + 1;
+                }
+
+                @Override
+                void emit(MethodCompiler compiler, int pc) {
+                    rhs.emitInt(compiler);
+                    compiler.storeInt(slot);
+                }
+            };
+        }
+
+        return new Insn() {
+            @Override
+            int execute(Frame frame, int pc) {
+                frame.refs[slot] = rhs.evalRef(frame);
+                return pc + 1;
+            }
+
+            @Override
+            void emit(MethodCompiler compiler, int pc) {
+                rhs.emitRef(compiler);
+                compiler.storeRef(slot);
+            }
+        };
+    }
+
+    private Insn linkReturn(ReturnInstruction returnInst) {
+        if (!returnInst.hasReturnValue()) {
+            return new Insn() {
+                @Override
+                int execute(Frame frame, int pc) {
+                    return RETURN;
+                }
+
+                @Override
+                void emit(MethodCompiler compiler, int pc) {
+                    compiler.emit("return");
+                }
+            };
+        }
+
+        var value = linkElement(returnInst.getOperand());
+
+        if (isInt(method.getReturnType())) {
+            return new Insn() {
+                @Override
+                int execute(Frame frame, int pc) {
+                    frame.intResult = value.evalInt(frame);
+                    return RETURN;
+                }
+
+                @Override
+                void emit(MethodCompiler compiler, int pc) {
+                    compiler.loadFrame();
+                    value.emitInt(compiler);
+                    compiler.emit("putfield " + MethodCompiler.FRAME + "/intResult I");
+                    compiler.emit("return");
+                }
+            };
+        }
+
+        return new Insn() {
+            @Override
+            int execute(Frame frame, int pc) {
+                frame.refResult = value.evalRef(frame);
+                return RETURN;
+            }
+
+            @Override
+            void emit(MethodCompiler compiler, int pc) {
+                compiler.loadFrame();
+                value.emitRef(compiler);
+                compiler.emit("putfield " + MethodCompiler.FRAME + "/refResult Ljava/lang/Object;");
+                compiler.emit("return");
+            }
+        };
+    }
+
+    private Insn linkPutField(PutFieldInstruction putField) {
+        var object = linkElement(putField.getObject());
+        int field = interpreter.getFieldIndex(putField.getField().getName());
+        var value = linkElement(putField.getValue());
+
+        if (isInt(putField.getField().getType())) {
+            return new Insn() {
+                @Override
+                int execute(Frame frame, int pc) {
+                    ((InterpretedObject) object.evalRef(frame)).ints[field] = value.evalInt(frame);
+                    return pc + 1;
+                }
+
+                @Override
+                void emit(MethodCompiler compiler, int pc) {
+                    object.emitRef(compiler);
+                    compiler.emit("checkcast " + MethodCompiler.INTERPRETED_OBJECT);
+                    compiler.emit("getfield " + MethodCompiler.INTERPRETED_OBJECT + "/ints [I");
+                    compiler.pushInt(field);
+                    value.emitInt(compiler);
+                    compiler.emit("iastore");
+                }
+            };
+        }
+
+        return new Insn() {
+            @Override
+            int execute(Frame frame, int pc) {
+                ((InterpretedObject) object.evalRef(frame)).refs[field] = value.evalRef(frame);
+                return pc + 1;
+            }
+
+            @Override
+            void emit(MethodCompiler compiler, int pc) {
+                object.emitRef(compiler);
+                compiler.emit("checkcast " + MethodCompiler.INTERPRETED_OBJECT);
+                compiler.emit("getfield " + MethodCompiler.INTERPRETED_OBJECT + "/refs [Ljava/lang/Object;");
+                compiler.pushInt(field);
+                value.emitRef(compiler);
+                compiler.emit("aastore");
+            }
+        };
+    }
+
+    // Expressions
+
+    private Expr linkExpr(Instruction instruction) {
+        if (instruction instanceof SingleOpInstruction singleOp) {
+            return linkElement(singleOp.getSingleOperand());
+        }
+
+        if (instruction instanceof BinaryOpInstruction binaryOp) {
+            var left = linkElement(binaryOp.getLeftOperand());
+            var right = linkElement(binaryOp.getRightOperand());
+            var operation = binaryOp.getOperation().getOpType();
+            var operator = getOperator(operation);
+
+            return new IntExpr() {
+                @Override
+                int evalInt(Frame frame) {
+                    return operator.applyAsInt(left.evalInt(frame), right.evalInt(frame));
+                }
+
+                @Override
+                void emitInt(MethodCompiler compiler) {
+                    left.emitInt(compiler);
+                    right.emitInt(compiler);
+                    compiler.emitOperation(operation);
+                }
+
+                @Override
+                void emitBranch(MethodCompiler compiler, String label) {
+                    if (!MethodCompiler.isComparison(operation)) {
+                        super.emitBranch(compiler, label);
+                        return;
+                    }
+
+                    left.emitInt(compiler);
+                    right.emitInt(compiler);
+                    compiler.emitComparisonBranch(operation, label);
+                }
+            };
+        }
+
+        if (instruction instanceof UnaryOpInstruction unaryOp) {
+            return linkUnaryOp(unaryOp);
+        }
+
+        if (instruction instanceof CallInstruction call) {
+            return linkCall(call);
+        }
+
+        if (instruction instanceof GetFieldInstruction getField) {
+            return linkGetField(getField);
+        }
+
+        throw new NotImplementedException(instruction.getInstType());
+    }
+
+    private static IntBinaryOperator getOperator(OperationType operation) {
+        return switch (operation) {
+            case ADD -> (a, b) -> a + b;
+            case SUB -> (a, b) -> a - b;
+            case MUL -> (a, b) -> a * b;
+            case DIV -> (a, b) -> a / b;
+            case SHL -> (a, b) -> a << b;
+            case SHR -> (a, b) -> a >> b;
+            case SHRR -> (a, b) -> a >>> b;
+            case AND, ANDB -> (a, b) -> a & b;
+            case OR, ORB -> (a, b) -> a | b;
+            case XOR -> (a, b) -> a ^ b;
+            case LTH -> (a, b) -> a < b ? 1 : 0;
+            case LTE -> (a, b) -> a <= b ? 1 : 0;
+            case GTH -> (a, b) -> a > b ? 1 : 0;
+            case GTE -> (a, b) -> a >= b ? 1 : 0;
+            case EQ -> (a, b) -> a == b ? 1 : 0;
+            case NEQ -> (a, b) -> a != b ? 1 : 0;
+            default -> throw new NotImplementedException(operation);
+        };
+    }
+
+    private Expr linkUnaryOp(UnaryOpInstruction unaryOp) {
+        var operand = linkElement(unaryOp.getOperand());
+
+        return switch (unaryOp.getOperation().getOpType()) {
+            case NOT, NOTB -> new IntExpr() {
+                @Override
+                int evalInt(Frame frame) {
+                    return operand.evalInt(frame) == 0 ? 1 : 0;
+                }
+
+                @Override
+                void emitInt(MethodCompiler compiler) {
+                    var isFalse = compiler.newLabel();
+                    var end = compiler.newLabel();
+
+                    operand.emitInt(compiler);
+                    compiler.emit("ifeq " + isFalse);
+                    compiler.emit("iconst_0");
+                    compiler.emit("goto " + end);
+                    compiler.emitLabel(isFalse);
+                    compiler.emit("iconst_1");
+                    compiler.emitLabel(end);
+                }
+            };
+            case SUB -> new IntExpr() {
+                @Override
+                int evalInt(Frame frame) {
+                    return -operand.evalInt(frame);
+                }
+
+                @Override
+                void emitInt(MethodCompiler compiler) {
+                    operand.emitInt(compiler);
+                    compiler.emit("ineg");
+                }
+            };
+            default -> throw new NotImplementedException(unaryOp.getOperation().getOpType());
+        };
+    }
+
+    private Expr linkGetField(GetFieldInstruction getField) {
+        var object = linkElement(getField.getObject());
+        int field = interpreter.getFieldIndex(getField.getField().getName());
+
+        if (isInt(getField.getField().getType())) {
+            return new IntExpr() {
+                @Override
+                int evalInt(Frame frame) {
+                    return ((InterpretedObject) object.evalRef(frame)).ints[field];
+                }
+
+                @Override
+                void emitInt(MethodCompiler compiler) {
+                    object.emitRef(compiler);
+                    compiler.emit("checkcast " + MethodCompiler.INTERPRETED_OBJECT);
+                    compiler.emit("getfield " + MethodCompiler.INTERPRETED_OBJECT + "/ints [I");
+                    compiler.pushInt(field);
+                    compiler.emit("iaload");
+                }
+            };
+        }
+
+        return new RefExpr() {
+            @Override
+            Object evalRef(Frame frame) {
+                return ((InterpretedObject) object.evalRef(frame)).refs[field];
+            }
+
+            @Override
+            void emitRef(MethodCompiler compiler) {
+                object.emitRef(compiler);
+                compiler.emit("checkcast " + MethodCompiler.INTERPRETED_OBJECT);
+                compiler.emit("getfield " + MethodCompiler.INTERPRETED_OBJECT + "/refs [Ljava/lang/Object;");
+                compiler.pushInt(field);
+                compiler.emit("aaload");
+            }
+        };
+    }
+
+    private Expr linkElement(Element element) {
+        if (element instanceof LiteralElement literal) {
+            return linkLiteral(literal);
+        }
+
+        if (element instanceof ArrayOperand arrayOperand) {
+            int arraySlot = getSlot(arrayOperand.getName());
+            var index = linkElement(arrayOperand.getIndexOperands().get(0));
+
+            if (isInt(arrayOperand.getType())) {
+                return new IntExpr() {
+                    @Override
+                    int evalInt(Frame frame) {
+                        return ((int[]) frame.refs[arraySlot])[index.evalInt(frame)];
+                    }
+
+                    @Override
+                    void emitInt(MethodCompiler compiler) {
+                        compiler.loadRef(arraySlot);
+                        compiler.emit("checkcast [I");
+                        index.emitInt(compiler);
+                        compiler.emit("iaload");
+                    }
+                };
+            }
+
+            return new RefExpr() {
+                @Override
+                Object evalRef(Frame frame) {
+                    return ((Object[]) frame.refs[arraySlot])[index.evalInt(frame)];
+                }
+
+                @Override
+                void emitRef(MethodCompiler compiler) {
+                    compiler.loadRef(arraySlot);
+                    compiler.emit("checkcast [Ljava/lang/Object;");
+                    index.emitInt(compiler);
+                    compiler.emit("aaload");
+                }
+            };
+        }
+
+        var operand = (Operand) element;
+
+        // 'this' is always in slot 0, and is typed with the class when used as a value, e.g., this.Simple
+        boolean isThis = operand.getType().getTypeOfElement() == ElementType.THIS || operand.getName().equals("this");
+        int slot = isThis ? 0 : getSlot(operand.getName());
+
+        if (isInt(operand.getType())) {
+            return new IntExpr() {
+                @Override
+                int evalInt(Frame frame) {
+                    return frame.ints[slot];
+                }
+
+                @Override
+                void emitInt(MethodCompiler compiler) {
+                    compiler.loadInt(slot);
+                }
+            };
+        }
+
+        return new RefExpr() {
+            @Override
+            Object evalRef(Frame frame) {
+                return frame.refs[slot];
+            }
+
+            @Override
+            void emitRef(MethodCompiler compiler) {
+                compiler.loadRef(slot);
+            }
+        };
+    }
+
+    private static Expr linkLiteral(LiteralElement literal) {
+        if (isInt(literal.getType())) {
+            int value = Integer.parseInt(literal.getLiteral());
+
+            return new IntExpr() {
+                @Override
+                int evalInt(Frame frame) {
+                    return value;
+                }
+
+                @Override
+                void emitInt(MethodCompiler compiler) {
+                    compiler.pushInt(value);
+                }
+            };
+        }
+
+        var value = literal.getLiteral().replace("\"", "");
+
+        return new RefExpr() {
+            @Override
+            Object evalRef(Frame frame) {
+                return value;
+            }
+        };
+    }
+
+    // Calls
+
+    private Expr linkCall(CallInstruction call) {
+        return switch (call.getInvocationType()) {
+            case NEW -> linkNew(call);
+            case invokespecial -> linkConstructorCall(call);
+            case invokestatic -> linkStaticCall(call);
+            case invokevirtual, invokeinterface -> linkVirtualCall(call);
+            case arraylength -> linkArrayLength(call);
+            case ldc -> linkElement(call.getCaller());
+        };
+    }
+
+    private Expr linkNew(CallInstruction call) {
+        var caller = (Operand) call.getCaller();
+
+        if (caller.getName().equals("array")) {
+            var size = linkElement(call.getArguments().get(0));
+            var elementType = ((ArrayType) call.getReturnType()).getElementType();
+
+            if (isInt(elementType)) {
+                return new RefExpr() {
+                    @Override
+                    Object evalRef(Frame frame) {
+                        return new int[size.evalInt(frame)];
+                    }
+
+                    @Override
+                    void emitRef(MethodCompiler compiler) {
+                        size.emitInt(compiler);
+                        compiler.emit("newarray int");
+                    }
+                };
+            }
+
+            return new RefExpr() {
+                @Override
+                Object evalRef(Frame frame) {
+                    return new Object[size.evalInt(frame)];
+                }
+
+                @Override
+                void emitRef(MethodCompiler compiler) {
+                    size.emitInt(compiler);
+                    compiler.emit("anewarray java/lang/Object");
+                }
+            };
+        }
+
+        if (caller.getName().equals(interpreter.getClassName())) {
+            int numFields = interpreter.getNumFields();
+
+            return new RefExpr() {
+                @Override
+                Object evalRef(Frame frame) {
+                    return new InterpretedObject(numFields);
+                }
+
+                @Override
+                void emitRef(MethodCompiler compiler) {
+                    compiler.emit("new " + MethodCompiler.INTERPRETED_OBJECT);
+                    compiler.emit("dup");
+                    compiler.pushInt(numFields);
+                    compiler.emit("invokespecial " + MethodCompiler.INTERPRETED_OBJECT + "/<init>(I)V");
+                }
+            };
+        }
+
+        // Imported classes are created and initialized here, the call to <init> that follows does nothing
+        var javaClass = interpreter.getJavaClass(caller.getName());
+
+        return new RefExpr() {
+            @Override
+            Object evalRef(Frame frame) {
+                return OllirInterpreter.newInstance(javaClass);
+            }
+        };
+    }
+
+    private Expr linkConstructorCall(CallInstruction call) {
+        // The class being interpreted only has the default constructor, and imported classes were already initialized
+        return new RefExpr() {
+            @Override
+            Object evalRef(Frame frame) {
+                return null;
+            }
+
+            @Override
+            void emitRef(MethodCompiler compiler) {
+                compiler.emit("aconst_null");
+            }
+        };
+    }
+
+    private Expr linkArrayLength(CallInstruction call) {
+        var array = linkElement(call.getCaller());
+
+        return new IntExpr() {
+            @Override
+            int evalInt(Frame frame) {
+                var value = array.evalRef(frame);
+
+                if (value instanceof int[] ints) {
+                    return ints.length;
+                }
+
+                return ((Object[]) value).length;
+            }
+
+            @Override
+            void emitInt(MethodCompiler compiler) {
+                var isRefArray = compiler.newLabel();
+                var end = compiler.newLabel();
+
+                array.emitRef(compiler);
+                compiler.emit("dup");
+                compiler.emit("instanceof [I");
+                compiler.emit("ifeq " + isRefArray);
+                compiler.emit("checkcast [I");
+                compiler.emit("arraylength");
+                compiler.emit("goto " + end);
+                compiler.emitLabel(isRefArray);
+                compiler.emit("checkcast [Ljava/lang/Object;");
+                compiler.emit("arraylength");
+                compiler.emitLabel(end);
+            }
+        };
+    }
+
+    private Expr linkStaticCall(CallInstruction call) {
+        var className = ((Operand) call.getCaller()).getName();
+        var methodName = getMethodName(call);
+        var args = linkArguments(call.getArguments());
+
+        if (className.equals(interpreter.getClassName())) {
+            return new InterpretedCall(null, methodName, args);
+        }
+
+        return new JavaCall(interpreter.getJavaClass(className), null, methodName, args, call.getArguments());
+    }
+
+    private Expr linkVirtualCall(CallInstruction call) {
+        var receiver = linkElement(call.getCaller());
+        var methodName = getMethodName(call);
+        var args = linkArguments(call.getArguments());
+
+        var type = call.getCaller().getType();
+        boolean isInterpreted = type.getTypeOfElement() == ElementType.THIS
+                || (type instanceof ClassType classType && classType.getName().equals(interpreter.getClassName()));
+
+        if (isInterpreted) {
+            return new InterpretedCall(receiver, methodName, args);
+        }
+
+        return new JavaCall(null, receiver, methodName, args, call.getArguments());
+    }
+
+    private Expr[] linkArguments(List<Element> arguments) {
+        var args = new Expr[arguments.size()];
+
+        for (int i = 0; i < args.length; i++) {
+            args[i] = linkElement(arguments.get(i));
+        }
+
+        return args;
+    }
+
+    private static String getMethodName(CallInstruction call) {
+        return ((LiteralElement) call.getMethodName()).getLiteral().replace("\"", "");
+    }
+
+    /**
+     * Call to a method of the class being interpreted. The method is looked up on the first call.
+     */
+    private class InterpretedCall extends Expr {
+        private final Expr receiver;
+        private final String methodName;
+        private final Expr[] args;
+
+        private InterpretedMethod target;
+
+        private InterpretedCall(Expr receiver, String methodName, Expr[] args) {
+            this.receiver = receiver;
+            this.methodName = methodName;
+            this.args = args;
+            this.target = null;
+        }
+
+        private Frame invoke(Frame caller) {
+            if (target == null) {
+                target = interpreter.getMethod(methodName);
+            }
+
+            var frame = target.newFrame();
+            if (receiver != null) {
+                frame.refs[0] = receiver.evalRef(caller);
+            }
+            target.setArguments(frame, args, caller);
+
+            target.execute(frame);
+
+            return frame;
+        }
+
+        @Override
+        int evalInt(Frame frame) {
+            return invoke(frame).intResult;
+        }
+
+        @Override
+        Object evalRef(Frame frame) {
+            return invoke(frame).refResult;
+        }
+    }
+
+    /**
+     * Call to a method of an imported class, through reflection. The method is looked up on the first call, and again
+     * only if the class of the receiver changes.
+     */
+    private static class JavaCall extends RefExpr {
+        private final Class<?> staticClass;
+        private final Expr receiver;
+        private final String methodName;
+        private final Expr[] args;
+        private final List<Element> argElements;
+
+        private Class<?> resolvedClass;
+        private java.lang.reflect.Method resolved;
+
+        private JavaCall(Class<?> staticClass, Expr receiver, String methodName, Expr[] args, List<Element> argElements) {
+            this.staticClass = staticClass;
+            this.receiver = receiver;
+            this.methodName = methodName;
+            this.args = args;
+            this.argElements = argElements;
+        }
+
+        @Override
+        Object evalRef(Frame frame) {
+            var object = receiver == null ? null : receiver.evalRef(frame);
+            var javaClass = object == null ? staticClass : object.getClass();
+
+            if (javaClass == null) {
+                throw new NullPointerException("Cannot invoke '" + methodName + "' because the receiver is null");
+            }
+
+            if (javaClass != resolvedClass) {
+                resolved = OllirInterpreter.findMethod(javaClass, methodName, argElements);
+                resolvedClass = javaClass;
+            }
+
+            var params = resolved.getParameterTypes();
+            var values = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                values[i] = params[i] == boolean.class
+                        ? args[i].evalInt(frame) != 0
+                        : args[i].evalRef(frame);
+            }
+
+            try {
+                return resolved.invoke(object, values);
+            } catch (InvocationTargetException e) {
+                throw OllirInterpreter.rethrow(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Could not call method '" + methodName + "' of " + javaClass, e);
+            }
+        }
+    }
+
+    // Utilities
+
+    private int getSlot(String variable) {
+        var descriptor = method.getVarTable().get(variable);
+
+        if (descriptor == null) {
+            throw new RuntimeException(
+                    "Variable '" + variable + "' not found in method '" + method.getMethodName() + "'");
+        }
+
+        return descriptor.getVirtualReg();
+    }
+
+    private int getLabel(String label) {
+        var index = labels.get(label);
+
+        if (index == null) {
+            throw new RuntimeException("Label '" + label + "' not found in method '" + method.getMethodName() + "'");
+        }
+
+        return index;
+    }
+
+    /**
+     * @return true for values kept in the int slots, which are ints and booleans
+     */
+    static boolean isInt(Type type) {
+        var elementType = type.getTypeOfElement();
+        return elementType == ElementType.INT32 || elementType == ElementType.BOOLEAN;
+    }
+}
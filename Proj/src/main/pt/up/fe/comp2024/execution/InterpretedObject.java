@@ -0,0 +1,16 @@
+package pt.up.fe.comp2024.execution;
+
+/**
+ * Instance of the class being interpreted. Fields are stored by the index that {@link OllirInterpreter} gives them,
+ * ints and booleans in one array and references in another.
+ */
+class InterpretedObject {
+
+    final int[] ints;
+    final Object[] refs;
+
+    InterpretedObject(int numFields) {
+        this.ints = new int[numFields];
+        this.refs = new Object[numFields];
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.execution;
+
+import jas.jasError;
+import jasmin.ClassFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+/**
+ * Assembles Jasmin code in memory, with the classes of jasmin.jar, without writing the .j and .class files that
+ * {@link pt.up.fe.comp.jmm.jasmin.JasminUtils#assemble} needs.
+ */
+public class JasminAssembler {
+
+    /**
+     * @param className  name used in error messages
+     * @param jasminCode the code of one class
+     * @return the assembled class
+     */
+    public static AssembledClass assemble(String className, String jasminCode) {
+        try {
+            var classFile = new ClassFile();
+            classFile.readJasmin(new StringReader(jasminCode), className + ".j", true);
+
+            if (classFile.errorCount() > 0) {
+                throw new RuntimeException("Found " + classFile.errorCount() + " errors while compiling Jasmin code.");
+            }
+
+            var bytecode = new ByteArrayOutputStream();
+            classFile.write(bytecode);
+
+            // Jasmin uses internal names, e.g. 'pkg/Name'
+            var name = classFile.getClassName().replace('/', '.');
+
+            return new AssembledClass(name, bytecode.toByteArray());
+        } catch (jasError e) {
+            throw new RuntimeException("JAS Error: " + e.getMessage() + "\nCode: " + jasminCode, e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Exception while assembling Jasmin code: " + e.getMessage() + "\nCode: " + jasminCode, e);
+        }
+    }
+
+    public static class AssembledClass {
+        private final String name;
+        private final byte[] bytecode;
+
+        public AssembledClass(String name, byte[] bytecode) {
+            this.name = name;
+            this.bytecode = bytecode;
+        }
+
+        /**
+         * @return the binary name of the class
+         */
+        public String getName() {
+            return name;
+        }
+
+        public byte[] getBytecode() {
+            return bytecode;
+        }
+    }
+}
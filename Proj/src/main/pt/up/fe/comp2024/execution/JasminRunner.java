@@ -0,0 +1,85 @@
+package pt.up.fe.comp2024.execution;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs Jasmin code inside the current JVM: the code is assembled in memory, defined in a fresh
+ * {@link InMemoryClassLoader} together with the library classes, and its main method is invoked in a new thread with
+ * its own stdin, stdout and stderr.
+ * <p>
+ * The result has the same form as {@link JasminResult#runWithFullOutput()}, where the return value is 0 if main
+ * returned normally, 1 if it threw, and -1 if it did not finish before the timeout or was not started.
+ */
+public class JasminRunner {
+
+    public static ProcessOutputAsString run(JasminResult jasminResult) {
+        return run(jasminResult, Collections.emptyList(), null);
+    }
+
+    public static ProcessOutputAsString run(JasminResult jasminResult, List<String> args, String input) {
+        return run(jasminResult.getClassName(), jasminResult.getJasminCode(), args, input);
+    }
+
+    /**
+     * Runs classes that use each other, e.g., a class and the classes it imports.
+     *
+     * @param jasminResults the classes, starting with the one with the main method
+     */
+    public static ProcessOutputAsString run(List<JasminResult> jasminResults) {
+        var classes = new HashMap<String, byte[]>();
+        for (var jasminResult : jasminResults) {
+            var assembled = JasminAssembler.assemble(jasminResult.getClassName(), jasminResult.getJasminCode());
+            classes.put(assembled.getName(), assembled.getBytecode());
+        }
+
+        var loader = new InMemoryClassLoader(classes, List.of(new File(getLibsClasspath())));
+
+        return runMain(loader, jasminResults.get(0).getClassName(), Collections.emptyList(), null);
+    }
+
+    /**
+     * @param className  name used in error messages
+     * @param jasminCode the code of the class with the main method
+     * @param args       arguments for the program
+     * @param input      what the program reads from stdin, can be null
+     */
+    public static ProcessOutputAsString run(String className, String jasminCode, List<String> args, String input) {
+        var assembled = JasminAssembler.assemble(className, jasminCode);
+
+        var classpath = List.of(new File(getLibsClasspath()));
+        var loader = new InMemoryClassLoader(Map.of(assembled.getName(), assembled.getBytecode()), classpath);
+
+        return runMain(loader, assembled.getName(), args, input);
+    }
+
+    /**
+     * @return the folder with the compiled classes of the libraries that programs can import (e.g., io)
+     */
+    public static String getLibsClasspath() {
+        return TestUtils.getLibsClasspath();
+    }
+
+    /**
+     * Invokes the main method of a class in a new thread, capturing its output.
+     */
+    public static ProcessOutputAsString runMain(ClassLoader loader, String mainClass, List<String> args, String input) {
+        return ProgramThread.run(mainClass, loader, input, () -> {
+            var main = Class.forName(mainClass, true, loader).getMethod("main", String[].class);
+
+            try {
+                main.invoke(null, (Object) args.toArray(String[]::new));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
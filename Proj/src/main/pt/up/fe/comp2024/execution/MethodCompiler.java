@@ -0,0 +1,303 @@
+package pt.up.fe.comp2024.execution;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.comp2024.execution.InterpretedMethod.Expr;
+import pt.up.fe.comp2024.execution.InterpretedMethod.Frame;
+import pt.up.fe.comp2024.execution.InterpretedMethod.Insn;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Compiles the linked code of an {@link InterpretedMethod} into bytecode, in a hidden class of this package.
+ * <p>
+ * The compiled method takes the frame of the interpreter and the index of the instruction to start from. It copies the
+ * slots of the frame to local variables, jumps to that instruction, and from then on works on the local variables. A
+ * method can then start being compiled in the middle of a loop, with the values the interpreter left in the frame.
+ * <p>
+ * Instructions and expressions with no bytecode of their own, such as calls, are called as in the interpreter: the
+ * local variables are first copied back to the frame, since the interpreter reads the values there.
+ */
+class MethodCompiler {
+
+    static final String FRAME = "pt/up/fe/comp2024/execution/InterpretedMethod$Frame";
+    static final String INTERPRETED_OBJECT = "pt/up/fe/comp2024/execution/InterpretedObject";
+
+    private static final String CLASS_NAME = "pt/up/fe/comp2024/execution/CompiledMethod";
+    private static final String INSN = "pt/up/fe/comp2024/execution/InterpretedMethod$Insn";
+    private static final String EXPR = "pt/up/fe/comp2024/execution/InterpretedMethod$Expr";
+
+    // Local variables 0 and 1 are the frame and the index of the first instruction
+    private static final int FIRST_SLOT_LOCAL = 2;
+
+    // Enough for any instruction of OLLIR, which only has operands as arguments
+    private static final int MAX_STACK = 16;
+
+    private final boolean[] intSlots;
+    private final boolean[] refSlots;
+
+    private final StringBuilder code;
+    private final List<Object> nodes;
+    private int labelNumber;
+
+    /**
+     * @param intSlots slots of the frame used by ints and booleans
+     * @param refSlots slots of the frame used by references
+     */
+    private MethodCompiler(boolean[] intSlots, boolean[] refSlots) {
+        this.intSlots = intSlots;
+        this.refSlots = refSlots;
+
+        this.code = new StringBuilder();
+        this.nodes = new ArrayList<>();
+        this.labelNumber = 0;
+    }
+
+    /**
+     * @return a handle of type (Frame, int)void that runs the code from the instruction with the given index until it
+     * returns
+     */
+    static MethodHandle compile(Insn[] insns, boolean[] intSlots, boolean[] refSlots) {
+        var compiler = new MethodCompiler(intSlots, refSlots);
+        var jasminCode = compiler.buildClass(insns);
+
+        var assembled = JasminAssembler.assemble(CLASS_NAME, jasminCode);
+
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClass(assembled.getBytecode(), true);
+
+            lookup.findStaticSetter(lookup.lookupClass(), "nodes", Object[].class)
+                    .invokeExact(compiler.nodes.toArray());
+
+            return lookup.findStatic(lookup.lookupClass(), "run", methodType(void.class, Frame.class, int.class));
+        } catch (Throwable e) {
+            throw new RuntimeException("Could not load compiled method:\n" + jasminCode, e);
+        }
+    }
+
+    private String buildClass(Insn[] insns) {
+        // The body is generated first, since it decides which nodes the class needs
+        for (int pc = 0; pc < insns.length; pc++) {
+            emitLabel(getLabel(pc));
+            insns[pc].emit(this, pc);
+        }
+        emitLabel(getLabel(insns.length));
+        code.append("return\n");
+
+        var classCode = new StringBuilder();
+        classCode.append(".class final ").append(CLASS_NAME).append("\n");
+        classCode.append(".super java/lang/Object\n");
+        classCode.append(".field static nodes [Ljava/lang/Object;\n\n");
+
+        classCode.append(".method static run(L").append(FRAME).append(";I)V\n");
+        classCode.append(".limit stack ").append(MAX_STACK).append("\n");
+        classCode.append(".limit locals ").append(FIRST_SLOT_LOCAL + 2 * intSlots.length).append("\n");
+
+        // Loads the slots of the frame and jumps to the first instruction
+        classCode.append(copySlots(true));
+        classCode.append("iload_1\n");
+        classCode.append("tableswitch 0\n");
+        for (int pc = 0; pc <= insns.length; pc++) {
+            classCode.append(getLabel(pc)).append("\n");
+        }
+        classCode.append("default : ").append(getLabel(insns.length)).append("\n");
+
+        classCode.append(code);
+        classCode.append(".end method\n");
+
+        return classCode.toString();
+    }
+
+    /**
+     * @param load true to copy the frame to the local variables, false to copy the local variables to the frame
+     */
+    private String copySlots(boolean load) {
+        var copy = new StringBuilder();
+
+        for (int slot = 0; slot < intSlots.length; slot++) {
+            if (intSlots[slot]) {
+                copy.append("aload_0\ngetfield ").append(FRAME).append("/ints [I\n");
+                copy.append(pushIntCode(slot));
+                copy.append(load ? "iaload\nistore " + getIntLocal(slot) + "\n" : "iload " + getIntLocal(slot) + "\niastore\n");
+            }
+
+            if (refSlots[slot]) {
+                copy.append("aload_0\ngetfield ").append(FRAME).append("/refs [Ljava/lang/Object;\n");
+                copy.append(pushIntCode(slot));
+                copy.append(load ? "aaload\nastore " + getRefLocal(slot) + "\n" : "aload " + getRefLocal(slot) + "\naastore\n");
+            }
+        }
+
+        return copy.toString();
+    }
+
+    // Code generation, used by the instructions and expressions
+
+    void emit(String instruction) {
+        code.append(instruction).append("\n");
+    }
+
+    void pushInt(int value) {
+        code.append(pushIntCode(value));
+    }
+
+    void loadFrame() {
+        emit("aload_0");
+    }
+
+    void loadInt(int slot) {
+        emit("iload " + getIntLocal(slot));
+    }
+
+    void storeInt(int slot) {
+        emit("istore " + getIntLocal(slot));
+    }
+
+    void loadRef(int slot) {
+        emit("aload " + getRefLocal(slot));
+    }
+
+    void storeRef(int slot) {
+        emit("astore " + getRefLocal(slot));
+    }
+
+    /**
+     * @return the label of the instruction with the given index
+     */
+    String getLabel(int pc) {
+        return "I" + pc;
+    }
+
+    String newLabel() {
+        return "T" + labelNumber++;
+    }
+
+    /**
+     * Runs an instruction as in the interpreter. The instruction must not jump, and may change the frame.
+     */
+    void callInterpreter(Insn insn, int pc) {
+        code.append(copySlots(false));
+        loadNode(insn, INSN);
+        loadFrame();
+        pushInt(pc);
+        emit("invokevirtual " + INSN + "/execute(L" + FRAME + ";I)I");
+        emit("pop");
+        code.append(copySlots(true));
+    }
+
+    /**
+     * Pushes the value of an expression, evaluated as in the interpreter.
+     */
+    void callInterpreter(Expr expr, boolean isInt) {
+        code.append(copySlots(false));
+        loadNode(expr, EXPR);
+        loadFrame();
+        emit(isInt
+                ? "invokevirtual " + EXPR + "/evalInt(L" + FRAME + ";)I"
+                : "invokevirtual " + EXPR + "/evalRef(L" + FRAME + ";)Ljava/lang/Object;");
+    }
+
+    /**
+     * Replaces the two ints on top of the stack by the result of the operation.
+     */
+    void emitOperation(OperationType operation) {
+        var comparison = getComparison(operation);
+
+        if (comparison == null) {
+            emit(getArithmetic(operation));
+            return;
+        }
+
+        var isTrue = newLabel();
+        var end = newLabel();
+
+        emit(comparison + " " + isTrue);
+        emit("iconst_0");
+        emit("goto " + end);
+        emitLabel(isTrue);
+        emit("iconst_1");
+        emitLabel(end);
+    }
+
+    /**
+     * Compares the two ints on top of the stack and jumps to the label if the result of the operation is true.
+     */
+    void emitComparisonBranch(OperationType operation, String label) {
+        emit(getComparison(operation) + " " + label);
+    }
+
+    void emitLabel(String label) {
+        code.append(label).append(":\n");
+    }
+
+    static boolean isComparison(OperationType operation) {
+        return getComparison(operation) != null;
+    }
+
+    private static String getComparison(OperationType operation) {
+        return switch (operation) {
+            case LTH -> "if_icmplt";
+            case LTE -> "if_icmple";
+            case GTH -> "if_icmpgt";
+            case GTE -> "if_icmpge";
+            case EQ -> "if_icmpeq";
+            case NEQ -> "if_icmpne";
+            default -> null;
+        };
+    }
+
+    private static String getArithmetic(OperationType operation) {
+        return switch (operation) {
+            case ADD -> "iadd";
+            case SUB -> "isub";
+            case MUL -> "imul";
+            case DIV -> "idiv";
+            case SHL -> "ishl";
+            case SHR -> "ishr";
+            case SHRR -> "iushr";
+            case AND, ANDB -> "iand";
+            case OR, ORB -> "ior";
+            case XOR -> "ixor";
+            default -> throw new NotImplementedException(operation);
+        };
+    }
+
+    private void loadNode(Object node, String type) {
+        emit("getstatic " + CLASS_NAME + "/nodes [Ljava/lang/Object;");
+        pushInt(nodes.size());
+        emit("aaload");
+        emit("checkcast " + type);
+
+        nodes.add(node);
+    }
+
+    private static String pushIntCode(int value) {
+        if (value >= -1 && value <= 5) {
+            return "iconst_" + (value == -1 ? "m1" : value) + "\n";
+        }
+
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return "bipush " + value + "\n";
+        }
+
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return "sipush " + value + "\n";
+        }
+
+        return "ldc " + value + "\n";
+    }
+
+    // A slot can be used by an int and a reference, which need different local variables
+    private static int getIntLocal(int slot) {
+        return FIRST_SLOT_LOCAL + 2 * slot;
+    }
+
+    private static int getRefLocal(int slot) {
+        return FIRST_SLOT_LOCAL + 2 * slot + 1;
+    }
+}
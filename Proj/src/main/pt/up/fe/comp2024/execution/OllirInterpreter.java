@@ -0,0 +1,255 @@
+package pt.up.fe.comp2024.execution;
+
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.Type;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs OLLIR code without generating bytecode.
+ * <p>
+ * Methods of the class are interpreted, and calls to imported classes (e.g., io) are made through reflection, with the
+ * same library classes used to run the generated Jasmin code. Since it does not depend on the backend, the output of
+ * the interpreter is what the Jasmin code generated from the same OLLIR should print, before and after optimizations.
+ * <p>
+ * Methods start being interpreted, and once the number of times a method was called plus the number of jumps back in
+ * its loops reaches the compile threshold, it is compiled into bytecode (see {@link MethodCompiler}). Short
+ * programs do not pay for compilation, and long-running ones run mostly compiled code. A loop that gets hot while the
+ * method is being interpreted continues in the compiled code at its next iteration.
+ * <p>
+ * The result has the same form as {@link JasminRunner#run(pt.up.fe.comp.jmm.jasmin.JasminResult)}.
+ */
+public class OllirInterpreter {
+
+    public static final int DEFAULT_COMPILE_THRESHOLD = 1_000;
+
+    private final ClassUnit classUnit;
+    private final ClassLoader libraries;
+    private final int compileThreshold;
+
+    private final Map<String, InterpretedMethod> methods;
+    private final Map<String, Integer> fieldIndexes;
+    private final Map<String, Class<?>> javaClasses;
+
+    public OllirInterpreter(ClassUnit classUnit, ClassLoader libraries) {
+        this(classUnit, libraries, DEFAULT_COMPILE_THRESHOLD);
+    }
+
+    /**
+     * @param classUnit        class to interpret
+     * @param libraries        class loader of the classes the class imports
+     * @param compileThreshold calls plus loop iterations after which a method is compiled, 0 compiles every method
+     *                         before its first call and Integer.MAX_VALUE never compiles
+     */
+    public OllirInterpreter(ClassUnit classUnit, ClassLoader libraries, int compileThreshold) {
+        this.classUnit = classUnit;
+        this.libraries = libraries;
+        this.compileThreshold = compileThreshold;
+
+        this.methods = new HashMap<>();
+        for (var method : classUnit.getMethods()) {
+            if (!method.isConstructMethod()) {
+                methods.put(method.getMethodName(), new InterpretedMethod(this, method));
+            }
+        }
+
+        this.fieldIndexes = new HashMap<>();
+        for (var field : classUnit.getFields()) {
+            fieldIndexes.put(field.getFieldName(), fieldIndexes.size());
+        }
+
+        this.javaClasses = new ConcurrentHashMap<>();
+    }
+
+    public static ProcessOutputAsString run(OllirResult ollirResult) {
+        return run(ollirResult, Collections.emptyList(), null);
+    }
+
+    /**
+     * @param args  arguments for the program
+     * @param input what the program reads from stdin, can be null
+     */
+    public static ProcessOutputAsString run(OllirResult ollirResult, List<String> args, String input) {
+        return run(ollirResult, args, input, DEFAULT_COMPILE_THRESHOLD);
+    }
+
+    public static ProcessOutputAsString run(OllirResult ollirResult, List<String> args, String input,
+                                            int compileThreshold) {
+        var libraries = new InMemoryClassLoader(Map.of(), List.of(new File(JasminRunner.getLibsClasspath())));
+        var interpreter = new OllirInterpreter(ollirResult.getOllirClass(), libraries, compileThreshold);
+
+        return ProgramThread.run(interpreter.getClassName(), libraries, input, () -> interpreter.runMain(args));
+    }
+
+    /**
+     * Runs the main method of the class in the current thread.
+     */
+    public void runMain(List<String> args) {
+        var main = getMethod("main");
+
+        var frame = main.newFrame();
+        main.setArguments(frame, new Object[]{args.toArray(String[]::new)});
+
+        main.execute(frame);
+    }
+
+    String getClassName() {
+        return classUnit.getClassName();
+    }
+
+    int getCompileThreshold() {
+        return compileThreshold;
+    }
+
+    /**
+     * @return true if the method with the given name was compiled
+     */
+    public boolean isCompiled(String methodName) {
+        return getMethod(methodName).isCompiled();
+    }
+
+    int getNumFields() {
+        return fieldIndexes.size();
+    }
+
+    int getFieldIndex(String field) {
+        var index = fieldIndexes.get(field);
+
+        if (index == null) {
+            throw new RuntimeException("Field '" + field + "' not found in class '" + getClassName() + "'");
+        }
+
+        return index;
+    }
+
+    InterpretedMethod getMethod(String name) {
+        var method = methods.get(name);
+
+        if (method == null) {
+            throw new RuntimeException("Method '" + name + "' not found in class '" + getClassName() + "'");
+        }
+
+        return method;
+    }
+
+    /**
+     * @param name simple name of an imported class, or its full name
+     */
+    Class<?> getJavaClass(String name) {
+        return javaClasses.computeIfAbsent(name, this::loadJavaClass);
+    }
+
+    private Class<?> loadJavaClass(String name) {
+        var fullName = classUnit.getImports().stream()
+                .filter(anImport -> anImport.equals(name) || anImport.endsWith("." + name))
+                .findFirst()
+                .orElse(name);
+
+        try {
+            return Class.forName(fullName, true, libraries);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Could not find imported class '" + fullName + "'", e);
+        }
+    }
+
+    // Reflection
+
+    static Object newInstance(Class<?> javaClass) {
+        try {
+            var constructor = javaClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (InvocationTargetException e) {
+            throw rethrow(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not create an instance of " + javaClass, e);
+        }
+    }
+
+    /**
+     * Finds the method of a class, or of its superclasses, with the given name that can take the given arguments.
+     * Methods of the libraries are not always public, so the method that is returned is made accessible.
+     */
+    static Method findMethod(Class<?> javaClass, String name, List<Element> args) {
+        for (var current = javaClass; current != null; current = current.getSuperclass()) {
+            for (var method : current.getDeclaredMethods()) {
+                if (method.getName().equals(name) && acceptsArguments(method, args)) {
+                    method.setAccessible(true);
+                    return method;
+                }
+            }
+        }
+
+        throw new RuntimeException("Method '" + name + "' with " + args.size() + " arguments not found in " + javaClass);
+    }
+
+    private static boolean acceptsArguments(Method method, List<Element> args) {
+        var params = method.getParameterTypes();
+
+        if (params.length != args.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < params.length; i++) {
+            if (!acceptsArgument(params[i], args.get(i).getType())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean acceptsArgument(Class<?> param, Type argType) {
+        return switch (argType.getTypeOfElement()) {
+            case INT32 -> param == int.class || param == Integer.class || param == Object.class;
+            case BOOLEAN -> param == boolean.class || param == Boolean.class || param == Object.class;
+            case ARRAYREF -> param.isArray() || param == Object.class;
+            case STRING -> param.isAssignableFrom(String.class);
+            default -> !param.isPrimitive();
+        };
+    }
+
+    /**
+     * @return the value that ints and booleans have in the interpreter, 0 for void and null
+     */
+    static int toInt(Object value) {
+        if (value instanceof Integer integer) {
+            return integer;
+        }
+
+        if (value instanceof Boolean bool) {
+            return bool ? 1 : 0;
+        }
+
+        if (value == null) {
+            return 0;
+        }
+
+        throw new ClassCastException(value.getClass().getName() + " is not an int or a boolean");
+    }
+
+    /**
+     * Throws an exception thrown by the interpreted program, which must reach the top of the program unchanged.
+     */
+    static RuntimeException rethrow(Throwable throwable) {
+        if (throwable instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+
+        if (throwable instanceof Error error) {
+            throw error;
+        }
+
+        throw new RuntimeException(throwable);
+    }
+}
@@ -0,0 +1,109 @@
+package pt.up.fe.comp2024.execution;
+
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a program in a new thread with its own stdin, stdout and stderr, and returns its output in the same form as a
+ * process: the return value is 0 if the program finished normally, 1 if it threw, and -1 if it did not finish before
+ * the timeout or was not started.
+ * <p>
+ * Programs that time out cannot be stopped: they are interrupted and their output is discarded, but compiled code
+ * does not check for interrupts, so a program stuck in a loop keeps running until the JVM exits. Such threads are
+ * kept at the lowest priority, and once {@link #MAX_ABANDONED} of them are still running no more programs are started,
+ * so that they cannot take over the JVM.
+ */
+class ProgramThread {
+
+    static final long TIMEOUT_MS = 5_000;
+
+    static final int MAX_ABANDONED = 4;
+
+    // Threads of programs that timed out, some of which may still be running
+    private static final List<Thread> ABANDONED = new ArrayList<>();
+
+    interface Program {
+        void run() throws Throwable;
+    }
+
+    /**
+     * @param name   name of the program, used in the name of the thread
+     * @param loader context class loader of the thread
+     * @param input  what the program reads from stdin, can be null
+     */
+    static ProcessOutputAsString run(String name, ClassLoader loader, String input, Program program) {
+        return run(name, loader, input, TIMEOUT_MS, program);
+    }
+
+    static ProcessOutputAsString run(String name, ClassLoader loader, String input, long timeoutMs, Program program) {
+        if (getNumAbandoned() >= MAX_ABANDONED) {
+            return new ProcessOutputAsString(-1, "", "Not started: " + MAX_ABANDONED
+                    + " programs that did not finish before the timeout are still running\n");
+        }
+
+        var capture = ThreadStreams.newCapture(input);
+        var returnValue = new AtomicInteger(0);
+
+        var thread = new Thread(() -> {
+            ThreadStreams.attach(capture);
+
+            try {
+                program.run();
+            } catch (Throwable e) {
+                returnValue.set(1);
+                printStackTrace(e);
+            } finally {
+                System.out.flush();
+                ThreadStreams.release();
+            }
+        }, "jmm-main-" + name);
+
+        // A program that does not finish must not keep the JVM alive
+        thread.setDaemon(true);
+        thread.setContextClassLoader(loader);
+
+        thread.start();
+
+        try {
+            thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            thread.interrupt();
+            thread.setPriority(Thread.MIN_PRIORITY);
+            capture.close();
+
+            synchronized (ABANDONED) {
+                ABANDONED.add(thread);
+            }
+
+            return new ProcessOutputAsString(-1, capture.getStdout(),
+                    capture.getStderr() + "Timeout: program did not finish after " + timeoutMs + "ms\n");
+        }
+
+        return new ProcessOutputAsString(returnValue.get(), capture.getStdout(), capture.getStderr());
+    }
+
+    /**
+     * @return the number of programs that timed out and are still running
+     */
+    static int getNumAbandoned() {
+        synchronized (ABANDONED) {
+            ABANDONED.removeIf(thread -> !thread.isAlive());
+            return ABANDONED.size();
+        }
+    }
+
+    private static void printStackTrace(Throwable throwable) {
+        var trace = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(trace));
+        System.err.print("Exception in thread \"main\" " + trace);
+    }
+}
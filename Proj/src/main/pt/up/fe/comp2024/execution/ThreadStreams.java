@@ -0,0 +1,161 @@
+package pt.up.fe.comp2024.execution;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Gives each thread that runs a program its own stdin, stdout and stderr, so that programs running at the same time in
+ * the same JVM do not mix their output.
+ * <p>
+ * System.in, System.out and System.err are replaced by streams that forward to the streams of the current thread, or
+ * to the streams they replaced for threads that are not running a program.
+ */
+class ThreadStreams {
+
+    private static final ThreadLocal<Capture> CAPTURE = new ThreadLocal<>();
+
+    // Streams currently installed, replaced again if someone else replaces the standard streams (e.g., SpecsLogs)
+    private static PrintStream routedOut = null;
+    private static PrintStream routedErr = null;
+    private static InputStream routedIn = null;
+
+    private static synchronized void install() {
+        if (System.out != routedOut) {
+            routedOut = new PrintStream(new RoutedOutputStream(System.out, false), true);
+            System.setOut(routedOut);
+        }
+
+        if (System.err != routedErr) {
+            routedErr = new PrintStream(new RoutedOutputStream(System.err, true), true);
+            System.setErr(routedErr);
+        }
+
+        if (System.in != routedIn) {
+            routedIn = new RoutedInputStream(System.in);
+            System.setIn(routedIn);
+        }
+    }
+
+    /**
+     * @param input what the program reads from stdin, can be null
+     */
+    static Capture newCapture(String input) {
+        install();
+
+        return new Capture(input == null ? "" : input);
+    }
+
+    /**
+     * Makes the current thread use the streams of the given capture.
+     */
+    static void attach(Capture capture) {
+        CAPTURE.set(capture);
+    }
+
+    static void release() {
+        CAPTURE.remove();
+    }
+
+    static class Capture {
+        private final ByteArrayOutputStream stdout;
+        private final ByteArrayOutputStream stderr;
+        private final InputStream stdin;
+
+        // Set when nobody waits for the output anymore, e.g. after a timeout
+        private volatile boolean closed;
+
+        private Capture(String input) {
+            this.stdout = new ByteArrayOutputStream();
+            this.stderr = new ByteArrayOutputStream();
+            this.stdin = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+            this.closed = false;
+        }
+
+        synchronized String getStdout() {
+            return stdout.toString(StandardCharsets.UTF_8);
+        }
+
+        synchronized String getStderr() {
+            return stderr.toString(StandardCharsets.UTF_8);
+        }
+
+        void close() {
+            closed = true;
+        }
+
+        private synchronized void write(boolean error, byte[] bytes, int offset, int length) {
+            if (closed) {
+                return;
+            }
+
+            (error ? stderr : stdout).write(bytes, offset, length);
+        }
+    }
+
+    private static class RoutedOutputStream extends OutputStream {
+        private final OutputStream original;
+        private final boolean error;
+
+        private RoutedOutputStream(OutputStream original, boolean error) {
+            this.original = original;
+            this.error = error;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            var capture = CAPTURE.get();
+
+            if (capture == null) {
+                original.write(bytes, offset, length);
+                return;
+            }
+
+            capture.write(error, bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (CAPTURE.get() == null) {
+                original.flush();
+            }
+        }
+    }
+
+    private static class RoutedInputStream extends InputStream {
+        private final InputStream original;
+
+        private RoutedInputStream(InputStream original) {
+            this.original = original;
+        }
+
+        private InputStream current() {
+            var capture = CAPTURE.get();
+            return capture == null ? original : capture.stdin;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return current().read();
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            return current().read(bytes, offset, length);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return current().available();
+        }
+    }
+}
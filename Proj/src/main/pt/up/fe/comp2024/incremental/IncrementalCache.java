@@ -0,0 +1,159 @@
+package pt.up.fe.comp2024.incremental;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the results of a previous compilation so that only the methods whose {@link MethodFingerprint} changed are
+ * analysed and lowered to OLLIR again.
+ * <p>
+ * The same instance should be given to {@link pt.up.fe.comp2024.analysis.JmmAnalysisImpl} and
+ * {@link pt.up.fe.comp2024.optimization.JmmOptimizationImpl}, and kept between compilations of the same class.
+ * Reports are kept separately for each analysis pass, so that they can be joined with those of the other parts in
+ * the order of the passes. Report lines of a method are stored relative to the first line of the method, so that
+ * edits that only shift a method up or down still hit the cache. Entries of methods that were removed or renamed are
+ * dropped when the class is analysed again, see {@link #retainMethods(SymbolTable)}.
+ */
+public class IncrementalCache {
+
+    private String classFingerprint;
+    private List<List<Report>> classReports;
+
+    private final Map<String, MethodEntry> methods;
+
+    public IncrementalCache() {
+        this.classFingerprint = null;
+        this.classReports = null;
+        this.methods = new HashMap<>();
+    }
+
+    /**
+     * @return the reports of each analysis pass that ran on the class-level declarations
+     */
+    public Optional<List<List<Report>>> getClassReports(String fingerprint) {
+        if (!fingerprint.equals(classFingerprint)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(classReports);
+    }
+
+    public void putClassReports(String fingerprint, List<List<Report>> reports) {
+        this.classFingerprint = fingerprint;
+        this.classReports = reports.stream().map(List::copyOf).toList();
+    }
+
+    /**
+     * @param method      the name of the method
+     * @param fingerprint the current fingerprint of the method
+     * @param methodLine  the line where the method currently starts
+     * @return the cached reports of each analysis pass that ran on the method, moved to the current position of the
+     * method
+     */
+    public Optional<List<List<Report>>> getMethodReports(String method, String fingerprint, int methodLine) {
+        var entry = getEntry(method, fingerprint);
+        if (entry == null || entry.reports == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(moveReports(entry.reports, methodLine));
+    }
+
+    public void putMethodReports(String method, String fingerprint, int methodLine, List<List<Report>> reports) {
+        getOrCreateEntry(method, fingerprint).reports = moveReports(reports, -methodLine);
+    }
+
+    public Optional<String> getOllirCode(String method, String fingerprint) {
+        var entry = getEntry(method, fingerprint);
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(entry.ollirCode);
+    }
+
+    public void putOllirCode(String method, String fingerprint, String ollirCode) {
+        getOrCreateEntry(method, fingerprint).ollirCode = ollirCode;
+    }
+
+    /**
+     * Drops the results of the methods that are not in the given table, e.g., methods that were removed or renamed
+     * since the previous compilation.
+     */
+    public void retainMethods(SymbolTable table) {
+        methods.keySet().retainAll(table.getMethods());
+    }
+
+    /**
+     * @return the number of methods with cached results
+     */
+    public int getNumMethods() {
+        return methods.size();
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void clear() {
+        classFingerprint = null;
+        classReports = null;
+        methods.clear();
+    }
+
+    private MethodEntry getEntry(String method, String fingerprint) {
+        var entry = methods.get(method);
+
+        if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    private MethodEntry getOrCreateEntry(String method, String fingerprint) {
+        var entry = getEntry(method, fingerprint);
+
+        // Method is new or changed, results of the previous version are no longer valid
+        if (entry == null) {
+            entry = new MethodEntry(fingerprint);
+            methods.put(method, entry);
+        }
+
+        return entry;
+    }
+
+    private static List<List<Report>> moveReports(List<List<Report>> reports, int lineOffset) {
+        return reports.stream()
+                .map(passReports -> passReports.stream().map(report -> moveReport(report, lineOffset)).toList())
+                .toList();
+    }
+
+    private static Report moveReport(Report report, int lineOffset) {
+        if (report.getLine() < 0) {
+            return report;
+        }
+
+        var moved = new Report(report.getType(), report.getStage(), report.getLine() + lineOffset,
+                report.getColumn(), report.getMessage());
+        report.getException().ifPresent(moved::setException);
+
+        return moved;
+    }
+
+    private static class MethodEntry {
+        private final String fingerprint;
+        private List<List<Report>> reports;
+        private String ollirCode;
+
+        private MethodEntry(String fingerprint) {
+            this.fingerprint = fingerprint;
+            this.reports = null;
+            this.ollirCode = null;
+        }
+    }
+}
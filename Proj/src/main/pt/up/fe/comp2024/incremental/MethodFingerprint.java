@@ -0,0 +1,190 @@
+package pt.up.fe.comp2024.incremental;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Computes fingerprints that decide whether the analysis and OLLIR results of a method (or of the class-level
+ * declarations) can be reused from a previous compilation.
+ * <p>
+ * A method fingerprint hashes the {@code METHOD_DECL} subtree, with positions taken relative to the first line of the
+ * method, together with the signatures of every symbol of the {@link SymbolTable} the method references.
+ */
+public class MethodFingerprint {
+
+    private static final String POSITION_LINE_START = NodePosition.LINE_START.getString();
+    private static final String POSITION_LINE_END = NodePosition.LINE_END.getString();
+
+    // Positions are hashed separately, 'type' is an annotation added by the analysis
+    private static final Set<String> IGNORED_ATTRIBUTES = Set.of(
+            NodePosition.FILE.getString(),
+            POSITION_LINE_START,
+            POSITION_LINE_END,
+            NodePosition.COL_START.getString(),
+            NodePosition.COL_END.getString(),
+            "type");
+
+    private static final byte SEPARATOR = 0;
+
+    /**
+     * @param method a METHOD_DECL node
+     * @param table  the symbol table of the class
+     * @return the fingerprint of the method
+     */
+    public static String of(JmmNode method, SymbolTable table) {
+        METHOD_DECL.checkOrThrow(method);
+
+        var digest = newDigest();
+
+        hashSubtree(method, NodeUtils.getLine(method), digest);
+        hashClassSignature(table, digest);
+
+        // Signatures of the fields and methods referenced by name inside the method
+        var referencedNames = new TreeSet<String>();
+        method.getDescendantsStream().forEach(node -> {
+            if (IDENTIFIER.check(node)) {
+                referencedNames.add(node.get("value"));
+            } else if (MEMBER_METHOD_ACCESS.check(node)) {
+                referencedNames.add(node.get("method"));
+            } else if (NEW_OBJ_EXPR.check(node)) {
+                referencedNames.add(node.get("qualifier"));
+            } else if (OBJ_TYPE.check(node)) {
+                referencedNames.add(node.get("name"));
+            }
+        });
+
+        for (var name : referencedNames) {
+            update(digest, "ref", name);
+
+            for (var field : table.getFields()) {
+                if (field.getName().equals(name)) {
+                    update(digest, "field", typeToString(field.getType()));
+                }
+            }
+
+            if (table.getMethods().contains(name)) {
+                hashMethodSignature(name, table, digest);
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Fingerprint of everything in the program that is not inside a method: imports, class header, fields, and the
+     * signatures of all methods.
+     *
+     * @param root  the PROGRAM node
+     * @param table the symbol table of the class
+     * @return the fingerprint of the class-level declarations
+     */
+    public static String ofClass(JmmNode root, SymbolTable table) {
+        var digest = newDigest();
+
+        // Class-level declarations come before any method, so absolute positions are stable
+        hashShell(root, digest);
+        hashClassSignature(table, digest);
+
+        for (var field : table.getFields()) {
+            update(digest, "field", field.getName(), typeToString(field.getType()));
+        }
+
+        for (var method : table.getMethods()) {
+            hashMethodSignature(method, table, digest);
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void hashShell(JmmNode node, MessageDigest digest) {
+        hashNode(node, 0, digest);
+
+        for (var child : node.getChildren()) {
+            if (METHOD_DECL.check(child)) {
+                continue;
+            }
+            hashShell(child, digest);
+        }
+
+        update(digest, ")");
+    }
+
+    private static void hashSubtree(JmmNode node, int baseLine, MessageDigest digest) {
+        hashNode(node, baseLine, digest);
+
+        for (var child : node.getChildren()) {
+            hashSubtree(child, baseLine, digest);
+        }
+
+        update(digest, ")");
+    }
+
+    private static void hashNode(JmmNode node, int baseLine, MessageDigest digest) {
+        update(digest, "(", node.getKind());
+
+        var attributes = new TreeSet<>(node.getAttributes());
+        attributes.removeAll(IGNORED_ATTRIBUTES);
+        for (var attribute : attributes) {
+            update(digest, attribute, String.valueOf(node.getObject(attribute)));
+        }
+
+        int lineStart = NodeUtils.getIntegerAttribute(node, POSITION_LINE_START, "-1");
+        int lineEnd = NodeUtils.getIntegerAttribute(node, POSITION_LINE_END, "-1");
+        update(digest, "@",
+                String.valueOf(lineStart - baseLine),
+                String.valueOf(NodeUtils.getColumn(node)),
+                String.valueOf(lineEnd - baseLine));
+    }
+
+    private static void hashClassSignature(SymbolTable table, MessageDigest digest) {
+        update(digest, "class", table.getClassName(), String.valueOf(table.getSuper()));
+
+        for (var importName : table.getImports()) {
+            update(digest, "import", importName);
+        }
+    }
+
+    private static void hashMethodSignature(String method, SymbolTable table, MessageDigest digest) {
+        update(digest, "method", method, typeToString(table.getReturnType(method)));
+
+        for (Symbol param : table.getParameters(method)) {
+            update(digest, "param", typeToString(param.getType()));
+        }
+    }
+
+    private static String typeToString(Type type) {
+        if (type == null) {
+            return "?";
+        }
+
+        return type.getName() + (type.isArray() ? "[]" : "");
+    }
+
+    private static void update(MessageDigest digest, String... tokens) {
+        for (var token : tokens) {
+            digest.update(token.getBytes(StandardCharsets.UTF_8));
+            digest.update(SEPARATOR);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not create message digest for method fingerprints", e);
+        }
+    }
+}
@@ -1,27 +1,112 @@
 package pt.up.fe.comp2024.optimization;
 
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.incremental.IncrementalCache;
+import pt.up.fe.comp2024.optimization.ir.IrBuilder;
+import pt.up.fe.comp2024.optimization.ir.IrClass;
+import pt.up.fe.comp2024.optimization.passes.AlgebraicSimplification;
+import pt.up.fe.comp2024.optimization.passes.CopyPropagation;
+import pt.up.fe.comp2024.optimization.passes.CountedLoopShaping;
+import pt.up.fe.comp2024.optimization.passes.DeadCodeElimination;
+import pt.up.fe.comp2024.optimization.passes.Inlining;
+import pt.up.fe.comp2024.optimization.passes.InterproceduralConstantPropagation;
+import pt.up.fe.comp2024.optimization.passes.LocalValueNumbering;
+import pt.up.fe.comp2024.optimization.passes.LoopInvariantCodeMotion;
+import pt.up.fe.comp2024.optimization.passes.LoopUnrolling;
+import pt.up.fe.comp2024.optimization.passes.ScalarReplacement;
+import pt.up.fe.comp2024.optimization.passes.SideEffectAnalysis;
+import pt.up.fe.comp2024.optimization.passes.SparseConditionalConstantPropagation;
+import pt.up.fe.comp2024.optimization.passes.StaticCallPromotion;
+import pt.up.fe.comp2024.optimization.passes.StrengthReduction;
+import pt.up.fe.comp2024.optimization.passes.TailRecursionElimination;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
+    private final IncrementalCache cache;
+
+    public JmmOptimizationImpl() {
+        this(null);
+    }
+
+    /**
+     * @param cache OLLIR code of previous compilations, only methods that changed since then are lowered again. If
+     *              null, the OLLIR of the whole class is always generated.
+     */
+    public JmmOptimizationImpl(IncrementalCache cache) {
+        this.cache = cache;
+    }
+
+    private static List<OptimizationPass> getOptimizationPasses(Map<String, String> config) {
+        return List.of(new Inlining(),
+                       new StaticCallPromotion(),
+                       new ScalarReplacement(),
+                       new SparseConditionalConstantPropagation(),
+                       new CopyPropagation(),
+                       new InterproceduralConstantPropagation(),
+                       new TailRecursionElimination(),
+                       new SideEffectAnalysis(CompilerConfig.getPureMethods(config)),
+                       new AlgebraicSimplification(),
+                       new LocalValueNumbering(),
+                       new CountedLoopShaping(),
+                       new StrengthReduction(),
+                       new LoopInvariantCodeMotion(),
+                       new LoopUnrolling(CompilerConfig.getUnrollFactor(config)),
+                       new SparseConditionalConstantPropagation(),
+                       new AlgebraicSimplification(),
+                       new CopyPropagation(),
+                       new DeadCodeElimination());
+    }
+
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), cache);
         var ollirCode = visitor.visit(semanticsResult.getRootNode());
 
         return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
     }
 
+    /**
+     * Runs the optimization passes on the OLLIR code, if optimizations are enabled with -o.
+     */
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
 
-        //TODO: Do your OLLIR-based optimizations here
+        var config = ollirResult.getConfig();
+        if (config == null || !CompilerConfig.getOptimize(config)) {
+            return ollirResult;
+        }
+
+        IrClass irClass;
+        try {
+            irClass = IrBuilder.build(ollirResult.getOllirClass());
+        } catch (NotImplementedException e) {
+            var report = Report.newWarn(Stage.OPTIMIZATION, -1, -1, "OLLIR was not optimized: " + e.getMessage(), e);
+            return withCode(ollirResult, ollirResult.getOllirCode(), List.of(report));
+        }
+
+        for (var optimizationPass : getOptimizationPasses(config)) {
+            optimizationPass.optimize(irClass);
+        }
+
+        return withCode(ollirResult, irClass.toOllir(), Collections.emptyList());
+    }
+
+    private static OllirResult withCode(OllirResult ollirResult, String ollirCode, List<Report> reports) {
+        var semanticsResult = new JmmSemanticsResult((JmmNode) null, ollirResult.getSymbolTable(),
+                ollirResult.getReports(), ollirResult.getConfig());
 
-        return ollirResult;
+        return new OllirResult(semanticsResult, ollirCode, reports);
     }
 }
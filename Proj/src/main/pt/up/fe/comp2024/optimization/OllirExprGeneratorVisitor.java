@@ -7,10 +7,12 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.ast.antlr.JmmNodeCleanup;
+import pt.up.fe.comp2024.ast.KindDispatch;
 import pt.up.fe.comp2024.ast.TypeUtils;
 
 import java.util.List;
 import java.util.Arrays;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
@@ -26,8 +28,13 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private final SymbolTable table;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    private final OllirNames names;
+
+    private final KindDispatch<Void, OllirExprResult> dispatch = new KindDispatch<>(super::getVisit);
+
+    public OllirExprGeneratorVisitor(SymbolTable table, OllirNames names) {
         this.table = table;
+        this.names = names;
     }
 
     @Override
@@ -50,14 +57,22 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         setDefaultVisit(this::defaultVisit);
     }
 
+    @Override
+    protected BiFunction<JmmNode, Void, OllirExprResult> getVisit(JmmNode node) {
+        return dispatch.getVisit(node);
+    }
+
     private OllirExprResult visitLiteral(JmmNode node, Void unused) {
         if (!node.hasAttribute("type")) {
             node.putObject("type", TypeUtils.getExprType(node, table, node.getAncestor(METHOD_DECL).get().get("name")));
         }
         Type type = node.getObject("type", Type.class);
 
+        // Booleans are the ints 1 and 0 in OLLIR, true.bool would be a variable named true
+        String value = BOOL_LITERAL.check(node) ? (node.get("value").equals("true") ? "1" : "0") : node.get("value");
+
         String ollirType = OptUtils.toOllirType(type);
-        String code = node.get("value") + ollirType;
+        String code = value + ollirType;
         return new OllirExprResult(code);
     }
 
@@ -78,7 +93,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         boolean varIsParam = table.getParameters(methodName).stream().anyMatch(f -> f.getName().equals(id));
 
         if (varIsField && !varIsParam && !varIsLocal) {
-            code = OptUtils.getTemp() + ollirType;
+            code = names.getTemp() + ollirType;
             computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
                     .append("getfield(this.").append(table.getClassName()).append(", ").append(id)
                     .append(ollirType).append(")").append(ollirType).append(END_STMT);
@@ -105,7 +120,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private OllirExprResult visitArrayInit(JmmNode node, Void unused) {
         StringBuilder computation = new StringBuilder();
 
-        String temp = OptUtils.getTemp();
+        String temp = names.getTemp();
         String code = temp + ".array.i32";
         computation.append(code).append(" :=.array.i32 new(array, ").append(node.getNumChildren()).append(".i32).array.i32;\n");
 
@@ -118,28 +133,69 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         return new OllirExprResult(code, computation);
     }
 
+    /**
+     * Generates the code of a condition that jumps to the label when the condition has the given value, and otherwise
+     * continues to the code after it.
+     * <p>
+     * The operators {@code &&}, {@code !} and {@code <} become jumps, so that the condition has no temporaries for
+     * their results. Other expressions are computed and their value is tested.
+     */
+    public String visitCondition(JmmNode node, String label, boolean jumpIf) {
+        if (PARENTHESES.check(node)) {
+            return visitCondition(node.getChild(0), label, jumpIf);
+        }
+
+        if (NEGATION.check(node)) {
+            return visitCondition(node.getChild(0), label, !jumpIf);
+        }
+
+        if (LOGICAL_EXPR.check(node)) {
+            // Both operands must be true to jump when true, and one of them false to jump when false
+            if (!jumpIf) {
+                return visitCondition(node.getChild(0), label, false) + visitCondition(node.getChild(1), label, false);
+            }
+
+            var endAnd = names.getLabel("endand");
+
+            return visitCondition(node.getChild(0), endAnd, false) + visitCondition(node.getChild(1), label, true)
+                    + endAnd + ":\n";
+        }
+
+        if (RELATIONAL_EXPR.check(node)) {
+            var lhs = visit(node.getChild(0));
+            var rhs = visit(node.getChild(1));
+
+            return lhs.getComputation() + rhs.getComputation() + "if (" + lhs.getCode() + SPACE
+                    + (jumpIf ? "<" : ">=") + ".bool" + SPACE + rhs.getCode() + ") goto " + label + END_STMT;
+        }
+
+        var value = visit(node);
+
+        return value.getComputation() + "if (" + (jumpIf ? "" : "!.bool ") + value.getCode() + ") goto " + label
+                + END_STMT;
+    }
+
     private OllirExprResult visitLogicalExpr(JmmNode node, Void unused) {
-        String temp = OptUtils.getTemp();
+        String temp = names.getTemp();
 
-        OllirExprResult leftOperandRes = visit(node.getChild(0));
         OllirExprResult rightOperandRes = visit(node.getChild(1));
 
         StringBuilder computation = new StringBuilder();
 
-        computation.append(leftOperandRes.getComputation());
-
         String trueCode = rightOperandRes.getComputation() + temp + ".bool " + ASSIGN + ".bool " + rightOperandRes.getCode() + END_STMT;
-        String falseCode = temp + ".bool " + ASSIGN + ".bool false.bool" + END_STMT;
+        String falseCode = temp + ".bool " + ASSIGN + ".bool 0.bool" + END_STMT;
 
-        OptUtils.getNextIfNum();
+        names.getNextIfNum();
+        var ifBody = names.getIfBody();
+        var endIf = names.getEndIf();
 
-        computation.append("if (").append(leftOperandRes.getCode()).append(") goto ").append(OptUtils.getIfBody()).append(END_STMT);
+        computation.append(visitCondition(node.getChild(0), ifBody, true));
         computation.append(falseCode);
-        computation.append("goto ").append(OptUtils.getEndIf()).append(END_STMT);
+        computation.append("goto ").append(endIf).append(END_STMT);
 
-        computation.append(OptUtils.getIfBody()).append(":\n");
+        computation.append(ifBody).append(":\n");
         computation.append(trueCode);
-        computation.append(OptUtils.getEndIf()).append(":\n");
+        computation.append(endIf).append(":\n");
 
         String code = temp + ".bool";
 
@@ -165,11 +221,11 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         String resOllirType = OptUtils.toOllirType(resType);
         StringBuilder code = new StringBuilder();
 
-        if (ASSIGN_STMT.check(node.getParent()) || (RELATIONAL_EXPR.check(node) && (IF_ELSE_STMT.check(node.getParent()) || WHILE_STMT.check(node.getParent())))) {
+        if (ASSIGN_STMT.check(node.getParent())) {
             code.append(lhs.getCode()).append(SPACE).append(node.get("op")).append(OptUtils.toOllirType(resType)).append(SPACE)
                     .append(rhs.getCode());
         } else {
-            code.append(OptUtils.getTemp()).append(resOllirType);
+            code.append(names.getTemp()).append(resOllirType);
             computation.append(code).append(SPACE)
                     .append(ASSIGN).append(resOllirType).append(SPACE)
                     .append(lhs.getCode()).append(SPACE).append(node.get("op"))
@@ -197,7 +253,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             String caller = node.getParent().getChild(0).get("value");
             code += "invokespecial(" + caller + resOllirType + ", \"<init>\").V";
         } else {
-            code += OptUtils.getTemp() + resOllirType;
+            code += names.getTemp() + resOllirType;
             computation.append(code).append(SPACE)
                     .append(ASSIGN).append(resOllirType).append(SPACE)
                     .append("new(").append(resType.getName()).append(")").append(resOllirType).append(END_STMT);
@@ -225,7 +281,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             code.append(ollirArrayType).append(SPACE)
                     .append("new(array, ").append(index.getCode()).append(")").append(ollirArrayType);
         } else {
-            code.append(OptUtils.getTemp()).append(ollirArrayType);
+            code.append(names.getTemp()).append(ollirArrayType);
             computation.append(code).append(SPACE)
                     .append(ASSIGN).append(ollirArrayType).append(SPACE)
                     .append("new(array, ").append(index.getCode()).append(")").append(ollirArrayType).append(END_STMT);
@@ -255,7 +311,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             code.append(node.get("op")).append(resOllirType).append(SPACE)
                     .append(negated.getCode());
         } else {
-            code.append(OptUtils.getTemp()).append(resOllirType);
+            code.append(names.getTemp()).append(resOllirType);
             computation.append(code).append(SPACE)
                     .append(ASSIGN).append(resOllirType).append(SPACE)
                     .append(node.get("op")).append(resOllirType).append(SPACE)
@@ -294,7 +350,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         if (ASSIGN_STMT.check(node.getParent())) {
             code += arrayAccessCode;
         } else {
-            code += OptUtils.getTemp() + resOllirType;
+            code += names.getTemp() + resOllirType;
             computation.append(code).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE)
                     .append(arrayAccessCode).append(END_STMT);
         }
@@ -322,7 +378,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         String code;
 
         if ("length".equals(methodName)) {
-            code = OptUtils.getTemp() + ".i32";
+            code = names.getTemp() + ".i32";
             computation.append(code).append(SPACE).append(ASSIGN)
                     .append(".i32").append(SPACE).append("arraylength(").append(callerCode)
                     .append(").i32").append(END_STMT);
@@ -335,11 +391,12 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                 arguments.append(", ").append(arg.getCode());
             }
 
-            boolean methodHasVarargs = !params.isEmpty() && params.getLast().getType().getName().equals("int...");
+            boolean methodHasVarargs = !params.isEmpty()
+                    && params.get(params.size() - 1).getType().getName().equals("int...");
             boolean lastArgIsArray = false;
 
             if ((node.getNumChildren() - 1) > 0) {
-                var lastArgNode = node.getChildren().getLast();
+                var lastArgNode = node.getChild(node.getNumChildren() - 1);
                 if (!lastArgNode.hasAttribute("type")) {
                     lastArgNode.putObject("type", TypeUtils.getExprType(lastArgNode, table, ancestorMethod));
                 }
@@ -347,7 +404,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
                 if (methodHasVarargs && !lastArgIsArray) {
                     // Initialize new temporary array
-                    String temp = OptUtils.getTemp();
+                    String temp = names.getTemp();
                     int numVarargNumbers = (node.getNumChildren() - 1) - (params.size() - 1);
                     computation.append(temp).append(".array.i32 :=.array.i32 new(array, ").append(numVarargNumbers).append(".i32).array.i32;\n");
 
@@ -388,7 +445,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             }
             Type resType = node.getObject("type", Type.class);
             String resOllirType = OptUtils.toOllirType(resType);
-            String tempCode = OptUtils.getTemp() + resOllirType;
+            String tempCode = names.getTemp() + resOllirType;
             code = "";
 
             if (EXPR_STMT.check(node.getParent())) {
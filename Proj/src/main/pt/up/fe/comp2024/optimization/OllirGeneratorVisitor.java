@@ -6,10 +6,14 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.KindDispatch;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.incremental.IncrementalCache;
+import pt.up.fe.comp2024.incremental.MethodFingerprint;
 
 import java.util.List;
+import java.util.function.BiFunction;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -28,11 +32,23 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final SymbolTable table;
 
+    private final OllirNames names;
+
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    private final IncrementalCache cache;
+
+    private final KindDispatch<Void, String> dispatch = new KindDispatch<>(super::getVisit);
+
     public OllirGeneratorVisitor(SymbolTable table) {
+        this(table, null);
+    }
+
+    public OllirGeneratorVisitor(SymbolTable table, IncrementalCache cache) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.cache = cache;
+        this.names = new OllirNames();
+        exprVisitor = new OllirExprGeneratorVisitor(table, names);
     }
 
 
@@ -55,6 +71,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         setDefaultVisit(this::defaultVisit);
     }
 
+    @Override
+    protected BiFunction<JmmNode, Void, String> getVisit(JmmNode node) {
+        return dispatch.getVisit(node);
+    }
+
     private String visitExprStmt(JmmNode node, Void unused) {
 
         var expr = exprVisitor.visit(node.getChild(0));
@@ -72,7 +93,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         // code to compute self
         // statement has type of lhs
-        Type thisType = node.getChild(0).getObject("type", Type.class);
+        var assignee = node.getChild(0);
+        if (!assignee.hasAttribute("type")) {
+            assignee.putObject("type", TypeUtils.getExprType(assignee, table, node.getAncestor(METHOD_DECL).get().get("name")));
+        }
+        Type thisType = assignee.getObject("type", Type.class);
         String typeString = OptUtils.toOllirType(thisType);
 
         if (IDENTIFIER.check(node.getChild(0))) {
@@ -83,8 +108,17 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             boolean varIsParam = table.getParameters(methodName).stream().anyMatch(f -> f.getName().equals(varName));
 
             if (varIsField && !varIsLocal && !varIsParam) {
+                // putfield only takes a single value, so the expression is assigned to a temporary first
+                var value = rhs.getCode();
+                if (value.contains(SPACE)) {
+                    var temp = names.getTemp() + typeString;
+                    code.append(temp).append(SPACE).append(ASSIGN).append(typeString).append(SPACE).append(value)
+                            .append(END_STMT);
+                    value = temp;
+                }
+
                 code.append("putfield(this.").append(table.getClassName()).append(", ").append(varName).append(typeString)
-                        .append(", ").append(rhs.getCode()).append(").V").append(END_STMT);
+                        .append(", ").append(value).append(").V").append(END_STMT);
 
                 return code.toString();
             }
@@ -134,50 +168,37 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitWhileStmt(JmmNode node, Void unused) {
-        var condExpr = exprVisitor.visit(node.getChild(0));
+        names.getNextWhileNum();
+        var whileBody = names.getWhileBody();
+        var endWhile = names.getEndWhile();
 
         StringBuilder code = new StringBuilder();
 
-        // code to compute the children
-        code.append(condExpr.getComputation());
-
-        var bodyCode = visit(node.getChild(1));
+        // The condition is tested before the first iteration and again after each one, with its own temporaries
+        code.append(exprVisitor.visitCondition(node.getChild(0), endWhile, false));
 
-        OptUtils.getNextWhileNum();
-
-        var condString = "if (" + condExpr.getCode() + ") goto " + OptUtils.getWhileBody() + END_STMT;
-
-        code.append(condString);
-        code.append("goto ").append(OptUtils.getEndWhile()).append(END_STMT);
-
-        code.append(OptUtils.getWhileBody()).append(":").append(NL);
-        code.append(bodyCode);
-        code.append(condString);
-        code.append(OptUtils.getEndWhile()).append(":").append(NL);
+        code.append(whileBody).append(":").append(NL);
+        code.append(visit(node.getChild(1)));
+        code.append(exprVisitor.visitCondition(node.getChild(0), whileBody, true));
+        code.append(endWhile).append(":").append(NL);
 
         return code.toString();
     }
 
     private String visitIfElseStmt(JmmNode node, Void unused) {
-        var condExpr = exprVisitor.visit(node.getChild(0));
+        names.getNextIfNum();
+        var ifBody = names.getIfBody();
+        var endIf = names.getEndIf();
 
         StringBuilder code = new StringBuilder();
 
-        // code to compute the children
-        code.append(condExpr.getComputation());
-
-        var ifCode = visit(node.getChild(1));
-        var elseCode = visit(node.getChild(2));
-
-        OptUtils.getNextIfNum();
-
-        code.append("if (").append(condExpr.getCode()).append(") goto ").append(OptUtils.getIfBody()).append(END_STMT);
-        code.append(elseCode);
-        code.append("goto ").append(OptUtils.getEndIf()).append(END_STMT);
+        code.append(exprVisitor.visitCondition(node.getChild(0), ifBody, true));
+        code.append(visit(node.getChild(2)));
+        code.append("goto ").append(endIf).append(END_STMT);
 
-        code.append(OptUtils.getIfBody()).append(":").append(NL);
-        code.append(ifCode);
-        code.append(OptUtils.getEndIf()).append(":").append(NL);
+        code.append(ifBody).append(":").append(NL);
+        code.append(visit(node.getChild(1)));
+        code.append(endIf).append(":").append(NL);
 
         return code.toString();
     }
@@ -205,6 +226,23 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitMethodDecl(JmmNode node, Void unused) {
 
+        if (cache == null) {
+            return buildMethod(node);
+        }
+
+        // Reuse the code of the previous compilation if the method did not change
+        var methodName = node.get("name");
+        var fingerprint = MethodFingerprint.of(node, table);
+
+        return cache.getOllirCode(methodName, fingerprint).orElseGet(() -> {
+            var code = buildMethod(node);
+            cache.putOllirCode(methodName, fingerprint, code);
+            return code;
+        });
+    }
+
+    private String buildMethod(JmmNode node) {
+
         StringBuilder code = new StringBuilder(".method ");
 
         boolean isPublic = NodeUtils.getBooleanAttribute(node, "isPublic", "false");
@@ -220,7 +258,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         }
 
         List<Symbol> params = table.getParameters(node.get("name"));
-        boolean hasVarargs = !params.isEmpty() && params.getLast().getType().getName().equals("int...");
+        boolean hasVarargs = !params.isEmpty() && params.get(params.size() - 1).getType().getName().equals("int...");
 
         if (hasVarargs) {
             code.append("varargs ");
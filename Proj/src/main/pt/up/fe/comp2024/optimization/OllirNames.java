@@ -0,0 +1,71 @@
+package pt.up.fe.comp2024.optimization;
+
+/**
+ * Names of temporaries and labels of one OLLIR generation.
+ * <p>
+ * Each {@link OllirGeneratorVisitor} has its own instance, so that compilations running at the same time do not share
+ * counters and the same program always gets the same names.
+ */
+public class OllirNames {
+
+    private int tempNumber;
+    private int labelNumber;
+
+    public OllirNames() {
+        this.tempNumber = -1;
+        this.labelNumber = -1;
+    }
+
+    public String getTemp() {
+
+        return getTemp("tmp");
+    }
+
+    public String getTemp(String prefix) {
+
+        return prefix + getNextTempNum();
+    }
+
+    public String getIfBody() {
+
+        return "ifbody_" + labelNumber;
+    }
+
+    public String getEndIf() {
+
+        return "endif_" + labelNumber;
+    }
+
+    public String getWhileBody() {
+
+        return "whilebody_" + labelNumber;
+    }
+
+    public String getEndWhile() {
+
+        return "endwhile_" + labelNumber;
+    }
+
+    /**
+     * @return a new label with the given prefix, e.g., "endand_3"
+     */
+    public String getLabel(String prefix) {
+        labelNumber += 1;
+        return prefix + "_" + labelNumber;
+    }
+
+    public int getNextTempNum() {
+
+        tempNumber += 1;
+        return tempNumber;
+    }
+
+    // Ifs and whiles share the same counter, so that labels are unique in a method
+    public void getNextIfNum() {
+        labelNumber += 1;
+    }
+
+    public void getNextWhileNum() {
+        labelNumber += 1;
+    }
+}
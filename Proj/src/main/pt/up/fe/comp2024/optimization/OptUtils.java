@@ -14,53 +14,6 @@ import java.util.Set;
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 public class OptUtils {
-    private static int tempNumber = -1;
-    private static int ifNumber = -1;
-    private static int whileNumber = -1;
-
-    public static String getTemp() {
-
-        return getTemp("tmp");
-    }
-
-    public static String getTemp(String prefix) {
-
-        return prefix + getNextTempNum();
-    }
-
-    public static String getIfBody() {
-
-        return "ifbody_" + ifNumber;
-    }
-
-    public static String getEndIf() {
-
-        return "endif_" + ifNumber;
-    }
-
-    public static String getWhileBody() {
-
-        return "whilebody_" + ifNumber;
-    }
-
-    public static String getEndWhile() {
-
-        return "endwhile_" + ifNumber;
-    }
-
-    public static int getNextTempNum() {
-
-        tempNumber += 1;
-        return tempNumber;
-    }
-
-    public static void getNextIfNum() {
-        ifNumber += 1;
-    }
-
-    public static void getNextWhileNum() {
-        ifNumber += 1;
-    }
 
     public static String toOllirType(JmmNode typeNode) {
 
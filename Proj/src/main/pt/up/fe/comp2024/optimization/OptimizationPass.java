@@ -0,0 +1,18 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp2024.optimization.ir.IrClass;
+
+/**
+ * Represents an optimization pass over the OLLIR of a class.
+ */
+public interface OptimizationPass {
+
+    /**
+     * Optimizes the given class in place.
+     *
+     * @param irClass the class, as built by {@link pt.up.fe.comp2024.optimization.ir.IrBuilder}
+     * @return true if the class changed
+     */
+    boolean optimize(IrClass irClass);
+
+}
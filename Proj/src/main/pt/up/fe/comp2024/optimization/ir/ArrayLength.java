@@ -0,0 +1,56 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Length of an array. Arrays never change length, so it only depends on the array it is computed from.
+ */
+public class ArrayLength extends Expr {
+
+    private final Value array;
+
+    public ArrayLength(Value array) {
+        this.array = array;
+    }
+
+    public Value getArray() {
+        return array;
+    }
+
+    @Override
+    public String getType() {
+        return Value.INT;
+    }
+
+    @Override
+    public List<Value> getOperands() {
+        return List.of(array);
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        return new ArrayLength(function.apply(array));
+    }
+
+    @Override
+    public boolean canThrow() {
+        // The array can be null
+        return true;
+    }
+
+    @Override
+    public String toOllir() {
+        return "arraylength(" + array.toOllir() + ")." + Value.INT;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ArrayLength length && array.equals(length.array);
+    }
+
+    @Override
+    public int hashCode() {
+        return 7 * array.hashCode();
+    }
+}
@@ -0,0 +1,66 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+public class ArrayLoad extends Expr {
+
+    private final Var array;
+    private final Value index;
+    private final String type;
+
+    public ArrayLoad(Var array, Value index, String type) {
+        this.array = array;
+        this.index = index;
+        this.type = type;
+    }
+
+    public Var getArray() {
+        return array;
+    }
+
+    public Value getIndex() {
+        return index;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public List<Value> getOperands() {
+        return List.of(array, index);
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        return new ArrayLoad((Var) function.apply(array), function.apply(index), type);
+    }
+
+    @Override
+    public boolean canThrow() {
+        return true;
+    }
+
+    @Override
+    public boolean readsMemory() {
+        return true;
+    }
+
+    @Override
+    public String toOllir() {
+        return array.getName() + "[" + index.toOllir() + "]." + type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ArrayLoad load && array.equals(load.array) && index.equals(load.index);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(array, index);
+    }
+}
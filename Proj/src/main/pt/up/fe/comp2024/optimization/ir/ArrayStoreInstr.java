@@ -0,0 +1,63 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class ArrayStoreInstr extends Instr {
+
+    private Var array;
+    private Value index;
+    private Value value;
+
+    public ArrayStoreInstr(Var array, Value index, Value value) {
+        this.array = array;
+        this.index = index;
+        this.value = value;
+    }
+
+    public Var getArray() {
+        return array;
+    }
+
+    public Value getIndex() {
+        return index;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(array, index, value);
+    }
+
+    @Override
+    public void mapUses(UnaryOperator<Value> function) {
+        array = (Var) function.apply(array);
+        index = function.apply(index);
+        value = function.apply(value);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    @Override
+    public boolean canThrow() {
+        return true;
+    }
+
+    @Override
+    public Instr copy(UnaryOperator<Value> function) {
+        return new ArrayStoreInstr((Var) function.apply(array), function.apply(index), function.apply(value));
+    }
+
+    @Override
+    public String toOllir() {
+        var type = value.getType();
+
+        return array.getName() + "[" + index.toOllir() + "]." + type + " :=." + type + " " + value.toOllir() + ";";
+    }
+}
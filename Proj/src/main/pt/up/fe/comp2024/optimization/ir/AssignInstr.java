@@ -0,0 +1,67 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class AssignInstr extends Instr {
+
+    private final Var dest;
+    private Expr rhs;
+
+    public AssignInstr(Var dest, Expr rhs) {
+        this.dest = dest;
+        this.rhs = rhs;
+    }
+
+    public Var getDest() {
+        return dest;
+    }
+
+    public Expr getRhs() {
+        return rhs;
+    }
+
+    public void setRhs(Expr rhs) {
+        this.rhs = rhs;
+    }
+
+    @Override
+    public Var getDef() {
+        return dest;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return rhs.getOperands();
+    }
+
+    @Override
+    public void mapUses(UnaryOperator<Value> function) {
+        rhs = rhs.mapOperands(function);
+    }
+
+    @Override
+    public CallExpr getCall() {
+        return rhs instanceof CallExpr call ? call : null;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return rhs.hasSideEffects();
+    }
+
+    @Override
+    public boolean canThrow() {
+        return rhs.canThrow();
+    }
+
+    @Override
+    public Instr copy(UnaryOperator<Value> function) {
+        return new AssignInstr((Var) function.apply(dest), rhs.mapOperands(function));
+    }
+
+    @Override
+    public String toOllir() {
+        return dest.toOllir() + " :=." + dest.getType() + " " + rhs.toOllir() + ";";
+    }
+}
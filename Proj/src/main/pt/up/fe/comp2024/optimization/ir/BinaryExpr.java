@@ -0,0 +1,96 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+public class BinaryExpr extends Expr {
+
+    private final OperationType operation;
+    private final Value left;
+    private final Value right;
+    private final String type;
+
+    public BinaryExpr(OperationType operation, Value left, Value right, String type) {
+        this.operation = operation;
+        this.left = left;
+        this.right = right;
+        this.type = type;
+    }
+
+    public OperationType getOperation() {
+        return operation;
+    }
+
+    public Value getLeft() {
+        return left;
+    }
+
+    public Value getRight() {
+        return right;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public List<Value> getOperands() {
+        return List.of(left, right);
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        return new BinaryExpr(operation, function.apply(left), function.apply(right), type);
+    }
+
+    @Override
+    public boolean canThrow() {
+        // Only a division by zero throws
+        return operation == OperationType.DIV && !(right instanceof Literal literal && literal.getValue() != 0);
+    }
+
+    @Override
+    public String toOllir() {
+        return left.toOllir() + " " + getSymbol(operation) + "." + type + " " + right.toOllir();
+    }
+
+    static String getSymbol(OperationType operation) {
+        return switch (operation) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case SHL -> "<<";
+            case SHR -> ">>";
+            case SHRR -> ">>>";
+            case XOR -> "^";
+            case AND -> "&";
+            case OR -> "|";
+            case ANDB -> "&&";
+            case ORB -> "||";
+            case LTH -> "<";
+            case GTH -> ">";
+            case LTE -> "<=";
+            case GTE -> ">=";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            case NOT, NOTB -> "!";
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BinaryExpr expr && operation == expr.operation && left.equals(expr.left)
+                && right.equals(expr.right) && type.equals(expr.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operation, left, right, type);
+    }
+}
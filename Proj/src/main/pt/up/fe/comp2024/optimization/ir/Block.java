@@ -0,0 +1,58 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Basic block: instructions that always run in sequence, ending in a {@link Terminator}.
+ */
+public class Block {
+
+    private final String label;
+    private final List<Instr> instrs;
+    private Terminator terminator;
+
+    public Block(String label) {
+        this.label = label;
+        this.instrs = new ArrayList<>();
+        this.terminator = null;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the instructions of the block without the terminator, which can be changed by passes
+     */
+    public List<Instr> getInstrs() {
+        return instrs;
+    }
+
+    public Terminator getTerminator() {
+        return terminator;
+    }
+
+    public void setTerminator(Terminator terminator) {
+        this.terminator = terminator;
+    }
+
+    public List<Block> getSuccessors() {
+        return terminator.getSuccessors();
+    }
+
+    /**
+     * @return the instructions of the block followed by its terminator
+     */
+    public List<Instr> getAllInstrs() {
+        var all = new ArrayList<Instr>(instrs);
+        all.add(terminator);
+
+        return all;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,81 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Goes to one of two blocks, depending on a condition. The condition is a value, or a binary or unary operation, as
+ * allowed by OLLIR.
+ */
+public class Branch extends Terminator {
+
+    private Expr condition;
+    private Block ifTrue;
+    private Block ifFalse;
+
+    public Branch(Expr condition, Block ifTrue, Block ifFalse) {
+        this.condition = condition;
+        this.ifTrue = ifTrue;
+        this.ifFalse = ifFalse;
+    }
+
+    public Expr getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Expr condition) {
+        this.condition = condition;
+    }
+
+    public Block getIfTrue() {
+        return ifTrue;
+    }
+
+    public Block getIfFalse() {
+        return ifFalse;
+    }
+
+    @Override
+    public List<Block> getSuccessors() {
+        return List.of(ifTrue, ifFalse);
+    }
+
+    @Override
+    public void replaceSuccessor(Block from, Block to) {
+        if (ifTrue == from) {
+            ifTrue = to;
+        }
+
+        if (ifFalse == from) {
+            ifFalse = to;
+        }
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return condition.getOperands();
+    }
+
+    @Override
+    public void mapUses(UnaryOperator<Value> function) {
+        condition = condition.mapOperands(function);
+    }
+
+    @Override
+    public boolean canThrow() {
+        return condition.canThrow();
+    }
+
+    @Override
+    public Instr copy(UnaryOperator<Value> function) {
+        return new Branch(condition.mapOperands(function), ifTrue, ifFalse);
+    }
+
+    /**
+     * @return the conditional jump to the true block, which falls through when the condition is false
+     */
+    @Override
+    public String toOllir() {
+        return "if (" + condition.toOllir() + ") goto " + ifTrue.getLabel() + ";";
+    }
+}
@@ -0,0 +1,169 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.CallType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Call of a method with invokestatic, invokevirtual or invokespecial.
+ * <p>
+ * Calls are assumed to do anything, unless they were given the effects of the method they call, which lets passes
+ * reuse, move and remove calls of pure methods. The effects are not compared by {@link #equals(Object)}.
+ */
+public class CallExpr extends Expr {
+
+    private final CallType callType;
+    private final Value caller;
+    private final String methodName;
+    private final List<Value> arguments;
+    private final String type;
+    // Null if the effects of the method are not known
+    private final Set<SideEffect> effects;
+
+    public CallExpr(CallType callType, Value caller, String methodName, List<Value> arguments, String type) {
+        this(callType, caller, methodName, arguments, type, null);
+    }
+
+    private CallExpr(CallType callType, Value caller, String methodName, List<Value> arguments, String type,
+                     Set<SideEffect> effects) {
+        this.callType = callType;
+        this.caller = caller;
+        this.methodName = methodName;
+        this.arguments = List.copyOf(arguments);
+        this.type = type;
+        this.effects = effects == null ? null : Set.copyOf(effects);
+    }
+
+    public CallType getCallType() {
+        return callType;
+    }
+
+    /**
+     * @return the object the method is called on, or a {@link ClassRef} for static methods
+     */
+    public Value getCaller() {
+        return caller;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public List<Value> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * @return the effects of the method, or null if they are not known
+     */
+    public Set<SideEffect> getEffects() {
+        return effects;
+    }
+
+    /**
+     * @return the same call, known to have only the given effects
+     */
+    public CallExpr withEffects(Set<SideEffect> effects) {
+        return new CallExpr(callType, caller, methodName, arguments, type, effects);
+    }
+
+    private boolean mayHave(SideEffect... possibleEffects) {
+        return effects == null || effects.contains(SideEffect.CALLS_IMPORTED)
+                || List.of(possibleEffects).stream().anyMatch(effects::contains);
+    }
+
+    /**
+     * @return true if the method is a method of the class with the given name, which is not the case for imported
+     * classes
+     */
+    public boolean isCallTo(String className) {
+        return caller.getType().equals(className);
+    }
+
+    /**
+     * @return true if the call can change fields of objects of the class, which is the case when it calls a method of
+     * the class, or when the method can get one of its objects
+     */
+    public boolean mayWriteFieldsOf(String className) {
+        if (!mayHave(SideEffect.WRITES_FIELDS)) {
+            return false;
+        }
+
+        if (isCallTo(className)) {
+            return true;
+        }
+
+        return getOperands().stream().anyMatch(operand -> !(operand instanceof ClassRef) && isObject(operand.getType()));
+    }
+
+    private static boolean isObject(String type) {
+        return !type.equals(Value.INT) && !type.equals(Value.BOOL) && !type.startsWith("array.")
+                && !type.equals("String");
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public List<Value> getOperands() {
+        var operands = new ArrayList<Value>();
+        operands.add(caller);
+        operands.addAll(arguments);
+
+        return operands;
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        var mappedArguments = arguments.stream().map(function).toList();
+
+        return new CallExpr(callType, function.apply(caller), methodName, mappedArguments, type, effects);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return mayHave(SideEffect.WRITES_FIELDS, SideEffect.WRITES_ARRAYS, SideEffect.ALLOCATES);
+    }
+
+    // Calls that may never return must stay where they are, like those that may throw, and calls on objects other
+    // than this fail when the object is null
+    @Override
+    public boolean canThrow() {
+        return mayHave(SideEffect.MAY_THROW, SideEffect.MAY_NOT_RETURN)
+                || !(caller instanceof This) && !(caller instanceof ClassRef);
+    }
+
+    @Override
+    public boolean readsMemory() {
+        return mayHave(SideEffect.READS_FIELDS, SideEffect.READS_ARRAYS);
+    }
+
+    @Override
+    public String toOllir() {
+        var code = new StringBuilder();
+        code.append(callType.name()).append("(").append(caller.toOllir()).append(", \"").append(methodName).append("\"");
+
+        for (var argument : arguments) {
+            code.append(", ").append(argument.toOllir());
+        }
+
+        return code.append(").").append(type).toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CallExpr call && callType == call.callType && caller.equals(call.caller)
+                && methodName.equals(call.methodName) && arguments.equals(call.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(callType, caller, methodName, arguments);
+    }
+}
@@ -0,0 +1,51 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Call whose result is not used.
+ */
+public class CallInstr extends Instr {
+
+    private CallExpr call;
+
+    public CallInstr(CallExpr call) {
+        this.call = call;
+    }
+
+    @Override
+    public CallExpr getCall() {
+        return call;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return call.getOperands();
+    }
+
+    @Override
+    public void mapUses(UnaryOperator<Value> function) {
+        call = (CallExpr) call.mapOperands(function);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return call.hasSideEffects();
+    }
+
+    @Override
+    public boolean canThrow() {
+        return call.canThrow();
+    }
+
+    @Override
+    public Instr copy(UnaryOperator<Value> function) {
+        return new CallInstr((CallExpr) call.mapOperands(function));
+    }
+
+    @Override
+    public String toOllir() {
+        return call.toOllir() + ";";
+    }
+}
@@ -0,0 +1,37 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * Class whose static method is called, the caller of invokestatic.
+ */
+public class ClassRef extends Value {
+
+    private final String name;
+
+    public ClassRef(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getType() {
+        return name;
+    }
+
+    @Override
+    public String toOllir() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ClassRef classRef && name.equals(classRef.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
@@ -0,0 +1,158 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dominator tree of a method, computed with the iterative algorithm of Cooper, Harvey and Kennedy.
+ * <p>
+ * A block dominates another if every path from the entry to the other block goes through it. Blocks that cannot be
+ * reached from the entry are not dominated by any block.
+ */
+public class Dominators {
+
+    private final List<Block> reversePostorder;
+    private final Map<Block, Integer> order;
+    private final Map<Block, Block> idoms;
+    private final Map<Block, List<Block>> children;
+    private final Map<Block, List<Block>> predecessors;
+
+    // Computed when they are first needed, most passes only use the tree
+    private Map<Block, Set<Block>> frontiers;
+
+    public Dominators(IrMethod method) {
+        this.reversePostorder = method.getReversePostorder();
+        this.order = new HashMap<>();
+        this.idoms = new HashMap<>();
+        this.children = new HashMap<>();
+        this.predecessors = method.getPredecessors();
+        this.frontiers = null;
+
+        for (int i = 0; i < reversePostorder.size(); i++) {
+            order.put(reversePostorder.get(i), i);
+        }
+
+        compute(predecessors);
+    }
+
+    private void compute(Map<Block, List<Block>> predecessors) {
+        var entry = reversePostorder.get(0);
+        idoms.put(entry, entry);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (var block : reversePostorder.subList(1, reversePostorder.size())) {
+                Block newIdom = null;
+
+                for (var predecessor : predecessors.get(block)) {
+                    if (idoms.containsKey(predecessor)) {
+                        newIdom = newIdom == null ? predecessor : intersect(predecessor, newIdom);
+                    }
+                }
+
+                if (idoms.get(block) != newIdom) {
+                    idoms.put(block, newIdom);
+                    changed = true;
+                }
+            }
+        }
+
+        // The entry is its own immediate dominator only during the computation
+        idoms.put(entry, null);
+
+        reversePostorder.forEach(block -> children.put(block, new ArrayList<>()));
+        for (var block : reversePostorder.subList(1, reversePostorder.size())) {
+            children.get(idoms.get(block)).add(block);
+        }
+    }
+
+    /**
+     * Each predecessor of a block is in the frontier of the blocks from it up to the immediate dominator of the block,
+     * not included.
+     */
+    private void computeFrontiers() {
+        frontiers = new HashMap<>();
+
+        for (var block : reversePostorder) {
+            for (var predecessor : predecessors.get(block)) {
+                if (!order.containsKey(predecessor)) {
+                    continue;
+                }
+
+                for (var runner = predecessor; runner != idoms.get(block); runner = idoms.get(runner)) {
+                    frontiers.computeIfAbsent(runner, key -> new LinkedHashSet<>()).add(block);
+                }
+            }
+        }
+    }
+
+    private Block intersect(Block first, Block second) {
+        while (first != second) {
+            while (order.get(first) > order.get(second)) {
+                first = idoms.get(first);
+            }
+
+            while (order.get(second) > order.get(first)) {
+                second = idoms.get(second);
+            }
+        }
+
+        return first;
+    }
+
+    /**
+     * @return the blocks reachable from the entry, each one before its successors except for back edges
+     */
+    public List<Block> getReversePostorder() {
+        return reversePostorder;
+    }
+
+    /**
+     * @return the immediate dominator of the block, or null for the entry and unreachable blocks
+     */
+    public Block getIdom(Block block) {
+        return idoms.get(block);
+    }
+
+    /**
+     * @return the blocks immediately dominated by the given one
+     */
+    public List<Block> getChildren(Block block) {
+        return children.getOrDefault(block, List.of());
+    }
+
+    /**
+     * @return the dominance frontier of the block, the blocks it does not strictly dominate but dominates a predecessor
+     * of
+     */
+    public Set<Block> getFrontier(Block block) {
+        if (frontiers == null) {
+            computeFrontiers();
+        }
+
+        return frontiers.getOrDefault(block, Set.of());
+    }
+
+    /**
+     * @return true if {@code dominator} dominates {@code block}, a block dominates itself
+     */
+    public boolean dominates(Block dominator, Block block) {
+        if (!order.containsKey(block)) {
+            return false;
+        }
+
+        for (var current = block; current != null; current = idoms.get(current)) {
+            if (current == dominator) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
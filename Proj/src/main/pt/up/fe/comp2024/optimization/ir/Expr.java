@@ -0,0 +1,53 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Right-hand side of an assignment, or the condition of a branch.
+ * <p>
+ * Expressions are immutable and only have values as operands, as in OLLIR. Two expressions are equal if they compute
+ * the same operation on equal operands, which does not mean they give the same result if they read memory.
+ */
+public abstract class Expr {
+
+    /**
+     * @return OLLIR type of the result, without the leading dot (e.g., i32, array.i32, or the name of a class)
+     */
+    public abstract String getType();
+
+    public abstract List<Value> getOperands();
+
+    /**
+     * @return an expression equal to this one, but with each operand replaced by the result of the function
+     */
+    public abstract Expr mapOperands(UnaryOperator<Value> function);
+
+    /**
+     * @return true if evaluating the expression can change the state of the program, other than by throwing
+     */
+    public boolean hasSideEffects() {
+        return false;
+    }
+
+    /**
+     * @return true if evaluating the expression can throw an exception
+     */
+    public boolean canThrow() {
+        return false;
+    }
+
+    /**
+     * @return true if the result depends on the contents of objects or arrays, and not only on the operands
+     */
+    public boolean readsMemory() {
+        return false;
+    }
+
+    public abstract String toOllir();
+
+    @Override
+    public String toString() {
+        return toOllir();
+    }
+}
@@ -0,0 +1,66 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+public class GetField extends Expr {
+
+    private final Value object;
+    private final String field;
+    private final String type;
+
+    public GetField(Value object, String field, String type) {
+        this.object = object;
+        this.field = field;
+        this.type = type;
+    }
+
+    public Value getObject() {
+        return object;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public List<Value> getOperands() {
+        return List.of(object);
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        return new GetField(function.apply(object), field, type);
+    }
+
+    @Override
+    public boolean canThrow() {
+        return !(object instanceof This);
+    }
+
+    @Override
+    public boolean readsMemory() {
+        return true;
+    }
+
+    @Override
+    public String toOllir() {
+        return "getfield(" + object.toOllir() + ", " + field + "." + type + ")." + type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GetField getField && object.equals(getField.object) && field.equals(getField.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(object, field);
+    }
+}
@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Instruction of a basic block. Instructions are mutable, so that passes can rewrite their operands in place.
+ */
+public abstract class Instr {
+
+    /**
+     * @return the variable assigned by the instruction, or null
+     */
+    public Var getDef() {
+        return null;
+    }
+
+    /**
+     * @return the values read by the instruction
+     */
+    public abstract List<Value> getUses();
+
+    /**
+     * Replaces each value read by the instruction by the result of the function.
+     */
+    public abstract void mapUses(UnaryOperator<Value> function);
+
+    /**
+     * @return the call made by the instruction, or null
+     */
+    public CallExpr getCall() {
+        return null;
+    }
+
+    /**
+     * @return true if the instruction changes the state of the program other than by assigning its variable
+     */
+    public abstract boolean hasSideEffects();
+
+    public abstract boolean canThrow();
+
+    /**
+     * @return a new instruction equal to this one, but with each value it reads or assigns replaced by the result of
+     * the function. Terminators go to the same blocks.
+     */
+    public abstract Instr copy(UnaryOperator<Value> function);
+
+    public abstract String toOllir();
+
+    @Override
+    public String toString() {
+        return toOllir();
+    }
+}
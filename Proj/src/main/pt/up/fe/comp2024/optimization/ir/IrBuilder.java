@@ -0,0 +1,300 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Builds the {@link IrClass} of a parsed OLLIR class.
+ * <p>
+ * Throws {@link NotImplementedException} for instructions the OLLIR generator does not produce, such as ldc.
+ */
+public class IrBuilder {
+
+    private final ClassUnit classUnit;
+
+    private IrBuilder(ClassUnit classUnit) {
+        this.classUnit = classUnit;
+    }
+
+    public static IrClass build(ClassUnit classUnit) {
+        return new IrBuilder(classUnit).buildClass();
+    }
+
+    private IrClass buildClass() {
+        var irClass = new IrClass(classUnit.getClassName(), classUnit.getSuperClass(), classUnit.getImports());
+
+        for (var field : classUnit.getFields()) {
+            var modifiers = getModifiers(field.getFieldAccessModifier(), field.isStaticField(), field.isFinalField());
+            irClass.getFields().add(new IrField(modifiers, field.getFieldName(), toType(field.getFieldType())));
+        }
+
+        for (var method : classUnit.getMethods()) {
+            if (!method.isConstructMethod()) {
+                irClass.getMethods().add(buildMethod(irClass, method));
+            }
+        }
+
+        return irClass;
+    }
+
+    private IrMethod buildMethod(IrClass irClass, Method method) {
+        var modifiers = getModifiers(method.getMethodAccessModifier(), method.isStaticMethod(), method.isFinalMethod());
+        if (method.isVarargs()) {
+            modifiers = modifiers.isEmpty() ? "varargs" : modifiers + " varargs";
+        }
+
+        var params = method.getParams().stream().map(param -> (Var) toValue(param)).toList();
+        var irMethod = new IrMethod(irClass, modifiers, method.isStaticMethod(), method.getMethodName(), params,
+                toType(method.getReturnType()));
+
+        method.getVarTable().keySet().forEach(irMethod::addName);
+        method.getLabels().keySet().forEach(irMethod::addName);
+
+        buildBlocks(irMethod, method);
+
+        return irMethod;
+    }
+
+    private void buildBlocks(IrMethod irMethod, Method method) {
+        var instructions = method.getInstructions();
+
+        // Blocks start at labels and after jumps, each one indexed by its first instruction
+        var blockStarts = new HashMap<Integer, Block>();
+        var labelBlocks = new HashMap<String, Block>();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            var labels = method.getLabels(instructions.get(i));
+            boolean afterJump = i > 0 && isJump(instructions.get(i - 1));
+
+            if (i == 0 || afterJump || !labels.isEmpty()) {
+                var block = labels.isEmpty() ? irMethod.newBlock("block") : new Block(labels.get(0));
+                blockStarts.put(i, block);
+                irMethod.getBlocks().add(block);
+                labels.forEach(label -> labelBlocks.put(label, block));
+            }
+        }
+
+        // Labels at the end of the method, after the last instruction
+        Block endBlock = null;
+        for (var label : method.getLabels().entrySet()) {
+            if (!labelBlocks.containsKey(label.getKey())) {
+                if (endBlock == null) {
+                    endBlock = new Block(label.getKey());
+                }
+                labelBlocks.put(label.getKey(), endBlock);
+            }
+        }
+
+        Block current = null;
+        for (int i = 0; i < instructions.size(); i++) {
+            var start = blockStarts.get(i);
+
+            if (start != null) {
+                if (current != null && current.getTerminator() == null) {
+                    current.setTerminator(new Jump(start));
+                }
+                current = start;
+            }
+
+            var instruction = instructions.get(i);
+            var next = i + 1 < instructions.size() ? blockStarts.get(i + 1) : endBlock;
+
+            if (instruction instanceof GotoInstruction gotoInstr) {
+                current.setTerminator(new Jump(labelBlocks.get(gotoInstr.getLabel())));
+            } else if (instruction instanceof CondBranchInstruction branch) {
+                current.setTerminator(new Branch(toExpr(branch.getCondition()), labelBlocks.get(branch.getLabel()),
+                        getNext(next, irMethod)));
+            } else if (instruction instanceof ReturnInstruction ret) {
+                current.setTerminator(toReturn(ret));
+            } else {
+                addInstr(current, instruction, irMethod);
+            }
+        }
+
+        if (current != null && current.getTerminator() == null) {
+            current.setTerminator(new Jump(getNext(endBlock, irMethod)));
+        }
+
+        if (endBlock != null) {
+            irMethod.getBlocks().add(endBlock);
+            endBlock.setTerminator(new Return(null, irMethod.getReturnType()));
+        }
+    }
+
+    private static boolean isJump(Instruction instruction) {
+        return instruction instanceof GotoInstruction || instruction instanceof CondBranchInstruction
+                || instruction instanceof ReturnInstruction;
+    }
+
+    private static Block getNext(Block next, IrMethod irMethod) {
+        if (next == null) {
+            throw new RuntimeException("Method '" + irMethod.getName() + "' ends without a return");
+        }
+
+        return next;
+    }
+
+    private Return toReturn(ReturnInstruction ret) {
+        var value = ret.hasReturnValue() ? toValue(ret.getOperand()) : null;
+
+        return new Return(value, toType(ret.getReturnType()));
+    }
+
+    private void addInstr(Block block, Instruction instruction, IrMethod irMethod) {
+        var instrs = block.getInstrs();
+
+        if (instruction instanceof AssignInstruction assign) {
+            addAssign(instrs, assign, irMethod);
+        } else if (instruction instanceof PutFieldInstruction putField) {
+            instrs.add(new PutFieldInstr(toValue(putField.getObject()), putField.getField().getName(),
+                    toType(putField.getField().getType()), toValue(putField.getValue())));
+        } else if (instruction instanceof CallInstruction call) {
+            instrs.add(new CallInstr((CallExpr) toCall(call)));
+        } else {
+            throw new NotImplementedException(instruction.getInstType());
+        }
+    }
+
+    private void addAssign(List<Instr> instrs, AssignInstruction assign, IrMethod irMethod) {
+        var rhs = toExpr(assign.getRhs());
+
+        if (!(assign.getDest() instanceof ArrayOperand arrayDest)) {
+            instrs.add(new AssignInstr((Var) toValue(assign.getDest()), rhs));
+            return;
+        }
+
+        // Array stores only take values, other expressions are assigned to a temporary first
+        Value value;
+        if (rhs instanceof Value rhsValue) {
+            value = rhsValue;
+        } else {
+            value = irMethod.newVar("tmp", rhs.getType());
+            instrs.add(new AssignInstr((Var) value, rhs));
+        }
+
+        instrs.add(new ArrayStoreInstr(toArrayVar(arrayDest), toValue(arrayDest.getIndexOperands().get(0)), value));
+    }
+
+    private Expr toExpr(Instruction instruction) {
+        if (instruction instanceof SingleOpInstruction single) {
+            return single.getSingleOperand() instanceof ArrayOperand array
+                    ? new ArrayLoad(toArrayVar(array), toValue(array.getIndexOperands().get(0)), toType(array.getType()))
+                    : toValue(single.getSingleOperand());
+        }
+
+        if (instruction instanceof BinaryOpInstruction binary) {
+            return new BinaryExpr(binary.getOperation().getOpType(), toValue(binary.getLeftOperand()),
+                    toValue(binary.getRightOperand()), toType(binary.getOperation().getTypeInfo()));
+        }
+
+        if (instruction instanceof UnaryOpInstruction unary) {
+            return new UnaryExpr(unary.getOperation().getOpType(), toValue(unary.getOperand()),
+                    toType(unary.getOperation().getTypeInfo()));
+        }
+
+        if (instruction instanceof GetFieldInstruction getField) {
+            return new GetField(toValue(getField.getObject()), getField.getField().getName(),
+                    toType(getField.getField().getType()));
+        }
+
+        if (instruction instanceof CallInstruction call) {
+            return toCall(call);
+        }
+
+        throw new NotImplementedException(instruction.getInstType());
+    }
+
+    private Expr toCall(CallInstruction call) {
+        var callType = call.getInvocationType();
+
+        return switch (callType) {
+            case NEW -> ((Operand) call.getCaller()).getName().equals("array")
+                    ? new NewArray(toValue(call.getArguments().get(0)), toType(call.getReturnType()))
+                    : new NewObject(((Operand) call.getCaller()).getName());
+            case arraylength -> new ArrayLength(toValue(call.getCaller()));
+            case invokestatic, invokevirtual, invokespecial -> {
+                var methodName = ((LiteralElement) call.getMethodName()).getLiteral().replace("\"", "");
+                var arguments = call.getArguments().stream().map(this::toValue).toList();
+
+                yield new CallExpr(callType, toValue(call.getCaller()), methodName, arguments,
+                        toType(call.getReturnType()));
+            }
+            default -> throw new NotImplementedException(callType);
+        };
+    }
+
+    private Var toArrayVar(ArrayOperand array) {
+        // The type of the operand is the type of the element
+        return new Var(array.getName(), "array." + toType(array.getType()));
+    }
+
+    private Value toValue(Element element) {
+        if (element instanceof LiteralElement literal) {
+            var type = toType(literal.getType());
+            if (!type.equals(Value.INT) && !type.equals(Value.BOOL)) {
+                throw new NotImplementedException("literal " + literal.getLiteral());
+            }
+
+            return new Literal(toInt(literal.getLiteral()), type);
+        }
+
+        var operand = (Operand) element;
+
+        // The parser reads true.bool and false.bool as variables
+        if (operand.getName().equals("true") || operand.getName().equals("false")) {
+            return Literal.ofBool(operand.getName().equals("true"));
+        }
+
+        return switch (operand.getType().getTypeOfElement()) {
+            case THIS -> new This(classUnit.getClassName());
+            case CLASS -> new ClassRef(operand.getName());
+            default -> operand.getName().equals("this")
+                    ? new This(classUnit.getClassName())
+                    : new Var(operand.getName(), toType(operand.getType()));
+        };
+    }
+
+    private static int toInt(String literal) {
+        return switch (literal) {
+            case "true" -> 1;
+            case "false" -> 0;
+            default -> Integer.parseInt(literal);
+        };
+    }
+
+    /**
+     * @return the OLLIR type, without the leading dot
+     */
+    static String toType(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> Value.INT;
+            case BOOLEAN -> Value.BOOL;
+            case VOID -> Value.VOID;
+            case STRING -> "String";
+            case ARRAYREF -> "array." + toType(((ArrayType) type).getElementType());
+            case OBJECTREF, CLASS, THIS -> ((ClassType) type).getName();
+        };
+    }
+
+    private static String getModifiers(AccessModifier access, boolean isStatic, boolean isFinal) {
+        var modifiers = new ArrayList<String>();
+
+        if (access != AccessModifier.DEFAULT) {
+            modifiers.add(access.name().toLowerCase());
+        }
+
+        if (isStatic) {
+            modifiers.add("static");
+        }
+
+        if (isFinal) {
+            modifiers.add("final");
+        }
+
+        return String.join(" ", modifiers);
+    }
+}
@@ -0,0 +1,90 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Internal representation of an OLLIR class, that optimizations change before it is printed back as OLLIR.
+ * <p>
+ * The constructor is not kept, since classes of Java-- always have the default one.
+ */
+public class IrClass {
+
+    private final String name;
+    private final String superClass;
+    private final List<String> imports;
+    private final List<IrField> fields;
+    private final List<IrMethod> methods;
+
+    /**
+     * @param superClass name of the superclass, or null
+     */
+    public IrClass(String name, String superClass, List<String> imports) {
+        this.name = name;
+        this.superClass = superClass;
+        this.imports = List.copyOf(imports);
+        this.fields = new ArrayList<>();
+        this.methods = new ArrayList<>();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return name of the superclass, or null
+     */
+    public String getSuperClass() {
+        return superClass;
+    }
+
+    public List<String> getImports() {
+        return imports;
+    }
+
+    public List<IrField> getFields() {
+        return fields;
+    }
+
+    public List<IrMethod> getMethods() {
+        return methods;
+    }
+
+    public Optional<IrMethod> getMethod(String methodName) {
+        return methods.stream().filter(method -> method.getName().equals(methodName)).findFirst();
+    }
+
+    public String toOllir() {
+        var code = new StringBuilder();
+
+        for (var anImport : imports) {
+            code.append("import ").append(anImport).append(";\n");
+        }
+
+        code.append(name);
+        if (superClass != null) {
+            code.append(" extends ").append(superClass);
+        }
+        code.append(" {\n");
+
+        for (var field : fields) {
+            code.append(field.toOllir()).append("\n");
+        }
+
+        code.append(".construct ").append(name).append("().V {\n");
+        code.append("invokespecial(this, \"<init>\").V;\n");
+        code.append("}\n");
+
+        for (var method : methods) {
+            code.append("\n").append(method.toOllir());
+        }
+
+        return code.append("}\n").toString();
+    }
+
+    @Override
+    public String toString() {
+        return toOllir();
+    }
+}
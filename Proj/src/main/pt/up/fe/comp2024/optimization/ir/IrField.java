@@ -0,0 +1,31 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+public class IrField {
+
+    private final String modifiers;
+    private final String name;
+    private final String type;
+
+    /**
+     * @param modifiers OLLIR modifiers of the field, e.g., "public static", or an empty string
+     */
+    public IrField(String modifiers, String name, String type) {
+        this.modifiers = modifiers;
+        this.name = name;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String toOllir() {
+        var prefix = modifiers.isEmpty() ? ".field " : ".field " + modifiers + " ";
+
+        return prefix + name + "." + type + ";";
+    }
+}
@@ -0,0 +1,329 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Method as a control-flow graph of basic blocks.
+ * <p>
+ * The blocks are kept in the order they are printed, and the first one is the entry. Jumps to the next block are not
+ * printed, so the order only changes the size of the code.
+ */
+public class IrMethod {
+
+    private final IrClass owner;
+    private final String modifiers;
+    private final boolean isStatic;
+    private final String name;
+    private final List<Var> params;
+    private final String returnType;
+    private final List<Block> blocks;
+
+    // Names of variables and labels, new ones must not clash with them
+    private final Set<String> names;
+    // Number after which to look for a free name with each prefix
+    private final Map<String, Integer> nextNumbers;
+
+    /**
+     * @param modifiers OLLIR modifiers of the method, e.g., "public static", or an empty string
+     */
+    public IrMethod(IrClass owner, String modifiers, boolean isStatic, String name, List<Var> params,
+                    String returnType) {
+        this.owner = owner;
+        this.modifiers = modifiers;
+        this.isStatic = isStatic;
+        this.name = name;
+        this.params = new ArrayList<>(params);
+        this.returnType = returnType;
+        this.blocks = new ArrayList<>();
+        this.names = new HashSet<>();
+        this.nextNumbers = new HashMap<>();
+
+        params.forEach(param -> names.add(param.getName()));
+    }
+
+    public IrClass getOwner() {
+        return owner;
+    }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Var> getParams() {
+        return params;
+    }
+
+    public String getReturnType() {
+        return returnType;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public Block getEntry() {
+        return blocks.get(0);
+    }
+
+    /**
+     * Moves the code of the method to a new static method with the given name and the same parameters, and leaves this
+     * method without blocks.
+     *
+     * @return the static method, which must still be added to the class
+     */
+    public IrMethod moveToStatic(String staticName) {
+        var words = new ArrayList<>(List.of(modifiers.split(" ")));
+        words.remove("");
+        // Modifiers start with the access, if any
+        boolean hasAccess = !words.isEmpty() && List.of("public", "private", "protected").contains(words.get(0));
+        words.add(hasAccess ? 1 : 0, "static");
+
+        var staticMethod = new IrMethod(owner, String.join(" ", words), true, staticName, params, returnType);
+        staticMethod.names.addAll(names);
+        staticMethod.nextNumbers.putAll(nextNumbers);
+        staticMethod.blocks.addAll(blocks);
+        blocks.clear();
+
+        return staticMethod;
+    }
+
+    /**
+     * @return a method with the given name and a copy of the code of this one, which must still be added to the class
+     */
+    public IrMethod copy(String copyName) {
+        var copy = new IrMethod(owner, modifiers, isStatic, copyName, params, returnType);
+        copy.names.addAll(names);
+        copy.nextNumbers.putAll(nextNumbers);
+
+        var copies = new HashMap<Block, Block>();
+        for (var block : blocks) {
+            copies.put(block, new Block(block.getLabel()));
+        }
+
+        for (var block : blocks) {
+            var blockCopy = copies.get(block);
+
+            for (var instr : block.getInstrs()) {
+                blockCopy.getInstrs().add(instr.copy(UnaryOperator.identity()));
+            }
+
+            var terminator = (Terminator) block.getTerminator().copy(UnaryOperator.identity());
+            for (var successor : block.getSuccessors()) {
+                terminator.replaceSuccessor(successor, copies.get(successor));
+            }
+            blockCopy.setTerminator(terminator);
+
+            copy.blocks.add(blockCopy);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Reserves a name, so that variables and labels created later do not use it.
+     */
+    public void addName(String name) {
+        names.add(name);
+    }
+
+    /**
+     * @return a variable whose name was not used in the method
+     */
+    public Var newVar(String prefix, String type) {
+        return new Var(newName(prefix), type);
+    }
+
+    /**
+     * @return a block with a label that was not used in the method, which must still be added to the blocks
+     */
+    public Block newBlock(String prefix) {
+        return new Block(newName(prefix));
+    }
+
+    private String newName(String prefix) {
+        for (int number = nextNumbers.getOrDefault(prefix, 0); ; number++) {
+            var name = prefix + number;
+
+            if (names.add(name)) {
+                nextNumbers.put(prefix, number + 1);
+                return name;
+            }
+        }
+    }
+
+    /**
+     * @return the predecessors of each block, in the order of the blocks
+     */
+    public Map<Block, List<Block>> getPredecessors() {
+        var predecessors = new LinkedHashMap<Block, List<Block>>();
+        blocks.forEach(block -> predecessors.put(block, new ArrayList<>()));
+
+        for (var block : blocks) {
+            for (var successor : block.getSuccessors()) {
+                predecessors.get(successor).add(block);
+            }
+        }
+
+        return predecessors;
+    }
+
+    /**
+     * @return the blocks reachable from the entry, each one before its successors except for back edges
+     */
+    public List<Block> getReversePostorder() {
+        var postorder = new ArrayList<Block>();
+        var visited = new HashSet<Block>();
+
+        // Iterative depth-first search, each entry is a block and the index of the next successor to visit
+        var stack = new ArrayDeque<Object[]>();
+        stack.push(new Object[]{getEntry(), 0});
+        visited.add(getEntry());
+
+        while (!stack.isEmpty()) {
+            var top = stack.peek();
+            var block = (Block) top[0];
+            var successors = block.getSuccessors();
+            int next = (int) top[1];
+
+            if (next == successors.size()) {
+                postorder.add(block);
+                stack.pop();
+                continue;
+            }
+
+            top[1] = next + 1;
+            var successor = successors.get(next);
+            if (visited.add(successor)) {
+                stack.push(new Object[]{successor, 0});
+            }
+        }
+
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+    /**
+     * Removes the blocks that cannot be reached from the entry.
+     *
+     * @return true if a block was removed
+     */
+    public boolean removeUnreachableBlocks() {
+        var reachable = new HashSet<>(getReversePostorder());
+
+        return blocks.removeIf(block -> !reachable.contains(block));
+    }
+
+    /**
+     * Makes jumps to blocks that only jump to another block go to that block instead, and removes the blocks that are
+     * no longer reachable. Branches that go to the same block either way become jumps.
+     *
+     * @return true if a block was removed
+     */
+    public boolean removeEmptyBlocks() {
+        for (var block : blocks) {
+            if (!block.getInstrs().isEmpty() || !(block.getTerminator() instanceof Jump jump)) {
+                continue;
+            }
+
+            var target = jump.getTarget();
+            if (target == block) {
+                continue;
+            }
+
+            for (var other : blocks) {
+                other.getTerminator().replaceSuccessor(block, target);
+            }
+        }
+
+        // Branches to two blocks that only jumped to the same block now always go there
+        for (var block : blocks) {
+            if (block.getTerminator() instanceof Branch branch && branch.getIfTrue() == branch.getIfFalse()
+                    && !branch.canThrow()) {
+                block.setTerminator(new Jump(branch.getIfTrue()));
+            }
+        }
+
+        // The entry may be an empty block, which is replaced by the block it jumps to, unless other blocks also jump
+        // there, since the entry must not be the target of jumps
+        var entry = getEntry();
+        var predecessors = getPredecessors();
+        if (entry.getInstrs().isEmpty() && entry.getTerminator() instanceof Jump jump && jump.getTarget() != entry
+                && predecessors.get(entry).isEmpty() && predecessors.get(jump.getTarget()).size() == 1) {
+            blocks.remove(jump.getTarget());
+            blocks.set(0, jump.getTarget());
+        }
+
+        return removeUnreachableBlocks();
+    }
+
+    public String toOllir() {
+        var code = new StringBuilder(".method ");
+
+        if (!modifiers.isEmpty()) {
+            code.append(modifiers).append(" ");
+        }
+
+        code.append(name).append("(");
+        for (int i = 0; i < params.size(); i++) {
+            code.append(i == 0 ? "" : ", ").append(params.get(i).toOllir());
+        }
+        code.append(").").append(returnType).append(" {\n");
+
+        // Jumps to the next block fall through, so only the labels of other jumps are printed
+        var jumps = new ArrayList<String>();
+        var targets = new HashSet<Block>();
+
+        for (int i = 0; i < blocks.size(); i++) {
+            var next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+            var terminator = blocks.get(i).getTerminator();
+
+            // The next block is not a target when it is only reached by falling through
+            if (terminator instanceof Jump goTo && goTo.getTarget() == next) {
+                jumps.add("");
+            } else if (terminator instanceof Branch branch && branch.getIfFalse() == next) {
+                jumps.add(branch.toOllir() + "\n");
+                targets.add(branch.getIfTrue());
+            } else if (terminator instanceof Branch branch) {
+                jumps.add(branch.toOllir() + "\ngoto " + branch.getIfFalse().getLabel() + ";\n");
+                targets.addAll(terminator.getSuccessors());
+            } else {
+                jumps.add(terminator.toOllir() + "\n");
+                targets.addAll(terminator.getSuccessors());
+            }
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+
+            if (targets.contains(block)) {
+                code.append(block.getLabel()).append(":\n");
+            }
+
+            for (var instr : block.getInstrs()) {
+                code.append(instr.toOllir()).append("\n");
+            }
+
+            code.append(jumps.get(i));
+        }
+
+        return code.append("}\n").toString();
+    }
+
+    @Override
+    public String toString() {
+        return toOllir();
+    }
+}
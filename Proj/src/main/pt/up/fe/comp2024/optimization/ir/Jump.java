@@ -0,0 +1,48 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class Jump extends Terminator {
+
+    private Block target;
+
+    public Jump(Block target) {
+        this.target = target;
+    }
+
+    public Block getTarget() {
+        return target;
+    }
+
+    @Override
+    public List<Block> getSuccessors() {
+        return List.of(target);
+    }
+
+    @Override
+    public void replaceSuccessor(Block from, Block to) {
+        if (target == from) {
+            target = to;
+        }
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of();
+    }
+
+    @Override
+    public void mapUses(UnaryOperator<Value> function) {
+    }
+
+    @Override
+    public Instr copy(UnaryOperator<Value> function) {
+        return new Jump(target);
+    }
+
+    @Override
+    public String toOllir() {
+        return "goto " + target.getLabel() + ";";
+    }
+}
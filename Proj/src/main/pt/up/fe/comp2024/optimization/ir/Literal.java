@@ -0,0 +1,47 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * Integer or boolean constant. Booleans are 0 or 1.
+ */
+public class Literal extends Value {
+
+    private final int value;
+    private final String type;
+
+    public Literal(int value, String type) {
+        this.value = value;
+        this.type = type;
+    }
+
+    public static Literal ofInt(int value) {
+        return new Literal(value, INT);
+    }
+
+    public static Literal ofBool(boolean value) {
+        return new Literal(value ? 1 : 0, BOOL);
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String toOllir() {
+        return value + "." + type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Literal literal && value == literal.value && type.equals(literal.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * value + type.hashCode();
+    }
+}
@@ -0,0 +1,129 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Variables live at the start and at the end of each block of a method, those whose value may still be read before
+ * they are assigned again.
+ * <p>
+ * The values of a phi are read at the end of the predecessors they come from, and its variable is assigned at the
+ * start of its block. Blocks that cannot be reached from the entry have no live variables.
+ */
+public class Liveness {
+
+    private final List<Var> vars;
+    private final Map<Var, Integer> indexes;
+    private final Map<Block, BitSet> liveIn;
+    private final Map<Block, BitSet> liveOut;
+
+    public Liveness(IrMethod method) {
+        this.vars = new ArrayList<>();
+        this.indexes = new HashMap<>();
+        this.liveIn = new HashMap<>();
+        this.liveOut = new HashMap<>();
+
+        compute(method);
+    }
+
+    private int getIndex(Var var) {
+        return indexes.computeIfAbsent(var, key -> {
+            vars.add(key);
+            return vars.size() - 1;
+        });
+    }
+
+    private void compute(IrMethod method) {
+        // Variables read before they are assigned in each block, and variables assigned in each block
+        var used = new HashMap<Block, BitSet>();
+        var assigned = new HashMap<Block, BitSet>();
+        // Values of the phis of the successors that each block gives
+        var phiUses = new HashMap<Block, BitSet>();
+
+        var postorder = new ArrayList<>(method.getReversePostorder());
+        Collections.reverse(postorder);
+
+        for (var block : postorder) {
+            var blockUsed = new BitSet();
+            var blockAssigned = new BitSet();
+
+            for (var instr : block.getAllInstrs()) {
+                if (instr instanceof Phi phi) {
+                    phi.getValues().forEach((predecessor, value) -> {
+                        if (value instanceof Var var) {
+                            phiUses.computeIfAbsent(predecessor, key -> new BitSet()).set(getIndex(var));
+                        }
+                    });
+                } else {
+                    for (var use : instr.getUses()) {
+                        if (use instanceof Var var && !blockAssigned.get(getIndex(var))) {
+                            blockUsed.set(getIndex(var));
+                        }
+                    }
+                }
+
+                if (instr.getDef() != null) {
+                    blockAssigned.set(getIndex(instr.getDef()));
+                }
+            }
+
+            used.put(block, blockUsed);
+            assigned.put(block, blockAssigned);
+            liveIn.put(block, new BitSet());
+            liveOut.put(block, new BitSet());
+        }
+
+        // Blocks are visited after their successors, so that loops need few iterations
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (var block : postorder) {
+                var out = (BitSet) phiUses.getOrDefault(block, new BitSet()).clone();
+                for (var successor : block.getSuccessors()) {
+                    out.or(liveIn.get(successor));
+                }
+
+                var in = (BitSet) out.clone();
+                in.andNot(assigned.get(block));
+                in.or(used.get(block));
+
+                if (!in.equals(liveIn.get(block)) || !out.equals(liveOut.get(block))) {
+                    liveIn.put(block, in);
+                    liveOut.put(block, out);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private Set<Var> toVars(BitSet bits) {
+        var set = new LinkedHashSet<Var>();
+
+        if (bits != null) {
+            bits.stream().forEach(index -> set.add(vars.get(index)));
+        }
+
+        return set;
+    }
+
+    /**
+     * @return the variables live at the start of the block, not including the variables of its phis
+     */
+    public Set<Var> getLiveIn(Block block) {
+        return toVars(liveIn.get(block));
+    }
+
+    /**
+     * @return the variables live at the end of the block, including the values it gives to the phis of its successors
+     */
+    public Set<Var> getLiveOut(Block block) {
+        return toVars(liveOut.get(block));
+    }
+}
@@ -0,0 +1,177 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.OperationType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Natural loop: a header that dominates the blocks of the loop, and the back edges that jump to it.
+ * <p>
+ * Back edges with the same header form a single loop.
+ */
+public class Loop {
+
+    private final Block header;
+    private final Set<Block> blocks;
+    private final List<Block> latches;
+
+    private Loop(Block header) {
+        this.header = header;
+        this.blocks = new LinkedHashSet<>();
+        this.latches = new ArrayList<>();
+    }
+
+    /**
+     * @return the loops of the method, inner loops before the loops that contain them
+     */
+    public static List<Loop> findLoops(IrMethod method, Dominators dominators) {
+        var loops = new LinkedHashMap<Block, Loop>();
+        var predecessors = method.getPredecessors();
+
+        for (var block : dominators.getReversePostorder()) {
+            for (var successor : block.getSuccessors()) {
+                if (dominators.dominates(successor, block)) {
+                    loops.computeIfAbsent(successor, Loop::new).latches.add(block);
+                }
+            }
+        }
+
+        for (var loop : loops.values()) {
+            loop.blocks.add(loop.header);
+
+            // The loop has the blocks that reach a latch without going through the header
+            var worklist = new ArrayDeque<>(loop.latches);
+            while (!worklist.isEmpty()) {
+                var block = worklist.pop();
+
+                if (loop.blocks.add(block)) {
+                    worklist.addAll(predecessors.get(block));
+                }
+            }
+        }
+
+        var sorted = new ArrayList<>(loops.values());
+        sorted.sort(Comparator.comparingInt(loop -> loop.blocks.size()));
+
+        return sorted;
+    }
+
+    public Block getHeader() {
+        return header;
+    }
+
+    public Set<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return the blocks with a back edge to the header
+     */
+    public List<Block> getLatches() {
+        return latches;
+    }
+
+    public boolean contains(Block block) {
+        return blocks.contains(block);
+    }
+
+    /**
+     * @return the blocks of the loop that can jump out of it
+     */
+    public List<Block> getExitingBlocks() {
+        return blocks.stream()
+                .filter(block -> block.getSuccessors().stream().anyMatch(successor -> !contains(successor)))
+                .toList();
+    }
+
+    /**
+     * @return the counters of the loop, variables assigned once in the loop to their value plus a constant, with the
+     * constant they are increased by
+     */
+    public Map<Var, Integer> getCounters() {
+        var defs = new HashMap<Var, Instr>();
+        var assignedMoreThanOnce = new HashSet<Var>();
+
+        for (var block : blocks) {
+            for (var instr : block.getInstrs()) {
+                var def = instr.getDef();
+
+                if (def != null && defs.put(def, instr) != null) {
+                    assignedMoreThanOnce.add(def);
+                }
+            }
+        }
+
+        var counters = new LinkedHashMap<Var, Integer>();
+        defs.forEach((var, instr) -> {
+            if (!assignedMoreThanOnce.contains(var) && instr instanceof AssignInstr assign) {
+                var step = getStep(var, assign.getRhs());
+
+                if (step != null) {
+                    counters.put(var, step);
+                }
+            }
+        });
+
+        return counters;
+    }
+
+    /**
+     * @return the constant the expression adds to the variable, or null if it is not the variable plus or minus a
+     * constant
+     */
+    public static Integer getStep(Var var, Expr expr) {
+        if (!(expr instanceof BinaryExpr binary)) {
+            return null;
+        }
+
+        if (binary.getOperation() == OperationType.ADD && var.equals(binary.getLeft())
+                && binary.getRight() instanceof Literal step) {
+            return step.getValue();
+        }
+
+        if (binary.getOperation() == OperationType.ADD && var.equals(binary.getRight())
+                && binary.getLeft() instanceof Literal step) {
+            return step.getValue();
+        }
+
+        if (binary.getOperation() == OperationType.SUB && var.equals(binary.getLeft())
+                && binary.getRight() instanceof Literal step) {
+            return -step.getValue();
+        }
+
+        return null;
+    }
+
+    /**
+     * Makes every entry into the loop go through a single block outside the loop that jumps to the header. Code
+     * placed in the preheader runs once each time the loop is entered.
+     *
+     * @return the preheader, which may be a block that already existed
+     */
+    public Block getOrCreatePreheader(IrMethod method) {
+        var outside = method.getPredecessors().get(header).stream().filter(block -> !contains(block)).toList();
+
+        if (outside.size() == 1 && outside.get(0).getTerminator() instanceof Jump) {
+            return outside.get(0);
+        }
+
+        var preheader = method.newBlock("preheader");
+        preheader.setTerminator(new Jump(header));
+        outside.forEach(block -> block.getTerminator().replaceSuccessor(header, preheader));
+
+        var blocksOfMethod = method.getBlocks();
+        blocksOfMethod.add(blocksOfMethod.indexOf(header), preheader);
+
+        return preheader;
+    }
+}
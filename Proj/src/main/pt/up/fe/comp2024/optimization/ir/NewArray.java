@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+public class NewArray extends Expr {
+
+    private final Value size;
+    private final String type;
+
+    /**
+     * @param type type of the array, e.g., array.i32
+     */
+    public NewArray(Value size, String type) {
+        this.size = size;
+        this.type = type;
+    }
+
+    public Value getSize() {
+        return size;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public List<Value> getOperands() {
+        return List.of(size);
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        return new NewArray(function.apply(size), type);
+    }
+
+    // Each evaluation creates a different array
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    @Override
+    public boolean canThrow() {
+        // The size can be negative
+        return true;
+    }
+
+    @Override
+    public String toOllir() {
+        return "new(array, " + size.toOllir() + ")." + type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NewArray newArray && size.equals(newArray.size) && type.equals(newArray.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, type);
+    }
+}
@@ -0,0 +1,52 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Creates an object without calling its constructor, which is called by a following invokespecial.
+ */
+public class NewObject extends Expr {
+
+    private final String className;
+
+    public NewObject(String className) {
+        this.className = className;
+    }
+
+    @Override
+    public String getType() {
+        return className;
+    }
+
+    @Override
+    public List<Value> getOperands() {
+        return List.of();
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        return this;
+    }
+
+    // Each evaluation creates a different object
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    @Override
+    public String toOllir() {
+        return "new(" + className + ")." + className;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NewObject newObject && className.equals(newObject.className);
+    }
+
+    @Override
+    public int hashCode() {
+        return className.hashCode();
+    }
+}
@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Assigns the value that comes from the predecessor the block was entered from, in {@link Ssa} form. Phis are at the
+ * start of their block and all read their values before any of them is assigned.
+ * <p>
+ * OLLIR has no phis, so a method must leave SSA form before it is printed.
+ */
+public class Phi extends Instr {
+
+    private final Var dest;
+    private final Map<Block, Value> values;
+
+    public Phi(Var dest) {
+        this(dest, Map.of());
+    }
+
+    public Phi(Var dest, Map<Block, Value> values) {
+        this.dest = dest;
+        this.values = new LinkedHashMap<>(values);
+    }
+
+    public Var getDest() {
+        return dest;
+    }
+
+    /**
+     * @return the value coming from each predecessor of the block
+     */
+    public Map<Block, Value> getValues() {
+        return values;
+    }
+
+    public void setValue(Block predecessor, Value value) {
+        values.put(predecessor, value);
+    }
+
+    @Override
+    public Var getDef() {
+        return dest;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return new ArrayList<>(values.values());
+    }
+
+    @Override
+    public void mapUses(UnaryOperator<Value> function) {
+        values.replaceAll((predecessor, value) -> function.apply(value));
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+
+    @Override
+    public boolean canThrow() {
+        return false;
+    }
+
+    /**
+     * @return a new phi with the values coming from the same predecessors
+     */
+    @Override
+    public Instr copy(UnaryOperator<Value> function) {
+        var copy = new Phi((Var) function.apply(dest), values);
+        copy.mapUses(function);
+
+        return copy;
+    }
+
+    @Override
+    public String toOllir() {
+        var code = new StringBuilder(dest.toOllir()).append(" :=.").append(dest.getType()).append(" phi(");
+
+        var separator = "";
+        for (var entry : values.entrySet()) {
+            code.append(separator).append(entry.getKey().getLabel()).append(": ").append(entry.getValue().toOllir());
+            separator = ", ";
+        }
+
+        return code.append(");").toString();
+    }
+}
@@ -0,0 +1,62 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class PutFieldInstr extends Instr {
+
+    private Value object;
+    private final String field;
+    private final String type;
+    private Value value;
+
+    public PutFieldInstr(Value object, String field, String type, Value value) {
+        this.object = object;
+        this.field = field;
+        this.type = type;
+        this.value = value;
+    }
+
+    public Value getObject() {
+        return object;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(object, value);
+    }
+
+    @Override
+    public void mapUses(UnaryOperator<Value> function) {
+        object = function.apply(object);
+        value = function.apply(value);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    @Override
+    public boolean canThrow() {
+        return !(object instanceof This);
+    }
+
+    @Override
+    public Instr copy(UnaryOperator<Value> function) {
+        return new PutFieldInstr(function.apply(object), field, type, function.apply(value));
+    }
+
+    @Override
+    public String toOllir() {
+        return "putfield(" + object.toOllir() + ", " + field + "." + type + ", " + value.toOllir() + ").V;";
+    }
+}
@@ -0,0 +1,53 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class Return extends Terminator {
+
+    private Value value;
+    private final String type;
+
+    /**
+     * @param value returned value, null for void methods
+     */
+    public Return(Value value, String type) {
+        this.value = value;
+        this.type = type;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    @Override
+    public List<Block> getSuccessors() {
+        return List.of();
+    }
+
+    @Override
+    public void replaceSuccessor(Block from, Block to) {
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return value == null ? List.of() : List.of(value);
+    }
+
+    @Override
+    public void mapUses(UnaryOperator<Value> function) {
+        if (value != null) {
+            value = function.apply(value);
+        }
+    }
+
+    @Override
+    public Instr copy(UnaryOperator<Value> function) {
+        return new Return(value == null ? null : function.apply(value), type);
+    }
+
+    @Override
+    public String toOllir() {
+        return value == null ? "ret." + type + ";" : "ret." + type + " " + value.toOllir() + ";";
+    }
+}
@@ -0,0 +1,18 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * Effect that a call can have besides computing its result, as summarized for the method it calls.
+ */
+public enum SideEffect {
+    READS_FIELDS,
+    WRITES_FIELDS,
+    READS_ARRAYS,
+    WRITES_ARRAYS,
+    // Creates objects or arrays, each call giving different ones
+    ALLOCATES,
+    // Calls code of another class that is not known to be pure, which can do anything
+    CALLS_IMPORTED,
+    MAY_THROW,
+    // Runs a loop or recursion, which may never end
+    MAY_NOT_RETURN
+}
@@ -0,0 +1,483 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Static single assignment form of a method, where each variable is assigned by a single instruction.
+ * <p>
+ * Construction places phis at the iterated dominance frontiers of the blocks that assign each variable, only for the
+ * variables read in a block before being assigned there (semi-pruned SSA), and then gives each assignment a new
+ * version of its variable in a walk of the dominator tree. The first version of a variable keeps its name, so
+ * parameters are never renamed.
+ * <p>
+ * Destruction replaces each phi by copies into a new variable at the end of its predecessors, splitting the edges
+ * from blocks with other successors, and a copy of that variable at the start of its block. Variables that are
+ * copied into each other, and the versions of the same variable, are then given a single name whenever one of them is
+ * never assigned while the other is live, which removes most of those copies.
+ */
+public class Ssa {
+
+    private final IrMethod method;
+
+    // Variable each version was created for, variables that kept their name are their own version
+    private final Map<Var, Var> originals;
+
+    private Ssa(IrMethod method) {
+        this.method = method;
+        this.originals = new HashMap<>();
+    }
+
+    /**
+     * Puts the method in SSA form. Blocks that cannot be reached from the entry are removed.
+     */
+    public static Ssa construct(IrMethod method) {
+        method.removeUnreachableBlocks();
+
+        var ssa = new Ssa(method);
+        var dominators = new Dominators(method);
+
+        ssa.placePhis(dominators);
+        ssa.rename(dominators);
+
+        return ssa;
+    }
+
+    public IrMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the variable the version was created for, or the variable itself if it is not a version
+     */
+    public Var getOriginal(Var version) {
+        return originals.getOrDefault(version, version);
+    }
+
+    private void placePhis(Dominators dominators) {
+        var assigningBlocks = new LinkedHashMap<Var, Set<Block>>();
+        // Variables read in a block before being assigned there, the others never need a phi
+        var globals = new LinkedHashSet<Var>();
+
+        for (var param : method.getParams()) {
+            assigningBlocks.computeIfAbsent(param, key -> new LinkedHashSet<>()).add(method.getEntry());
+        }
+
+        for (var block : method.getBlocks()) {
+            var assigned = new HashSet<Var>();
+
+            for (var instr : block.getAllInstrs()) {
+                for (var use : instr.getUses()) {
+                    if (use instanceof Var var && !assigned.contains(var)) {
+                        globals.add(var);
+                    }
+                }
+
+                var def = instr.getDef();
+                if (def != null) {
+                    assigned.add(def);
+                    assigningBlocks.computeIfAbsent(def, key -> new LinkedHashSet<>()).add(block);
+                }
+            }
+        }
+
+        for (var var : globals) {
+            var blocks = assigningBlocks.get(var);
+            if (blocks == null) {
+                continue;
+            }
+
+            var withPhi = new HashSet<Block>();
+            var visited = new HashSet<>(blocks);
+            var pending = new ArrayDeque<>(blocks);
+
+            // A phi assigns the variable too, so its block adds its own frontier
+            while (!pending.isEmpty()) {
+                for (var frontier : dominators.getFrontier(pending.pop())) {
+                    if (!withPhi.add(frontier)) {
+                        continue;
+                    }
+
+                    frontier.getInstrs().add(0, new Phi(var));
+                    if (visited.add(frontier)) {
+                        pending.push(frontier);
+                    }
+                }
+            }
+        }
+    }
+
+    private void rename(Dominators dominators) {
+        // Current version of each variable, on top of the versions of the blocks that dominate the current one
+        var versions = new HashMap<Var, ArrayDeque<Var>>();
+        // Variables whose name was already given to a version
+        var named = new HashSet<>(method.getParams());
+        // Variables each block pushed a version of, which are popped after the blocks it dominates
+        var pushed = new HashMap<Block, List<Var>>();
+
+        method.getParams().forEach(param -> originals.put(param, param));
+
+        // Iterative walk, since the dominator tree of a long method can be deep
+        var pending = new ArrayDeque<Block>();
+        pending.push(method.getEntry());
+
+        while (!pending.isEmpty()) {
+            var block = pending.peek();
+
+            if (pushed.containsKey(block)) {
+                pending.pop();
+                pushed.get(block).forEach(var -> versions.get(var).pop());
+                continue;
+            }
+
+            var assigned = new ArrayList<Var>();
+            pushed.put(block, assigned);
+            renameBlock(block, versions, named, assigned);
+
+            var children = dominators.getChildren(block);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i));
+            }
+        }
+    }
+
+    private void renameBlock(Block block, Map<Var, ArrayDeque<Var>> versions, Set<Var> named, List<Var> assigned) {
+        var instrs = block.getInstrs();
+
+        for (int i = 0; i < instrs.size(); i++) {
+            var instr = instrs.get(i);
+
+            if (!(instr instanceof Phi)) {
+                instr.mapUses(value -> value instanceof Var var ? getCurrent(var, versions) : value);
+            }
+
+            var def = instr.getDef();
+            if (def == null) {
+                continue;
+            }
+
+            var version = named.add(def) ? def : method.newVar(def.getName() + "_", def.getType());
+            originals.put(version, def);
+            versions.computeIfAbsent(def, key -> new ArrayDeque<>()).push(version);
+            assigned.add(def);
+
+            if (instr instanceof Phi phi) {
+                instrs.set(i, new Phi(version, phi.getValues()));
+            } else if (instr instanceof AssignInstr assign) {
+                instrs.set(i, new AssignInstr(version, assign.getRhs()));
+            } else {
+                throw new IllegalStateException("Unexpected assignment: " + instr);
+            }
+        }
+
+        block.getTerminator().mapUses(value -> value instanceof Var var ? getCurrent(var, versions) : value);
+
+        for (var successor : block.getSuccessors()) {
+            for (var instr : successor.getInstrs()) {
+                if (!(instr instanceof Phi phi)) {
+                    break;
+                }
+
+                phi.setValue(block, getCurrent(getOriginal(phi.getDest()), versions));
+            }
+        }
+    }
+
+    /**
+     * @return the version of the variable assigned last on the path to the current block, or the variable itself if
+     * it is a parameter or was not assigned yet
+     */
+    private static Var getCurrent(Var var, Map<Var, ArrayDeque<Var>> versions) {
+        var current = versions.get(var);
+
+        return current == null || current.isEmpty() ? var : current.peek();
+    }
+
+    /**
+     * Takes the method out of SSA form.
+     */
+    public void destruct() {
+        removeUnusedPhis();
+        replacePhis();
+        coalesce();
+        method.removeEmptyBlocks();
+    }
+
+    /**
+     * Removes the phis whose variable is only read by phis, including cycles of phis through a loop, since they would
+     * only give dead copies.
+     */
+    private void removeUnusedPhis() {
+        var phis = new HashMap<Var, Phi>();
+        var used = new HashSet<Var>();
+        var pending = new ArrayDeque<Var>();
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getAllInstrs()) {
+                if (instr instanceof Phi phi) {
+                    phis.put(phi.getDest(), phi);
+                    continue;
+                }
+
+                for (var use : instr.getUses()) {
+                    if (use instanceof Var var && used.add(var)) {
+                        pending.add(var);
+                    }
+                }
+            }
+        }
+
+        // Phis read by instructions keep the variables they read
+        while (!pending.isEmpty()) {
+            var phi = phis.get(pending.poll());
+
+            if (phi != null) {
+                for (var value : phi.getValues().values()) {
+                    if (value instanceof Var var && used.add(var)) {
+                        pending.add(var);
+                    }
+                }
+            }
+        }
+
+        for (var block : method.getBlocks()) {
+            block.getInstrs().removeIf(instr -> instr instanceof Phi phi && !used.contains(phi.getDest()));
+        }
+    }
+
+    private void replacePhis() {
+        for (var block : new ArrayList<>(method.getBlocks())) {
+            var instrs = block.getInstrs();
+            var copies = new ArrayList<Instr>();
+            // Blocks added on the edges to this block, by predecessor
+            var edges = new HashMap<Block, Block>();
+
+            while (!instrs.isEmpty() && instrs.get(0) instanceof Phi phi) {
+                instrs.remove(0);
+
+                // The phis of a block are assigned at the same time, so their values go through new variables
+                var temp = method.newVar("phi", phi.getDest().getType());
+                copies.add(new AssignInstr(phi.getDest(), temp));
+
+                phi.getValues().forEach((predecessor, value) -> {
+                    var edge = edges.computeIfAbsent(predecessor, key -> getEdgeBlock(key, block));
+                    edge.getInstrs().add(new AssignInstr(temp, value));
+                });
+            }
+
+            instrs.addAll(0, copies);
+        }
+    }
+
+    /**
+     * @return the block where code that runs when going from one block to the other can be added, a new block if the
+     * first one has other successors
+     */
+    private Block getEdgeBlock(Block from, Block to) {
+        if (new HashSet<>(from.getSuccessors()).size() == 1) {
+            return from;
+        }
+
+        var edge = method.newBlock("edge");
+        edge.setTerminator(new Jump(to));
+        from.getTerminator().replaceSuccessor(to, edge);
+
+        var blocks = method.getBlocks();
+        blocks.add(blocks.indexOf(to), edge);
+
+        return edge;
+    }
+
+    private void coalesce() {
+        var vars = new ArrayList<Var>();
+        var indexes = new HashMap<Var, Integer>();
+
+        for (var param : method.getParams()) {
+            addVar(param, vars, indexes);
+        }
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getAllInstrs()) {
+                if (instr.getDef() != null) {
+                    addVar(instr.getDef(), vars, indexes);
+                }
+                instr.getUses().stream()
+                        .filter(use -> use instanceof Var)
+                        .forEach(use -> addVar((Var) use, vars, indexes));
+            }
+        }
+
+        var interference = getInterference(vars, indexes);
+
+        // Each variable starts in its own class, which variables join when they do not interfere with its members
+        var classes = new int[vars.size()];
+        var members = new BitSet[vars.size()];
+        for (int i = 0; i < vars.size(); i++) {
+            classes[i] = i;
+            members[i] = new BitSet();
+            members[i].set(i);
+        }
+
+        for (var pair : getCoalescingCandidates(indexes)) {
+            int first = find(classes, pair[0]);
+            int second = find(classes, pair[1]);
+
+            if (first == second || !vars.get(first).getType().equals(vars.get(second).getType())
+                    || interference[first].intersects(members[second])) {
+                continue;
+            }
+
+            classes[second] = first;
+            members[first].or(members[second]);
+            interference[first].or(interference[second]);
+        }
+
+        var names = new HashMap<Var, Var>();
+        var usedNames = new HashSet<Var>();
+
+        for (int root = 0; root < vars.size(); root++) {
+            if (find(classes, root) != root) {
+                continue;
+            }
+
+            int classRoot = root;
+            var classVars = members[root].stream().mapToObj(vars::get).toList();
+            var name = getClassName(classVars, usedNames,
+                    var -> indexes.containsKey(var) && find(classes, indexes.get(var)) != classRoot);
+
+            usedNames.add(name);
+            classVars.forEach(var -> names.put(var, name));
+        }
+
+        for (var block : method.getBlocks()) {
+            var instrs = block.getInstrs();
+
+            instrs.replaceAll(instr -> instr.copy(value -> value instanceof Var var ? names.get(var) : value));
+            instrs.removeIf(instr -> instr instanceof AssignInstr assign && assign.getRhs().equals(assign.getDest()));
+            block.getTerminator().mapUses(value -> value instanceof Var var ? names.get(var) : value);
+        }
+    }
+
+    private static void addVar(Var var, List<Var> vars, Map<Var, Integer> indexes) {
+        if (!indexes.containsKey(var)) {
+            indexes.put(var, vars.size());
+            vars.add(var);
+        }
+    }
+
+    private static int find(int[] classes, int index) {
+        while (classes[index] != index) {
+            classes[index] = classes[classes[index]];
+            index = classes[index];
+        }
+
+        return index;
+    }
+
+    /**
+     * @return for each variable, the variables live where it is assigned, except the variable it copies
+     */
+    private BitSet[] getInterference(List<Var> vars, Map<Var, Integer> indexes) {
+        var liveness = new Liveness(method);
+        var interference = new BitSet[vars.size()];
+        for (int i = 0; i < vars.size(); i++) {
+            interference[i] = new BitSet();
+        }
+
+        for (var block : method.getBlocks()) {
+            var live = new BitSet();
+            liveness.getLiveOut(block).forEach(var -> live.set(indexes.get(var)));
+
+            var instrs = block.getAllInstrs();
+            for (int i = instrs.size() - 1; i >= 0; i--) {
+                var instr = instrs.get(i);
+
+                if (instr.getDef() != null) {
+                    int def = indexes.get(instr.getDef());
+                    var interfering = (BitSet) live.clone();
+                    interfering.clear(def);
+
+                    if (instr instanceof AssignInstr assign && assign.getRhs() instanceof Var source) {
+                        interfering.clear(indexes.get(source));
+                    }
+
+                    interfering.stream().forEach(other -> {
+                        interference[def].set(other);
+                        interference[other].set(def);
+                    });
+                    live.clear(def);
+                }
+
+                instr.getUses().stream()
+                        .filter(use -> use instanceof Var)
+                        .forEach(use -> live.set(indexes.get((Var) use)));
+            }
+
+            // Parameters, and variables read before being assigned, all have a value when the method starts
+            if (block == method.getEntry()) {
+                method.getParams().forEach(param -> live.set(indexes.get(param)));
+                live.stream().forEach(first -> interference[first].or(live));
+                live.stream().forEach(first -> interference[first].clear(first));
+            }
+        }
+
+        return interference;
+    }
+
+    /**
+     * @return pairs of variables that are worth giving the same name, the most useful first
+     */
+    private List<int[]> getCoalescingCandidates(Map<Var, Integer> indexes) {
+        var candidates = new ArrayList<int[]>();
+
+        // Copies, which are removed once both variables have the same name
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                if (instr instanceof AssignInstr assign && assign.getRhs() instanceof Var source) {
+                    candidates.add(new int[]{indexes.get(assign.getDest()), indexes.get(source)});
+                }
+            }
+        }
+
+        // Versions of the same variable, so that variables keep their names and use fewer registers
+        originals.forEach((version, original) -> {
+            if (!version.equals(original) && indexes.containsKey(version) && indexes.containsKey(original)) {
+                candidates.add(new int[]{indexes.get(original), indexes.get(version)});
+            }
+        });
+
+        return candidates;
+    }
+
+    /**
+     * @param isElsewhere tells if a variable is in another class
+     * @return the name of a class of variables: its parameter, or else the variable most of them are versions of, if
+     * it is in the class or was removed from the method, e.g., when it was only assigned a constant that was propagated
+     */
+    private Var getClassName(List<Var> classVars, Set<Var> usedNames, Predicate<Var> isElsewhere) {
+        var param = classVars.stream().filter(method.getParams()::contains).findFirst();
+        if (param.isPresent()) {
+            return param.get();
+        }
+
+        var versions = new HashMap<Var, Integer>();
+        classVars.forEach(var -> versions.merge(getOriginal(var), 1, Integer::sum));
+
+        Comparator<Var> byName = Comparator.<Var>comparingInt(var -> var.getName().length()).thenComparing(Var::getName);
+
+        // Variables of the class are never the name of other classes, so one of them is always free
+        return versions.keySet().stream()
+                .filter(original -> !usedNames.contains(original) && !isElsewhere.test(original))
+                .min(Comparator.<Var>comparingInt(original -> -versions.get(original)).thenComparing(byName))
+                .orElseGet(() -> classVars.stream().filter(var -> !usedNames.contains(var)).min(byName).orElseThrow());
+    }
+}
@@ -0,0 +1,26 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+
+/**
+ * Last instruction of a basic block, which decides the block that runs next.
+ */
+public abstract class Terminator extends Instr {
+
+    public abstract List<Block> getSuccessors();
+
+    /**
+     * Makes the terminator go to the block {@code to} instead of {@code from}.
+     */
+    public abstract void replaceSuccessor(Block from, Block to);
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+
+    @Override
+    public boolean canThrow() {
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * The object an instance method was called on.
+ */
+public class This extends Value {
+
+    private final String className;
+
+    public This(String className) {
+        this.className = className;
+    }
+
+    @Override
+    public String getType() {
+        return className;
+    }
+
+    @Override
+    public String toOllir() {
+        return "this." + className;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof This;
+    }
+
+    @Override
+    public int hashCode() {
+        return This.class.hashCode();
+    }
+}
@@ -0,0 +1,59 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.OperationType;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+public class UnaryExpr extends Expr {
+
+    private final OperationType operation;
+    private final Value operand;
+    private final String type;
+
+    public UnaryExpr(OperationType operation, Value operand, String type) {
+        this.operation = operation;
+        this.operand = operand;
+        this.type = type;
+    }
+
+    public OperationType getOperation() {
+        return operation;
+    }
+
+    public Value getOperand() {
+        return operand;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public List<Value> getOperands() {
+        return List.of(operand);
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        return new UnaryExpr(operation, function.apply(operand), type);
+    }
+
+    @Override
+    public String toOllir() {
+        return BinaryExpr.getSymbol(operation) + "." + type + " " + operand.toOllir();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof UnaryExpr expr && operation == expr.operation && operand.equals(expr.operand)
+                && type.equals(expr.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operation, operand, type);
+    }
+}
@@ -0,0 +1,24 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Operand of an instruction: a variable, a literal, this, or a class whose static methods are called.
+ */
+public abstract class Value extends Expr {
+
+    public static final String INT = "i32";
+    public static final String BOOL = "bool";
+    public static final String VOID = "V";
+
+    @Override
+    public List<Value> getOperands() {
+        return List.of(this);
+    }
+
+    @Override
+    public Expr mapOperands(UnaryOperator<Value> function) {
+        return function.apply(this);
+    }
+}
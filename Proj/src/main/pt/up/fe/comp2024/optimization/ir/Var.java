@@ -0,0 +1,39 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * Local variable, parameter or temporary of a method, identified by its name.
+ */
+public class Var extends Value {
+
+    private final String name;
+    private final String type;
+
+    public Var(String name, String type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String toOllir() {
+        return name + "." + type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Var var && name.equals(var.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
@@ -0,0 +1,203 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Simplifies the expressions of assignments with the identities of integer and boolean arithmetic.
+ * <p>
+ * Variables assigned a literal earlier in the block are replaced by the literal. Operations on literals are computed, except divisions by zero, which must still throw. Operations that leave one
+ * operand unchanged, such as {@code x + 0}, {@code x * 1} or {@code x && true}, become a copy of that operand, and
+ * {@code x * 0} or {@code x - x} become 0. Constants added to or multiplied by the result of an operation with another
+ * constant in the same block are combined, so that {@code (x + 1) + 2} is computed as {@code x + 3}.
+ * <p>
+ * Multiplications by powers of two are left as they are, since OLLIR has no shifts: the backend generates them as
+ * shifts.
+ */
+public class AlgebraicSimplification implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            for (var block : method.getBlocks()) {
+                changed |= simplify(block);
+            }
+        }
+
+        return changed;
+    }
+
+    private static boolean simplify(Block block) {
+        boolean changed = false;
+
+        // Literals and operations with a literal assigned in the block, while their operands keep their values
+        var constants = new HashMap<Var, Literal>();
+        var constantOperations = new HashMap<Var, BinaryExpr>();
+
+        for (var instr : block.getInstrs()) {
+            if (instr instanceof AssignInstr assign) {
+                var rhs = assign.getRhs().mapOperands(operand ->
+                        operand instanceof Var var && constants.containsKey(var) ? constants.get(var) : operand);
+                var simplified = simplify(rhs, constantOperations);
+
+                if (!simplified.equals(assign.getRhs())) {
+                    assign.setRhs(simplified);
+                    changed = true;
+                }
+            }
+
+            var def = instr.getDef();
+            if (def == null) {
+                continue;
+            }
+
+            constants.remove(def);
+            constantOperations.remove(def);
+            constantOperations.values().removeIf(operation -> operation.getOperands().contains(def));
+
+            if (instr instanceof AssignInstr assign && assign.getRhs() instanceof Literal literal) {
+                constants.put(def, literal);
+            }
+
+            if (instr instanceof AssignInstr assign && assign.getRhs() instanceof BinaryExpr binary
+                    && binary.getRight() instanceof Literal && !binary.getOperands().contains(def)) {
+                constantOperations.put(def, binary);
+            }
+        }
+
+        return changed;
+    }
+
+    private static Expr simplify(Expr expr, Map<Var, BinaryExpr> constantOperations) {
+        if (expr instanceof UnaryExpr unary && unary.getOperation() == OperationType.NOTB
+                && unary.getOperand() instanceof Literal literal) {
+            return Literal.ofBool(literal.getValue() == 0);
+        }
+
+        if (expr instanceof BinaryExpr binary) {
+            return simplify(binary, constantOperations);
+        }
+
+        return expr;
+    }
+
+    private static Expr simplify(BinaryExpr binary, Map<Var, BinaryExpr> constantOperations) {
+        var operation = binary.getOperation();
+        var left = binary.getLeft();
+        var right = binary.getRight();
+
+        if (left instanceof Literal leftLiteral && right instanceof Literal rightLiteral) {
+            var folded = fold(operation, leftLiteral.getValue(), rightLiteral.getValue());
+            return folded == null ? binary : folded;
+        }
+
+        // Constants go on the right of commutative operations, to find the identities below once
+        if (left instanceof Literal && (operation == OperationType.ADD || operation == OperationType.MUL
+                || operation == OperationType.ANDB || operation == OperationType.ORB)) {
+            binary = new BinaryExpr(operation, right, left, binary.getType());
+            left = binary.getLeft();
+            right = binary.getRight();
+        }
+
+        if (right instanceof Literal constant) {
+            int value = constant.getValue();
+
+            switch (operation) {
+                case ADD, SUB -> {
+                    if (value == 0) {
+                        return left;
+                    }
+                }
+                case MUL -> {
+                    if (value == 1) {
+                        return left;
+                    }
+                    if (value == 0) {
+                        return Literal.ofInt(0);
+                    }
+                }
+                case DIV -> {
+                    if (value == 1) {
+                        return left;
+                    }
+                }
+                case ANDB -> {
+                    return value != 0 ? left : Literal.ofBool(false);
+                }
+                case ORB -> {
+                    return value != 0 ? Literal.ofBool(true) : left;
+                }
+                default -> {
+                }
+            }
+
+            if (left instanceof Var var && constantOperations.containsKey(var)) {
+                return simplify(combine(binary, constantOperations.get(var)), Map.of());
+            }
+        }
+
+        if (operation == OperationType.SUB && left.equals(right)) {
+            return Literal.ofInt(0);
+        }
+
+        return binary;
+    }
+
+    /**
+     * @param inner operation with a constant that gives the left operand of the outer one
+     * @return the outer operation on the operand of the inner one, with both constants combined, or the outer
+     * operation if they cannot be combined
+     */
+    private static BinaryExpr combine(BinaryExpr outer, BinaryExpr inner) {
+        int outerConstant = ((Literal) outer.getRight()).getValue();
+        int innerConstant = ((Literal) inner.getRight()).getValue();
+
+        var outerOperation = outer.getOperation();
+        var innerOperation = inner.getOperation();
+
+        if (isAdditive(outerOperation) && isAdditive(innerOperation)) {
+            int sum = (innerOperation == OperationType.ADD ? innerConstant : -innerConstant)
+                    + (outerOperation == OperationType.ADD ? outerConstant : -outerConstant);
+
+            return new BinaryExpr(OperationType.ADD, inner.getLeft(), Literal.ofInt(sum), outer.getType());
+        }
+
+        if (outerOperation == OperationType.MUL && innerOperation == OperationType.MUL) {
+            return new BinaryExpr(OperationType.MUL, inner.getLeft(), Literal.ofInt(innerConstant * outerConstant),
+                    outer.getType());
+        }
+
+        return outer;
+    }
+
+    private static boolean isAdditive(OperationType operation) {
+        return operation == OperationType.ADD || operation == OperationType.SUB;
+    }
+
+    /**
+     * @return the result of the operation on the two literals, or null if it cannot be computed
+     */
+    static Literal fold(OperationType operation, int left, int right) {
+        return switch (operation) {
+            case ADD -> Literal.ofInt(left + right);
+            case SUB -> Literal.ofInt(left - right);
+            case MUL -> Literal.ofInt(left * right);
+            case DIV -> right == 0 ? null : Literal.ofInt(left / right);
+            case LTH -> Literal.ofBool(left < right);
+            case LTE -> Literal.ofBool(left <= right);
+            case GTH -> Literal.ofBool(left > right);
+            case GTE -> Literal.ofBool(left >= right);
+            case EQ -> Literal.ofBool(left == right);
+            case NEQ -> Literal.ofBool(left != right);
+            case ANDB -> Literal.ofBool(left != 0 && right != 0);
+            case ORB -> Literal.ofBool(left != 0 || right != 0);
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Removes copies from one variable to another, such as the temporaries the generator assigns to variables, the
+ * parameters of inlined methods, and the values reused by value numbering.
+ * <p>
+ * In the {@link Ssa} form of the method, a copy {@code x = t} of a variable that is only read by the copy makes the
+ * instruction that computes {@code t} assign {@code x} instead, so that the variables of the program keep their
+ * names. Other copies are removed, and the copied variable is read instead of their own. Leaving SSA form gives both
+ * variables a single name whenever they are not live at the same time, so only the copies that are needed remain.
+ */
+public class CopyPropagation implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            var ssa = Ssa.construct(method);
+            changed |= propagate(method);
+            ssa.destruct();
+        }
+
+        return changed;
+    }
+
+    private static boolean propagate(IrMethod method) {
+        var uses = countUses(method);
+        var assigningBlocks = new HashMap<Var, Block>();
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                if (instr.getDef() != null) {
+                    assigningBlocks.put(instr.getDef(), block);
+                }
+            }
+        }
+
+        // Variables replaced by the variable they copy
+        var copied = new HashMap<Var, Var>();
+        boolean changed = false;
+
+        // Assignments come before their uses in reverse postorder, so chains of copies are merged from the start
+        for (var block : method.getReversePostorder()) {
+            var instrs = block.getInstrs();
+
+            for (int i = 0; i < instrs.size(); i++) {
+                if (!(instrs.get(i) instanceof AssignInstr copy) || !(copy.getRhs() instanceof Var source)) {
+                    continue;
+                }
+
+                var dest = copy.getDest();
+                var sourceBlock = assigningBlocks.get(source);
+
+                if (sourceBlock != null && uses.get(source) == 1 && renameAssignment(sourceBlock, source, dest)) {
+                    assigningBlocks.remove(source);
+                    assigningBlocks.put(dest, sourceBlock);
+                } else {
+                    // The uses of the copy become uses of the variable it copied
+                    var root = copied.getOrDefault(source, source);
+                    copied.put(dest, root);
+                    assigningBlocks.remove(dest);
+                    uses.merge(root, uses.getOrDefault(dest, 0) - 1, Integer::sum);
+                }
+
+                instrs.remove(i--);
+                changed = true;
+            }
+        }
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getAllInstrs()) {
+                instr.mapUses(value -> value instanceof Var var && copied.containsKey(var) ? copied.get(var) : value);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Makes the instruction of the block that assigns {@code from} assign {@code to} instead, unless it is a phi, whose
+     * variable is usually the one of the program that the loop or branch assigns.
+     *
+     * @return true if the instruction was changed
+     */
+    private static boolean renameAssignment(Block block, Var from, Var to) {
+        var instrs = block.getInstrs();
+
+        for (int i = 0; i < instrs.size(); i++) {
+            var instr = instrs.get(i);
+
+            if (from.equals(instr.getDef())) {
+                if (instr instanceof Phi) {
+                    return false;
+                }
+
+                instrs.set(i, instr.copy(value -> value.equals(from) ? to : value));
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Map<Var, Integer> countUses(IrMethod method) {
+        var uses = new HashMap<Var, Integer>();
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getAllInstrs()) {
+                for (var use : instr.getUses()) {
+                    if (use instanceof Var var) {
+                        uses.merge(var, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        return uses;
+    }
+}
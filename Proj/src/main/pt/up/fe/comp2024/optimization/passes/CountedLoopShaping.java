@@ -0,0 +1,272 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gives loops the shape of counted loops, which the JVM recognizes to remove the bounds checks of array accesses whose
+ * index is the counter.
+ * <p>
+ * Conditions computed into a boolean just before a branch, possibly negated, become a comparison in the branch itself,
+ * so that the test of the loop compares the counter with its limit instead of a boolean. Counters, variables increased
+ * or decreased by a constant once per iteration, are updated in a single assignment and are put on the left of the
+ * comparisons that test them. Limits computed in the loop, such as {@code a.length}, are then left for
+ * {@link LoopInvariantCodeMotion} to compute once before the loop.
+ */
+public class CountedLoopShaping implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            changed |= foldConditions(method);
+            changed |= shapeCounters(method);
+        }
+
+        return changed;
+    }
+
+    private static boolean foldConditions(IrMethod method) {
+        var folded = new HashSet<Var>();
+
+        for (var block : method.getBlocks()) {
+            if (!(block.getTerminator() instanceof Branch branch)) {
+                continue;
+            }
+
+            BinaryExpr condition = null;
+            if (branch.getCondition() instanceof Var var) {
+                condition = getComparison(block, var, block.getInstrs().size(), folded);
+            } else if (branch.getCondition() instanceof UnaryExpr not && not.getOperation() == OperationType.NOTB
+                    && not.getOperand() instanceof Var var) {
+                condition = invert(getComparison(block, var, block.getInstrs().size(), folded));
+            }
+
+            if (condition != null) {
+                branch.setCondition(condition);
+            }
+        }
+
+        return removeUnused(method, folded) || !folded.isEmpty();
+    }
+
+    /**
+     * @param end index of the instruction where the value of the variable is used
+     * @return the comparison whose result the variable has at the given instruction, with operands that have the same
+     * values there, or null if there is none in the block
+     */
+    private static BinaryExpr getComparison(Block block, Var var, int end, Set<Var> folded) {
+        var instrs = block.getInstrs();
+
+        for (int i = end - 1; i >= 0; i--) {
+            if (!var.equals(instrs.get(i).getDef())) {
+                continue;
+            }
+
+            if (!(instrs.get(i) instanceof AssignInstr assign)) {
+                return null;
+            }
+
+            BinaryExpr comparison = null;
+            if (assign.getRhs() instanceof BinaryExpr binary && isComparison(binary.getOperation())) {
+                comparison = binary;
+            } else if (assign.getRhs() instanceof UnaryExpr not && not.getOperation() == OperationType.NOTB
+                    && not.getOperand() instanceof Var operand) {
+                comparison = invert(getComparison(block, operand, i, folded));
+            }
+
+            if (comparison == null || isAssignedBetween(block, comparison, i + 1, end)) {
+                return null;
+            }
+
+            folded.add(var);
+            return comparison;
+        }
+
+        return null;
+    }
+
+    private static boolean isAssignedBetween(Block block, Expr expr, int start, int end) {
+        for (int i = start; i < end; i++) {
+            var def = block.getInstrs().get(i).getDef();
+
+            if (def != null && expr.getOperands().contains(def)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    static boolean isComparison(OperationType operation) {
+        return operation == OperationType.LTH || operation == OperationType.LTE || operation == OperationType.GTH
+                || operation == OperationType.GTE;
+    }
+
+    /**
+     * @return the comparison that is true when the given one is false, or null if it is null
+     */
+    static BinaryExpr invert(BinaryExpr comparison) {
+        if (comparison == null) {
+            return null;
+        }
+
+        var operation = switch (comparison.getOperation()) {
+            case LTH -> OperationType.GTE;
+            case LTE -> OperationType.GTH;
+            case GTH -> OperationType.LTE;
+            case GTE -> OperationType.LTH;
+            default -> throw new IllegalArgumentException("Not a comparison: " + comparison.getOperation());
+        };
+
+        return new BinaryExpr(operation, comparison.getLeft(), comparison.getRight(), comparison.getType());
+    }
+
+    /**
+     * @return the same comparison, with the operands swapped
+     */
+    static BinaryExpr mirror(BinaryExpr comparison) {
+        var operation = switch (comparison.getOperation()) {
+            case LTH -> OperationType.GTH;
+            case LTE -> OperationType.GTE;
+            case GTH -> OperationType.LTH;
+            case GTE -> OperationType.LTE;
+            default -> throw new IllegalArgumentException("Not a comparison: " + comparison.getOperation());
+        };
+
+        return new BinaryExpr(operation, comparison.getRight(), comparison.getLeft(), comparison.getType());
+    }
+
+    /**
+     * Removes the assignments of the given variables that are no longer read, and then of the variables only they read.
+     */
+    private static boolean removeUnused(IrMethod method, Set<Var> vars) {
+        boolean changed = false;
+        Set<Var> pending = new HashSet<>(vars);
+
+        while (!pending.isEmpty()) {
+            var uses = countUses(method);
+            var unused = pending;
+            var operands = new HashSet<Var>();
+
+            for (var block : method.getBlocks()) {
+                changed |= block.getInstrs().removeIf(instr -> {
+                    if (!(instr instanceof AssignInstr assign) || !unused.contains(assign.getDest())
+                            || uses.containsKey(assign.getDest()) || assign.getRhs().hasSideEffects()
+                            || assign.getRhs().canThrow()) {
+                        return false;
+                    }
+
+                    assign.getRhs().getOperands().stream()
+                            .filter(operand -> operand instanceof Var)
+                            .forEach(operand -> operands.add((Var) operand));
+                    return true;
+                });
+            }
+
+            pending = operands;
+        }
+
+        return changed;
+    }
+
+    private static Map<Var, Integer> countUses(IrMethod method) {
+        var uses = new HashMap<Var, Integer>();
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getAllInstrs()) {
+                for (var use : instr.getUses()) {
+                    if (use instanceof Var var) {
+                        uses.merge(var, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        return uses;
+    }
+
+    private static boolean shapeCounters(IrMethod method) {
+        method.removeUnreachableBlocks();
+
+        boolean changed = false;
+        var counters = new HashSet<Var>();
+
+        for (var loop : Loop.findLoops(method, new Dominators(method))) {
+            changed |= mergeUpdates(method, loop);
+            counters.addAll(findCounters(loop));
+        }
+
+        for (var block : method.getBlocks()) {
+            if (block.getTerminator() instanceof Branch branch && branch.getCondition() instanceof BinaryExpr comparison
+                    && isComparison(comparison.getOperation()) && counters.contains(comparison.getRight())
+                    && !counters.contains(comparison.getLeft())) {
+                branch.setCondition(mirror(comparison));
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Replaces {@code t = i + c; i = t} by {@code i = i + c}, and {@code i = c + i} by {@code i = i + c}, in the loop.
+     */
+    private static boolean mergeUpdates(IrMethod method, Loop loop) {
+        boolean changed = false;
+        var uses = countUses(method);
+
+        for (var block : loop.getBlocks()) {
+            var instrs = block.getInstrs();
+
+            for (int i = 0; i < instrs.size(); i++) {
+                if (!(instrs.get(i) instanceof AssignInstr assign)) {
+                    continue;
+                }
+
+                if (i > 0 && assign.getRhs() instanceof Var temp && uses.get(temp) == 1
+                        && instrs.get(i - 1) instanceof AssignInstr update && temp.equals(update.getDest())
+                        && Loop.getStep(assign.getDest(), update.getRhs()) != null) {
+                    assign.setRhs(update.getRhs());
+                    instrs.remove(--i);
+                    changed = true;
+                }
+
+                if (assign.getRhs() instanceof BinaryExpr add && add.getOperation() == OperationType.ADD
+                        && add.getLeft() instanceof Literal && assign.getDest().equals(add.getRight())) {
+                    assign.setRhs(new BinaryExpr(OperationType.ADD, add.getRight(), add.getLeft(), add.getType()));
+                    changed = true;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the counters of the loop, and the variables assigned once in the loop to a counter plus a constant
+     */
+    private static Set<Var> findCounters(Loop loop) {
+        var counters = loop.getCounters().keySet();
+        var tested = new HashSet<>(counters);
+
+        // Counters plus a constant, such as i + 1 in i + 1 <= n, are also tested as counters
+        for (var block : loop.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                if (instr instanceof AssignInstr assign && !counters.contains(assign.getDest()) && counters.stream()
+                        .anyMatch(counter -> Loop.getStep(counter, assign.getRhs()) != null)) {
+                    tested.add(assign.getDest());
+                }
+            }
+        }
+
+        return tested;
+    }
+}
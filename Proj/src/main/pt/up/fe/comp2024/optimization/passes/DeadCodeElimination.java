@@ -0,0 +1,57 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Removes assignments of variables that are never read, and calls whose result is not used, when they have no side
+ * effects and cannot throw. Calls are only removed when {@link SideEffectAnalysis} found that the method they call is
+ * pure. Removing an instruction may leave the variables it read unused, so this is repeated until nothing is removed.
+ */
+public class DeadCodeElimination implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            changed |= removeDeadCode(method);
+        }
+
+        return changed;
+    }
+
+    private static boolean removeDeadCode(IrMethod method) {
+        boolean changed = false;
+        boolean removed = true;
+
+        while (removed) {
+            var used = new HashSet<Value>();
+            for (var block : method.getBlocks()) {
+                for (var instr : block.getAllInstrs()) {
+                    used.addAll(instr.getUses());
+                }
+            }
+
+            removed = false;
+            for (var block : method.getBlocks()) {
+                removed |= block.getInstrs().removeIf(instr -> isDead(instr, used));
+            }
+
+            changed |= removed;
+        }
+
+        return changed;
+    }
+
+    private static boolean isDead(Instr instr, Set<Value> used) {
+        if (instr.hasSideEffects() || instr.canThrow()) {
+            return false;
+        }
+
+        return instr instanceof CallInstr || instr instanceof AssignInstr assign && !used.contains(assign.getDest());
+    }
+}
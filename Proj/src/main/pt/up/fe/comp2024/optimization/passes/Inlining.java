@@ -0,0 +1,269 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.CallType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Replaces calls of small methods of the class by a copy of their code.
+ * <p>
+ * A call is inlined when it is static, on {@code this}, or on a variable that is only assigned new objects, since the
+ * class has no subclasses and the call cannot fail with a null object. Parameters, locals and labels of the callee get
+ * new names in the caller, parameters are assigned the arguments, and returns become an assignment of the result and a
+ * jump to the code after the call. Recursive methods are never inlined, and callees are inlined into before their
+ * callers, so that they are already in their final form when they are copied.
+ */
+public class Inlining implements OptimizationPass {
+
+    // Instructions of a method, including terminators, for it to be inlined
+    private static final int MAX_CALLEE_SIZE = 12;
+
+    // Instructions a method can reach by inlining calls, which stops code from growing with many call sites
+    private static final int MAX_CALLER_SIZE = 300;
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        var callees = new HashMap<IrMethod, Set<IrMethod>>();
+        for (var method : irClass.getMethods()) {
+            callees.put(method, getCallees(irClass, method));
+        }
+
+        boolean changed = false;
+
+        for (var method : getBottomUpOrder(irClass, callees)) {
+            changed |= inlineCalls(irClass, method, callees);
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the methods of the class called by the method
+     */
+    static Set<IrMethod> getCallees(IrClass irClass, IrMethod method) {
+        var callees = new LinkedHashSet<IrMethod>();
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                var call = instr.getCall();
+
+                if (call != null && call.isCallTo(irClass.getName())) {
+                    irClass.getMethod(call.getMethodName()).ifPresent(callees::add);
+                }
+            }
+        }
+
+        return callees;
+    }
+
+    /**
+     * @return the methods of the class, each one after the methods it calls, except for calls in cycles
+     */
+    static List<IrMethod> getBottomUpOrder(IrClass irClass, Map<IrMethod, Set<IrMethod>> callees) {
+        var order = new ArrayList<IrMethod>();
+        var visited = new HashSet<IrMethod>();
+
+        for (var method : irClass.getMethods()) {
+            addAfterCallees(method, callees, visited, order);
+        }
+
+        return order;
+    }
+
+    private static void addAfterCallees(IrMethod method, Map<IrMethod, Set<IrMethod>> callees, Set<IrMethod> visited,
+                                        List<IrMethod> order) {
+        if (!visited.add(method)) {
+            return;
+        }
+
+        for (var callee : callees.get(method)) {
+            addAfterCallees(callee, callees, visited, order);
+        }
+
+        order.add(method);
+    }
+
+    /**
+     * @return true if the method can call itself, directly or through other methods of the class
+     */
+    static boolean isRecursive(IrMethod method, Map<IrMethod, Set<IrMethod>> callees) {
+        var reached = new HashSet<IrMethod>();
+        var pending = new ArrayList<>(callees.get(method));
+
+        while (!pending.isEmpty()) {
+            var callee = pending.remove(pending.size() - 1);
+
+            if (callee == method) {
+                return true;
+            }
+
+            if (reached.add(callee)) {
+                pending.addAll(callees.get(callee));
+            }
+        }
+
+        return false;
+    }
+
+    private static int getSize(IrMethod method) {
+        return method.getBlocks().stream().mapToInt(block -> block.getInstrs().size() + 1).sum();
+    }
+
+    private boolean inlineCalls(IrClass irClass, IrMethod method, Map<IrMethod, Set<IrMethod>> callees) {
+        boolean changed = false;
+        int size = getSize(method);
+
+        // Blocks are added while looking for calls, the code copied from a callee is also searched
+        for (int i = 0; i < method.getBlocks().size(); i++) {
+            var block = method.getBlocks().get(i);
+
+            for (int j = 0; j < block.getInstrs().size(); j++) {
+                var instr = block.getInstrs().get(j);
+                var callee = getInlinedCallee(irClass, method, instr, callees);
+
+                if (callee == null || size + getSize(callee) > MAX_CALLER_SIZE) {
+                    continue;
+                }
+
+                inline(method, i, j, callee);
+                size += getSize(callee);
+                changed = true;
+                break;
+            }
+        }
+
+        if (changed) {
+            method.removeEmptyBlocks();
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the method called by the instruction if the call can be inlined, or null
+     */
+    private static IrMethod getInlinedCallee(IrClass irClass, IrMethod method, Instr instr,
+                                             Map<IrMethod, Set<IrMethod>> callees) {
+        var call = instr.getCall();
+
+        if (call == null || !call.isCallTo(irClass.getName()) || call.getCallType() == CallType.invokespecial) {
+            return null;
+        }
+
+        var callee = irClass.getMethod(call.getMethodName()).orElse(null);
+
+        if (callee == null || callee == method || callee.isStatic() != (call.getCaller() instanceof ClassRef)
+                || getSize(callee) > MAX_CALLEE_SIZE || isRecursive(callee, callees)) {
+            return null;
+        }
+
+        if (call.getCaller() instanceof Var object && !isNewObject(method, object)) {
+            return null;
+        }
+
+        return callee;
+    }
+
+    /**
+     * @return true if the variable is only assigned new objects, and so is never null when it is used
+     */
+    static boolean isNewObject(IrMethod method, Var var) {
+        if (method.getParams().contains(var)) {
+            return false;
+        }
+
+        boolean assigned = false;
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                if (!var.equals(instr.getDef())) {
+                    continue;
+                }
+
+                if (!(instr instanceof AssignInstr assign) || !(assign.getRhs() instanceof NewObject)) {
+                    return false;
+                }
+
+                assigned = true;
+            }
+        }
+
+        return assigned;
+    }
+
+    /**
+     * Replaces the call at the given instruction of the given block by the code of the callee.
+     */
+    private static void inline(IrMethod method, int blockIndex, int instrIndex, IrMethod callee) {
+        var blocks = method.getBlocks();
+        var block = blocks.get(blockIndex);
+        var instr = block.getInstrs().get(instrIndex);
+        var call = instr.getCall();
+
+        // The instructions after the call go to a new block, which the returns of the callee jump to
+        var after = method.newBlock("afterinline");
+        var tail = block.getInstrs().subList(instrIndex + 1, block.getInstrs().size());
+        after.getInstrs().addAll(tail);
+        after.setTerminator(block.getTerminator());
+        tail.clear();
+        block.getInstrs().remove(block.getInstrs().size() - 1);
+
+        // Variables of the callee, including its parameters, are renamed, and this becomes the object of the call
+        var renamed = new HashMap<Var, Var>();
+        var receiver = call.getCaller();
+        UnaryOperator<Value> rename = value -> {
+            if (value instanceof Var var) {
+                return renamed.computeIfAbsent(var, key -> method.newVar(key.getName() + "_", key.getType()));
+            }
+
+            return value instanceof This ? receiver : value;
+        };
+
+        for (int i = 0; i < callee.getParams().size(); i++) {
+            var param = (Var) rename.apply(callee.getParams().get(i));
+            block.getInstrs().add(new AssignInstr(param, call.getArguments().get(i)));
+        }
+
+        var copies = new HashMap<Block, Block>();
+        for (var calleeBlock : callee.getBlocks()) {
+            copies.put(calleeBlock, method.newBlock(calleeBlock.getLabel() + "_"));
+        }
+
+        var copiedBlocks = new ArrayList<Block>();
+        for (var calleeBlock : callee.getBlocks()) {
+            var copy = copies.get(calleeBlock);
+
+            for (var calleeInstr : calleeBlock.getInstrs()) {
+                copy.getInstrs().add(calleeInstr.copy(rename));
+            }
+
+            if (calleeBlock.getTerminator() instanceof Return ret) {
+                if (instr.getDef() != null && ret.getValue() != null) {
+                    copy.getInstrs().add(new AssignInstr(instr.getDef(), rename.apply(ret.getValue())));
+                }
+                copy.setTerminator(new Jump(after));
+            } else {
+                var terminator = (Terminator) calleeBlock.getTerminator().copy(rename);
+                for (var successor : calleeBlock.getSuccessors()) {
+                    terminator.replaceSuccessor(successor, copies.get(successor));
+                }
+                copy.setTerminator(terminator);
+            }
+
+            copiedBlocks.add(copy);
+        }
+
+        block.setTerminator(new Jump(copies.get(callee.getEntry())));
+        copiedBlocks.add(after);
+        blocks.addAll(blockIndex + 1, copiedBlocks);
+    }
+}
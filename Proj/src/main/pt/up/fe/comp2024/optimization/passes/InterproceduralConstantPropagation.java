@@ -0,0 +1,222 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.CallType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Propagates the constants that the methods of the class are called with into the methods, so that
+ * {@link SparseConditionalConstantPropagation} can fold the code that depends on them, such as branches on flags.
+ * <p>
+ * Only the calls of the class to its own methods are known, and other classes that import it can call its methods with
+ * any arguments, so the methods themselves are left as they are. Instead, methods that are small enough get a
+ * specialized copy for each combination of constants that the calls pass them, up to a budget, which assigns the
+ * constants to the parameters at its start, and each call goes to the copy for its constants. Constant propagation
+ * runs again after each round, since the constants it finds in a method can then be passed on to the methods it
+ * calls.
+ */
+public class InterproceduralConstantPropagation implements OptimizationPass {
+
+    // Instructions of a method, including terminators, for it to be specialized
+    private static final int MAX_SPECIALIZED_SIZE = 60;
+
+    // Specialized copies added to a class
+    private static final int MAX_SPECIALIZATIONS = 8;
+
+    /**
+     * Call of a method of the class, which is the instruction at the given index of the block.
+     */
+    private record CallSite(IrMethod caller, Block block, int index, CallExpr call) {
+    }
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        var propagation = new Propagation(irClass);
+        boolean changed = false;
+
+        while (propagation.round()) {
+            new SparseConditionalConstantPropagation().optimize(irClass);
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private static class Propagation {
+
+        private final IrClass irClass;
+
+        // Specialized copies of each method, by the constants of their parameters, with null for the others
+        private final Map<IrMethod, Map<List<Literal>, IrMethod>> specializations;
+
+        private int numSpecializations;
+
+        private Propagation(IrClass irClass) {
+            this.irClass = irClass;
+            this.specializations = new HashMap<>();
+            this.numSpecializations = 0;
+        }
+
+        /**
+         * @return true if a call went to a specialized method
+         */
+        private boolean round() {
+            boolean changed = false;
+
+            for (var entry : getCallSites().entrySet()) {
+                changed |= specialize(entry.getKey(), entry.getValue());
+            }
+
+            return changed;
+        }
+
+        /**
+         * @return the calls to each method of the class, in the methods of the class
+         */
+        private Map<IrMethod, List<CallSite>> getCallSites() {
+            var callSites = new LinkedHashMap<IrMethod, List<CallSite>>();
+
+            for (var method : irClass.getMethods()) {
+                for (var block : method.getBlocks()) {
+                    var instrs = block.getInstrs();
+
+                    for (int i = 0; i < instrs.size(); i++) {
+                        var call = instrs.get(i).getCall();
+                        var callee = getCallee(call);
+
+                        if (callee != null) {
+                            callSites.computeIfAbsent(callee, key -> new ArrayList<>())
+                                    .add(new CallSite(method, block, i, call));
+                        }
+                    }
+                }
+            }
+
+            return callSites;
+        }
+
+        private IrMethod getCallee(CallExpr call) {
+            if (call == null || !call.isCallTo(irClass.getName()) || call.getCallType() != CallType.invokestatic
+                    && call.getCallType() != CallType.invokevirtual) {
+                return null;
+            }
+
+            return irClass.getMethod(call.getMethodName())
+                    .filter(method -> method.getParams().size() == call.getArguments().size())
+                    .orElse(null);
+        }
+
+        /**
+         * @return true if the call is a call of the method to itself that passes the parameter unchanged
+         */
+        private static boolean isPassedOn(IrMethod method, CallSite callSite, int index) {
+            var param = method.getParams().get(index);
+            if (callSite.caller() != method || !callSite.call().getArguments().get(index).equals(param)) {
+                return false;
+            }
+
+            return method.getBlocks().stream()
+                    .flatMap(block -> block.getInstrs().stream())
+                    .noneMatch(instr -> param.equals(instr.getDef()));
+        }
+
+        /**
+         * Makes the calls that pass constants to parameters that are not constant in the method go to a copy of the
+         * method specialized for those constants.
+         */
+        private boolean specialize(IrMethod method, List<CallSite> callSites) {
+            // Specialized copies are not specialized again, so that their number stays bounded
+            boolean isSpecialization = specializations.values().stream().anyMatch(copies -> copies.containsValue(method));
+            if (isSpecialization || getSize(method) > MAX_SPECIALIZED_SIZE) {
+                return false;
+            }
+
+            var copies = specializations.computeIfAbsent(method, key -> new HashMap<>());
+            var specialized = getSpecializedParams(method, callSites);
+            boolean changed = false;
+
+            for (var callSite : callSites) {
+                var constants = new ArrayList<Literal>();
+                for (int i = 0; i < method.getParams().size(); i++) {
+                    var argument = callSite.call().getArguments().get(i);
+                    constants.add(specialized.contains(i) && argument instanceof Literal constant ? constant : null);
+                }
+
+                if (constants.stream().allMatch(constant -> constant == null)) {
+                    continue;
+                }
+
+                if (!copies.containsKey(constants) && numSpecializations < MAX_SPECIALIZATIONS) {
+                    copies.put(constants, createSpecialization(method, constants));
+                    numSpecializations++;
+                }
+
+                if (copies.containsKey(constants)) {
+                    redirect(callSite, copies.get(constants));
+                    changed = true;
+                }
+            }
+
+            return changed;
+        }
+
+        /**
+         * @return the parameters that the recursive calls of the method pass on, since specializing a recursive method
+         * for a parameter that changes with each call would copy it for each value
+         */
+        private Set<Integer> getSpecializedParams(IrMethod method, List<CallSite> callSites) {
+            var specialized = new HashSet<Integer>();
+
+            for (int i = 0; i < method.getParams().size(); i++) {
+                int index = i;
+                if (callSites.stream()
+                        .allMatch(callSite -> callSite.caller() != method || isPassedOn(method, callSite, index))) {
+                    specialized.add(i);
+                }
+            }
+
+            return specialized;
+        }
+
+        private IrMethod createSpecialization(IrMethod method, List<Literal> constants) {
+            var name = StaticCallPromotion.getFreeName(irClass, method.getName() + "_const");
+            var specialization = method.copy(name);
+
+            for (int i = 0; i < constants.size(); i++) {
+                if (constants.get(i) != null) {
+                    var param = specialization.getParams().get(i);
+                    specialization.getEntry().getInstrs().add(0, new AssignInstr(param, constants.get(i)));
+                }
+            }
+
+            irClass.getMethods().add(specialization);
+
+            return specialization;
+        }
+
+        private static void redirect(CallSite callSite, IrMethod specialization) {
+            var call = callSite.call();
+            var specializedCall = new CallExpr(call.getCallType(), call.getCaller(), specialization.getName(),
+                    call.getArguments(), call.getType());
+
+            var instrs = callSite.block().getInstrs();
+            if (instrs.get(callSite.index()) instanceof AssignInstr assign) {
+                assign.setRhs(specializedCall);
+            } else {
+                instrs.set(callSite.index(), new CallInstr(specializedCall));
+            }
+        }
+
+        private static int getSize(IrMethod method) {
+            return method.getBlocks().stream().mapToInt(block -> block.getAllInstrs().size()).sum();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces computations of a value that was already computed in the same basic block by a copy of the variable that
+ * holds it.
+ * <p>
+ * Variables that are copies of others are numbered as the variable they copy, so that {@code a[i] + a[i]} and
+ * {@code a[j] + a[i]} after {@code j = i} are both found. Loads are only reused while nothing may have written the
+ * memory they read: array elements until an array store or a call, fields until a write of the same field or a call
+ * that can change objects of the class. A load right after a store of the same element or field gets the stored value.
+ * Calls of methods without side effects, as found by {@link SideEffectAnalysis}, are numbered like other expressions,
+ * and forgotten like loads on any store or call with side effects if their method reads memory.
+ */
+public class LocalValueNumbering implements OptimizationPass {
+
+    private static final Set<OperationType> COMMUTATIVE = Set.of(OperationType.ADD, OperationType.MUL,
+            OperationType.AND, OperationType.OR, OperationType.XOR, OperationType.ANDB, OperationType.ORB,
+            OperationType.EQ, OperationType.NEQ);
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            for (var block : method.getBlocks()) {
+                changed |= new BlockNumbering(irClass.getName()).number(block);
+            }
+        }
+
+        return changed;
+    }
+
+    private static class BlockNumbering {
+
+        private final String className;
+
+        // Value each variable has since its last assignment in the block
+        private final Map<Var, Value> copies;
+
+        // Value of each expression, with operands given by their values, which is a variable that holds it or a literal
+        private final Map<Expr, Value> available;
+
+        private BlockNumbering(String className) {
+            this.className = className;
+            this.copies = new HashMap<>();
+            this.available = new HashMap<>();
+        }
+
+        private boolean number(Block block) {
+            boolean changed = false;
+
+            for (var instr : block.getInstrs()) {
+                if (instr instanceof AssignInstr assign) {
+                    changed |= numberAssign(assign);
+                } else {
+                    invalidateMemory(instr);
+                    forwardStore(instr);
+                }
+            }
+
+            return changed;
+        }
+
+        private boolean numberAssign(AssignInstr assign) {
+            var dest = assign.getDest();
+            var rhs = assign.getRhs();
+            boolean changed = false;
+
+            Value copied = null;
+            Expr key = null;
+
+            if (rhs instanceof Value value) {
+                copied = getValue(value);
+            } else if (!rhs.hasSideEffects()) {
+                key = getKey(rhs);
+                var holder = available.get(key);
+
+                if (holder != null) {
+                    assign.setRhs(holder);
+                    copied = getValue(holder);
+                    changed = true;
+                }
+            }
+
+            invalidateMemory(assign);
+            invalidate(dest);
+
+            if (copied != null && !copied.equals(dest)) {
+                copies.put(dest, copied);
+            } else if (key != null && !key.getOperands().contains(dest)) {
+                available.put(key, dest);
+            }
+
+            return changed;
+        }
+
+        /**
+         * Makes the value written by a store the value of the next load of the same element or field.
+         */
+        private void forwardStore(Instr instr) {
+            if (instr instanceof ArrayStoreInstr store) {
+                var load = new ArrayLoad(store.getArray(), store.getIndex(), store.getValue().getType());
+                available.put(getKey(load), getValue(store.getValue()));
+            }
+
+            if (instr instanceof PutFieldInstr putField) {
+                var load = new GetField(putField.getObject(), putField.getField(), putField.getValue().getType());
+                available.put(getKey(load), getValue(putField.getValue()));
+            }
+        }
+
+        private Value getValue(Value value) {
+            return value instanceof Var var ? copies.getOrDefault(var, var) : value;
+        }
+
+        private Expr getKey(Expr expr) {
+            var key = expr.mapOperands(this::getValue);
+
+            // Operands of commutative operations are sorted, so that a + b is found as b + a
+            if (key instanceof BinaryExpr binary && COMMUTATIVE.contains(binary.getOperation())
+                    && binary.getLeft().toOllir().compareTo(binary.getRight().toOllir()) > 0) {
+                return new BinaryExpr(binary.getOperation(), binary.getRight(), binary.getLeft(), binary.getType());
+            }
+
+            return key;
+        }
+
+        /**
+         * Forgets the values that depended on the previous value of the variable.
+         */
+        private void invalidate(Var var) {
+            copies.remove(var);
+            copies.values().removeIf(var::equals);
+            available.values().removeIf(var::equals);
+            available.keySet().removeIf(key -> key.getOperands().contains(var));
+        }
+
+        /**
+         * Forgets the loads that the instruction may make obsolete.
+         */
+        private void invalidateMemory(Instr instr) {
+            if (instr instanceof ArrayStoreInstr) {
+                available.keySet().removeIf(key -> key instanceof ArrayLoad || isCallReadingMemory(key));
+            }
+
+            if (instr instanceof PutFieldInstr putField) {
+                available.keySet().removeIf(key -> key instanceof GetField getField
+                        && getField.getField().equals(putField.getField()) || isCallReadingMemory(key));
+            }
+
+            var call = instr.getCall();
+            if (call != null && call.hasSideEffects()) {
+                boolean mayWriteFields = call.mayWriteFieldsOf(className);
+                available.keySet().removeIf(key -> key instanceof ArrayLoad
+                        || (mayWriteFields && key instanceof GetField) || isCallReadingMemory(key));
+            }
+        }
+
+        private static boolean isCallReadingMemory(Expr key) {
+            return key instanceof CallExpr call && call.readsMemory();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves computations whose result is the same in every iteration of a loop to the preheader of the loop, so that they
+ * run once each time the loop is entered.
+ * <p>
+ * An assignment is moved if its expression has no side effects and its operands are not assigned in the loop. Loads of
+ * fields are also moved if the loop writes no field that could be the same, which calls of methods of the class may
+ * do. Calls of pure methods are moved like other expressions, unless their method reads memory and the loop may
+ * write it. The assigned variable must be assigned only there in the loop, and before any of its uses in the loop.
+ * <p>
+ * The preheader runs before the first iteration, so an expression that may throw (e.g., the length of an array that
+ * may be null) is only moved if the same expression was already computed, on the same values, before the loop.
+ */
+public class LoopInvariantCodeMotion implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            changed |= optimize(method);
+        }
+
+        return changed;
+    }
+
+    private boolean optimize(IrMethod method) {
+        method.removeUnreachableBlocks();
+
+        var loops = Loop.findLoops(method, new Dominators(method));
+        if (loops.isEmpty()) {
+            return false;
+        }
+
+        // Preheaders change the graph, so the loops are found again with them
+        loops.forEach(loop -> loop.getOrCreatePreheader(method));
+        var dominators = new Dominators(method);
+        loops = Loop.findLoops(method, dominators);
+
+        boolean changed = false;
+        for (var loop : loops) {
+            changed |= hoist(method, loop, dominators);
+        }
+
+        // Preheaders where nothing was moved to are removed
+        method.removeEmptyBlocks();
+
+        return changed;
+    }
+
+    private boolean hoist(IrMethod method, Loop loop, Dominators dominators) {
+        var preheader = loop.getOrCreatePreheader(method);
+        var loopDefs = countDefs(loop.getBlocks());
+        var writtenFields = new HashSet<String>();
+        boolean mayWriteAnyField = false;
+        boolean mayWriteMemory = false;
+
+        for (var block : loop.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                if (instr instanceof PutFieldInstr putField) {
+                    writtenFields.add(putField.getField());
+                }
+
+                if (instr.hasSideEffects()) {
+                    mayWriteMemory = true;
+                }
+
+                var call = instr.getCall();
+                if (call != null && call.mayWriteFieldsOf(method.getOwner().getName())) {
+                    mayWriteAnyField = true;
+                }
+            }
+        }
+
+        var exitingBlocks = loop.getExitingBlocks();
+        var blocksInOrder = dominators.getReversePostorder().stream().filter(loop::contains).toList();
+
+        boolean changed = false;
+        for (var block : blocksInOrder) {
+            var iterator = block.getInstrs().listIterator();
+
+            while (iterator.hasNext()) {
+                if (!(iterator.next() instanceof AssignInstr assign)) {
+                    continue;
+                }
+
+                var rhs = assign.getRhs();
+                var dest = assign.getDest();
+
+                if (rhs.hasSideEffects() || !isInvariant(rhs, loopDefs) || loopDefs.get(dest) != 1) {
+                    continue;
+                }
+
+                // Elements of arrays can be written through any variable that refers to the same array
+                if (rhs instanceof ArrayLoad) {
+                    continue;
+                }
+
+                if (rhs instanceof GetField getField
+                        && (mayWriteAnyField || writtenFields.contains(getField.getField()))) {
+                    continue;
+                }
+
+                if (rhs instanceof CallExpr call && call.readsMemory() && mayWriteMemory) {
+                    continue;
+                }
+
+                if (!usesAreAfter(assign, block, loop, dominators)) {
+                    continue;
+                }
+
+                // Outside the loop, the variable must have the value it would have after any iteration
+                if (isUsedOutside(dest, method, loop)
+                        && !exitingBlocks.stream().allMatch(exiting -> dominators.dominates(block, exiting))) {
+                    continue;
+                }
+
+                var computedBefore = findComputedBefore(rhs, preheader, method, dominators);
+                if (rhs.canThrow() && computedBefore == null) {
+                    continue;
+                }
+
+                // The variable that has the value since then is copied, e.g., the length of an array in the condition
+                if (computedBefore != null && countDefs(method.getBlocks()).get(computedBefore.getDest()) == 1) {
+                    assign.setRhs(computedBefore.getDest());
+                }
+
+                iterator.remove();
+                preheader.getInstrs().add(assign);
+                loopDefs.remove(dest);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private static Map<Var, Integer> countDefs(Iterable<Block> blocks) {
+        var defs = new HashMap<Var, Integer>();
+
+        for (var block : blocks) {
+            for (var instr : block.getInstrs()) {
+                if (instr.getDef() != null) {
+                    defs.merge(instr.getDef(), 1, Integer::sum);
+                }
+            }
+        }
+
+        return defs;
+    }
+
+    private static boolean isInvariant(Expr expr, Map<Var, Integer> loopDefs) {
+        return expr.getOperands().stream().noneMatch(operand -> operand instanceof Var var && loopDefs.containsKey(var));
+    }
+
+    /**
+     * @return true if every use of the assigned variable in the loop runs after the assignment, in the same iteration
+     */
+    private static boolean usesAreAfter(AssignInstr assign, Block block, Loop loop, Dominators dominators) {
+        var dest = assign.getDest();
+
+        for (var other : loop.getBlocks()) {
+            var instrs = other.getAllInstrs();
+
+            // Blocks dominated by the block of the assignment only run after it
+            if (other == block) {
+                instrs = instrs.subList(0, instrs.indexOf(assign) + 1);
+            } else if (dominators.dominates(block, other)) {
+                continue;
+            }
+
+            if (instrs.stream().anyMatch(instr -> instr.getUses().contains(dest))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isUsedOutside(Var var, IrMethod method, Loop loop) {
+        return method.getBlocks().stream()
+                .filter(block -> !loop.contains(block))
+                .flatMap(block -> block.getAllInstrs().stream())
+                .anyMatch(instr -> instr.getUses().contains(var));
+    }
+
+    /**
+     * @return an assignment of the same expression that runs before the preheader, with the same values of the
+     * operands, in which case computing it again cannot throw, or null if there is none
+     */
+    private static AssignInstr findComputedBefore(Expr expr, Block preheader, IrMethod method, Dominators dominators) {
+        for (var block = preheader; block != null; block = dominators.getIdom(block)) {
+            var instrs = block.getInstrs();
+
+            for (int i = 0; i < instrs.size(); i++) {
+                if (instrs.get(i) instanceof AssignInstr assign && assign.getRhs().equals(expr)
+                        && operandsAreFinal(expr, block, i, method, dominators)) {
+                    return assign;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if the operands of the expression are only assigned before the instruction with the given index of
+     * the block, so that they keep their values from there until any block it dominates
+     */
+    private static boolean operandsAreFinal(Expr expr, Block block, int index, IrMethod method, Dominators dominators) {
+        Set<Value> operands = new HashSet<>(expr.getOperands());
+
+        for (var other : method.getBlocks()) {
+            var instrs = other.getInstrs();
+
+            for (int i = 0; i < instrs.size(); i++) {
+                var def = instrs.get(i).getDef();
+                if (def == null || !operands.contains(def)) {
+                    continue;
+                }
+
+                boolean isBefore = other == block ? i < index : dominators.dominates(other, block);
+                if (!isBefore) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,275 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Unrolls loops of a single block that test a counter against a limit, so that fewer iterations jump back to the start
+ * of the loop.
+ * <p>
+ * Loops that start the counter at a constant and compare it with a constant run a known number of times, and are
+ * replaced by that many copies of their block when these are small enough. {@link SparseConditionalConstantPropagation}
+ * then replaces the counter by its value in each copy, which turns indices such as {@code a[i]} into constants. Loops
+ * whose block only updates the counter are kept, since their copies would have nothing to specialize. Other
+ * loops, whose limit does not change in the loop, are unrolled by the given factor: a copy of the block with that many
+ * iterations runs while the counter is far enough from the limit, and the original block runs the iterations that
+ * remain. Limits that are variables are checked first, since subtracting the iterations of the copy from them could
+ * overflow.
+ */
+public class LoopUnrolling implements OptimizationPass {
+
+    // Instructions of a loop once unrolled, including terminators
+    private static final int MAX_UNROLLED_SIZE = 64;
+
+    private final int factor;
+
+    /**
+     * @param factor number of iterations that a copy of the block of loops with an unknown trip count runs, 1 to only
+     *               unroll loops with a known trip count
+     */
+    public LoopUnrolling(int factor) {
+        this.factor = factor;
+    }
+
+    /**
+     * Loop of a single block, which runs again while the test of its counter is true and otherwise goes to the exit.
+     *
+     * @param test comparison of the counter, on the left, with a limit that does not change in the loop
+     */
+    private record CountedLoop(Block block, Var counter, int step, BinaryExpr test, Block exit) {
+    }
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            changed |= unrollLoops(method);
+        }
+
+        return changed;
+    }
+
+    private boolean unrollLoops(IrMethod method) {
+        method.removeUnreachableBlocks();
+
+        boolean changed = false;
+
+        for (var loop : Loop.findLoops(method, new Dominators(method))) {
+            var counted = getCountedLoop(loop);
+            if (counted == null) {
+                continue;
+            }
+
+            int tripCount = onlyCounts(counted) ? 0 : getTripCount(method, counted);
+            if (tripCount > 0) {
+                unrollFully(counted, tripCount);
+                changed = true;
+            } else {
+                changed |= unrollPartially(method, counted);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the loop as a counted loop, or null if it has more than one block or does not test a counter
+     */
+    private static CountedLoop getCountedLoop(Loop loop) {
+        var block = loop.getHeader();
+        if (loop.getBlocks().size() != 1 || !(block.getTerminator() instanceof Branch branch)
+                || !(branch.getCondition() instanceof BinaryExpr comparison)
+                || !CountedLoopShaping.isComparison(comparison.getOperation())) {
+            return null;
+        }
+
+        BinaryExpr test;
+        Block exit;
+        if (branch.getIfTrue() == block && branch.getIfFalse() != block) {
+            test = comparison;
+            exit = branch.getIfFalse();
+        } else if (branch.getIfFalse() == block && branch.getIfTrue() != block) {
+            test = CountedLoopShaping.invert(comparison);
+            exit = branch.getIfTrue();
+        } else {
+            return null;
+        }
+
+        var counters = loop.getCounters();
+        if (!counters.containsKey(test.getLeft()) && counters.containsKey(test.getRight())) {
+            test = CountedLoopShaping.mirror(test);
+        }
+
+        if (!(test.getLeft() instanceof Var counter) || !counters.containsKey(counter) || counters.get(counter) == 0
+                || !isInvariant(block, test.getRight())) {
+            return null;
+        }
+
+        return new CountedLoop(block, counter, counters.get(counter), test, exit);
+    }
+
+    /**
+     * @return true if the block of the loop does nothing but update its counter
+     */
+    private static boolean onlyCounts(CountedLoop loop) {
+        return loop.block().getInstrs().stream().allMatch(instr -> loop.counter().equals(instr.getDef()));
+    }
+
+    private static boolean isInvariant(Block block, Value value) {
+        return value instanceof Literal
+                || value instanceof Var var && block.getInstrs().stream().noneMatch(instr -> var.equals(instr.getDef()));
+    }
+
+    /**
+     * @return the number of times the block runs each time the loop is entered, or 0 if it is not known or the loop
+     * would be too large once unrolled
+     */
+    private static int getTripCount(IrMethod method, CountedLoop loop) {
+        var initial = getInitialValue(method, loop);
+        if (initial == null || !(loop.test().getRight() instanceof Literal limit)) {
+            return 0;
+        }
+
+        int size = loop.block().getAllInstrs().size();
+        long counter = initial;
+
+        // The test runs after the counter is updated, at the end of the block
+        for (int tripCount = 1; tripCount * size <= MAX_UNROLLED_SIZE; tripCount++) {
+            counter += loop.step();
+            if (counter != (int) counter) {
+                return 0;
+            }
+
+            var passes = AlgebraicSimplification.fold(loop.test().getOperation(), (int) counter, limit.getValue());
+            if (passes.getValue() == 0) {
+                return tripCount;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return the constant the counter has when the loop is entered, or null if the block that enters the loop does
+     * not assign it a constant
+     */
+    private static Integer getInitialValue(IrMethod method, CountedLoop loop) {
+        var outside = method.getPredecessors().get(loop.block()).stream()
+                .filter(block -> block != loop.block())
+                .toList();
+        if (outside.size() != 1) {
+            return null;
+        }
+
+        var instrs = outside.get(0).getInstrs();
+        for (int i = instrs.size() - 1; i >= 0; i--) {
+            if (loop.counter().equals(instrs.get(i).getDef())) {
+                return instrs.get(i) instanceof AssignInstr assign && assign.getRhs() instanceof Literal literal
+                        ? literal.getValue() : null;
+            }
+        }
+
+        return null;
+    }
+
+    private static void unrollFully(CountedLoop loop, int tripCount) {
+        var instrs = loop.block().getInstrs();
+        var body = List.copyOf(instrs);
+
+        for (int i = 1; i < tripCount; i++) {
+            for (var instr : body) {
+                instrs.add(instr.copy(UnaryOperator.identity()));
+            }
+        }
+
+        loop.block().setTerminator(new Jump(loop.exit()));
+    }
+
+    /**
+     * Adds a copy of the block with {@link #factor} iterations before it, which runs while the test would still pass
+     * after {@code factor - 1} more updates of the counter.
+     */
+    private boolean unrollPartially(IrMethod method, CountedLoop loop) {
+        var block = loop.block();
+        if (factor == 1 || factor * block.getAllInstrs().size() > MAX_UNROLLED_SIZE) {
+            return false;
+        }
+
+        // Counters that move away from their limit never stop, or only when they overflow
+        var operation = loop.test().getOperation();
+        boolean increasing = operation == OperationType.LTH || operation == OperationType.LTE;
+        if (increasing != loop.step() > 0) {
+            return false;
+        }
+
+        // The counter passes the test after factor - 1 more updates when it passes it against the limit minus them
+        long distance = (long) (factor - 1) * loop.step();
+        if (distance != (int) distance) {
+            return false;
+        }
+
+        var bound = loop.test().getRight();
+        var newBlocks = new ArrayList<Block>();
+        var check = method.newBlock("unrollcheck");
+        Value limit;
+
+        if (bound instanceof Literal literal) {
+            long value = literal.getValue() - distance;
+            if (value != (int) value) {
+                return false;
+            }
+
+            limit = Literal.ofInt((int) value);
+        } else {
+            limit = method.newVar("limit", Value.INT);
+
+            var guard = method.newBlock("unrollguard");
+            var difference = distance > 0
+                    ? new BinaryExpr(OperationType.SUB, bound, Literal.ofInt((int) distance), Value.INT)
+                    : new BinaryExpr(OperationType.ADD, bound, Literal.ofInt((int) -distance), Value.INT);
+            guard.getInstrs().add(new AssignInstr((Var) limit, difference));
+
+            // Limits that would overflow leave all iterations to the original block
+            var overflows = distance > 0
+                    ? new BinaryExpr(OperationType.LTH, bound, Literal.ofInt(Integer.MIN_VALUE + (int) distance),
+                    Value.BOOL)
+                    : new BinaryExpr(OperationType.GTH, bound, Literal.ofInt(Integer.MAX_VALUE + (int) distance),
+                    Value.BOOL);
+            guard.setTerminator(new Branch(overflows, block, check));
+            newBlocks.add(guard);
+        }
+
+        var unrolled = method.newBlock("unrolled");
+        var remainder = method.newBlock("remainder");
+
+        for (int i = 0; i < factor; i++) {
+            for (var instr : block.getInstrs()) {
+                unrolled.getInstrs().add(instr.copy(UnaryOperator.identity()));
+            }
+        }
+
+        var farFromLimit = new BinaryExpr(operation, loop.counter(), limit, Value.BOOL);
+        check.setTerminator(new Branch(CountedLoopShaping.invert(farFromLimit), block, unrolled));
+        unrolled.setTerminator(new Branch(farFromLimit, unrolled, remainder));
+        remainder.setTerminator(new Branch(CountedLoopShaping.invert(loop.test()), loop.exit(), block));
+        newBlocks.addAll(List.of(check, unrolled, remainder));
+
+        // The loop is now entered through the new blocks
+        for (var predecessor : method.getPredecessors().get(block)) {
+            if (predecessor != block) {
+                predecessor.getTerminator().replaceSuccessor(block, newBlocks.get(0));
+            }
+        }
+
+        var blocks = method.getBlocks();
+        blocks.addAll(blocks.indexOf(block), newBlocks);
+
+        return true;
+    }
+}
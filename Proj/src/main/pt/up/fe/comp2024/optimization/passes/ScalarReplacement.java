@@ -0,0 +1,171 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.CallType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces objects of the class that do not escape the method that creates them by a variable for each of their
+ * fields, so that they are no longer allocated.
+ * <p>
+ * An object does not escape when the variable it is assigned to is only read to construct it and to get or set its
+ * fields. Calls of methods on the object make it escape, unless they were inlined, which is why the pass runs after
+ * {@link Inlining}. The variable must not be assigned anything else, and the class must not have a superclass, whose
+ * constructor could have side effects. The variables of the fields start with the default value of their type, so
+ * only objects whose int and boolean fields are used are replaced.
+ */
+public class ScalarReplacement implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        if (irClass.getSuperClass() != null) {
+            return false;
+        }
+
+        var fieldTypes = new HashMap<String, String>();
+        for (var field : irClass.getFields()) {
+            fieldTypes.put(field.getName(), field.getType());
+        }
+
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            for (var object : getLocalObjects(irClass, method, fieldTypes)) {
+                replace(method, object, fieldTypes);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the variables of the method that are only assigned new objects of the class, and only read to use their
+     * fields
+     */
+    private static Set<Var> getLocalObjects(IrClass irClass, IrMethod method, Map<String, String> fieldTypes) {
+        var objects = new LinkedHashSet<Var>();
+        var assignments = new HashMap<Var, Integer>();
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                var def = instr.getDef();
+                if (def == null) {
+                    continue;
+                }
+
+                assignments.merge(def, 1, Integer::sum);
+                if (instr instanceof AssignInstr assign && assign.getRhs() instanceof NewObject newObject
+                        && newObject.getType().equals(irClass.getName())) {
+                    objects.add(def);
+                }
+            }
+        }
+
+        objects.removeIf(object -> assignments.get(object) > 1 || method.getParams().contains(object));
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getAllInstrs()) {
+                for (var use : instr.getUses()) {
+                    if (use instanceof Var var && objects.contains(var) && !isLocalUse(instr, var, fieldTypes)) {
+                        objects.remove(var);
+                    }
+                }
+            }
+        }
+
+        return objects;
+    }
+
+    /**
+     * @return true if the instruction only reads the object to call its constructor or to use one of its fields
+     */
+    private static boolean isLocalUse(Instr instr, Var object, Map<String, String> fieldTypes) {
+        if (instr instanceof CallInstr call) {
+            return isConstructorCall(call.getCall(), object);
+        }
+
+        if (instr instanceof AssignInstr assign && assign.getRhs() instanceof GetField getField) {
+            return isScalar(fieldTypes.get(getField.getField()));
+        }
+
+        if (instr instanceof PutFieldInstr putField) {
+            return putField.getObject().equals(object) && !putField.getValue().equals(object)
+                    && isScalar(fieldTypes.get(putField.getField()));
+        }
+
+        return false;
+    }
+
+    private static boolean isConstructorCall(CallExpr call, Var object) {
+        return call.getCallType() == CallType.invokespecial && call.getMethodName().equals("<init>")
+                && call.getCaller().equals(object) && call.getArguments().isEmpty();
+    }
+
+    private static boolean isScalar(String type) {
+        return Value.INT.equals(type) || Value.BOOL.equals(type);
+    }
+
+    /**
+     * Assigns the default values of the fields of the object where it was created, removes its constructor call, and
+     * makes the accesses to its fields use their variables.
+     */
+    private static void replace(IrMethod method, Var object, Map<String, String> fieldTypes) {
+        var fields = new LinkedHashMap<String, Var>();
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                var field = getAccessedField(instr, object);
+
+                if (field != null && !fields.containsKey(field)) {
+                    var prefix = object.getName() + "_" + field + "_";
+                    fields.put(field, method.newVar(prefix, fieldTypes.get(field)));
+                }
+            }
+        }
+
+        for (var block : method.getBlocks()) {
+            var instrs = block.getInstrs().listIterator();
+
+            while (instrs.hasNext()) {
+                var instr = instrs.next();
+
+                if (instr instanceof AssignInstr assign && assign.getDest().equals(object)) {
+                    instrs.remove();
+                    for (var var : fields.values()) {
+                        instrs.add(new AssignInstr(var, new Literal(0, var.getType())));
+                    }
+                } else if (instr instanceof CallInstr call && isConstructorCall(call.getCall(), object)) {
+                    instrs.remove();
+                } else if (instr instanceof AssignInstr assign && assign.getRhs() instanceof GetField getField
+                        && getField.getObject().equals(object)) {
+                    instrs.set(new AssignInstr(assign.getDest(), fields.get(getField.getField())));
+                } else if (instr instanceof PutFieldInstr putField && putField.getObject().equals(object)) {
+                    instrs.set(new AssignInstr(fields.get(putField.getField()), putField.getValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the field of the object that the instruction gets or sets, or null
+     */
+    private static String getAccessedField(Instr instr, Var object) {
+        if (instr instanceof AssignInstr assign && assign.getRhs() instanceof GetField getField
+                && getField.getObject().equals(object)) {
+            return getField.getField();
+        }
+
+        if (instr instanceof PutFieldInstr putField && putField.getObject().equals(object)) {
+            return putField.getField();
+        }
+
+        return null;
+    }
+}
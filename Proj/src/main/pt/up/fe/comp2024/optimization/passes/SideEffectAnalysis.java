@@ -0,0 +1,197 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.CallType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summarizes the effects each method of the class can have besides computing its result, and gives each call the
+ * effects of the method it calls, so that calls of pure methods are treated like other expressions:
+ * {@link LocalValueNumbering} reuses their results, {@link LoopInvariantCodeMotion} moves them out of loops and
+ * {@link DeadCodeElimination} removes those whose result is not used.
+ * <p>
+ * The effects of a method are those of its instructions, such as writing fields or creating arrays, together with those
+ * of the methods it calls. Methods of the class are summarized after the methods they call, and again until no summary
+ * changes, since recursive methods depend on their own summary. Methods with loops or recursion may not return. Calls
+ * of imported methods can do anything, unless the method was given as pure (e.g., {@code "MathUtils.max"}), which
+ * means its result depends only on its arguments and it always returns without throwing.
+ */
+public class SideEffectAnalysis implements OptimizationPass {
+
+    private final Set<String> pureImports;
+
+    /**
+     * @param pureImports imported methods known to be pure, each given by the name of its class, a dot, and its name
+     */
+    public SideEffectAnalysis(Set<String> pureImports) {
+        this.pureImports = Set.copyOf(pureImports);
+    }
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        var summaries = summarize(irClass);
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            for (var block : method.getBlocks()) {
+                var instrs = block.getInstrs();
+
+                for (int i = 0; i < instrs.size(); i++) {
+                    var call = instrs.get(i).getCall();
+                    if (call == null) {
+                        continue;
+                    }
+
+                    var effects = getCallEffects(irClass, call, summaries);
+                    if (effects.equals(call.getEffects())) {
+                        continue;
+                    }
+
+                    if (instrs.get(i) instanceof AssignInstr assign) {
+                        assign.setRhs(call.withEffects(effects));
+                    } else {
+                        instrs.set(i, new CallInstr(call.withEffects(effects)));
+                    }
+
+                    changed = true;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the effects of each method of the class
+     */
+    private Map<IrMethod, Set<SideEffect>> summarize(IrClass irClass) {
+        var callees = new HashMap<IrMethod, Set<IrMethod>>();
+        var summaries = new HashMap<IrMethod, Set<SideEffect>>();
+
+        for (var method : irClass.getMethods()) {
+            callees.put(method, Inlining.getCallees(irClass, method));
+            summaries.put(method, EnumSet.noneOf(SideEffect.class));
+        }
+
+        var order = Inlining.getBottomUpOrder(irClass, callees);
+        for (var method : order) {
+            if (hasLoop(method) || Inlining.isRecursive(method, callees)) {
+                summaries.get(method).add(SideEffect.MAY_NOT_RETURN);
+            }
+        }
+
+        // Callees are summarized first, so only methods in cycles of calls need more than one round
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (var method : order) {
+                changed |= summaries.get(method).addAll(getEffects(irClass, method, summaries));
+            }
+        }
+
+        return summaries;
+    }
+
+    /**
+     * @return true if a block of the method can run again, which is the case when it jumps back to an earlier block
+     */
+    private static boolean hasLoop(IrMethod method) {
+        var order = method.getReversePostorder();
+
+        for (int i = 0; i < order.size(); i++) {
+            for (var successor : order.get(i).getSuccessors()) {
+                if (order.indexOf(successor) <= i) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the effects of the instructions of the method, with the current summaries of the methods it calls
+     */
+    private Set<SideEffect> getEffects(IrClass irClass, IrMethod method, Map<IrMethod, Set<SideEffect>> summaries) {
+        var effects = EnumSet.noneOf(SideEffect.class);
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                var call = instr.getCall();
+
+                if (call != null) {
+                    effects.addAll(getCallEffects(irClass, call, summaries));
+
+                    if (!(call.getCaller() instanceof This) && !(call.getCaller() instanceof ClassRef)) {
+                        effects.add(SideEffect.MAY_THROW);
+                    }
+
+                    continue;
+                }
+
+                if (instr instanceof PutFieldInstr) {
+                    effects.add(SideEffect.WRITES_FIELDS);
+                } else if (instr instanceof ArrayStoreInstr) {
+                    effects.add(SideEffect.WRITES_ARRAYS);
+                } else if (instr instanceof AssignInstr assign) {
+                    var rhs = assign.getRhs();
+
+                    if (rhs instanceof GetField) {
+                        effects.add(SideEffect.READS_FIELDS);
+                    } else if (rhs instanceof ArrayLoad) {
+                        effects.add(SideEffect.READS_ARRAYS);
+                    } else if (rhs instanceof NewObject || rhs instanceof NewArray) {
+                        effects.add(SideEffect.ALLOCATES);
+                    }
+                }
+
+                if (instr.canThrow()) {
+                    effects.add(SideEffect.MAY_THROW);
+                }
+            }
+
+            if (block.getTerminator().canThrow()) {
+                effects.add(SideEffect.MAY_THROW);
+            }
+        }
+
+        return effects;
+    }
+
+    /**
+     * @return the effects of the method the call calls
+     */
+    private Set<SideEffect> getCallEffects(IrClass irClass, CallExpr call, Map<IrMethod, Set<SideEffect>> summaries) {
+        var callee = getCallee(irClass, call);
+        if (callee != null) {
+            return summaries.get(callee);
+        }
+
+        // Objects of the class are initialized by the constructor of Object when it has no superclass
+        boolean isObjectConstructor = call.getCallType() == CallType.invokespecial
+                && call.getMethodName().equals("<init>") && call.isCallTo(irClass.getName())
+                && irClass.getSuperClass() == null;
+
+        if (isObjectConstructor || pureImports.contains(call.getCaller().getType() + "." + call.getMethodName())) {
+            return EnumSet.noneOf(SideEffect.class);
+        }
+
+        return EnumSet.of(SideEffect.CALLS_IMPORTED);
+    }
+
+    private static IrMethod getCallee(IrClass irClass, CallExpr call) {
+        if (!call.isCallTo(irClass.getName()) || call.getCallType() == CallType.invokespecial) {
+            return null;
+        }
+
+        return irClass.getMethod(call.getMethodName())
+                .filter(method -> method.getParams().size() == call.getArguments().size())
+                .orElse(null);
+    }
+}
@@ -0,0 +1,312 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Replaces variables that always have the same value by that value, and removes the branches that are never taken,
+ * with the algorithm of Wegman and Zadeck over the {@link Ssa} form of each method.
+ * <p>
+ * Blocks are only evaluated once an edge to them may be taken, and a branch whose condition is a constant only makes
+ * the edge it takes reachable. A variable assigned in a loop whose condition is never true therefore keeps the value
+ * it had before the loop. Branches on constants become jumps, and blocks that cannot be reached are removed.
+ */
+public class SparseConditionalConstantPropagation implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            var ssa = Ssa.construct(method);
+            var propagation = new Propagation(method);
+
+            propagation.run();
+            changed |= propagation.rewrite();
+
+            ssa.destruct();
+        }
+
+        return changed;
+    }
+
+    /**
+     * Value of a variable or expression during the propagation: unknown until it is computed, then a constant, and
+     * varying once it can have more than one value. Values only go down, so the propagation ends.
+     */
+    private static class LatticeValue {
+
+        private static final LatticeValue UNKNOWN = new LatticeValue(null);
+        private static final LatticeValue VARYING = new LatticeValue(null);
+
+        private final Literal constant;
+
+        private LatticeValue(Literal constant) {
+            this.constant = constant;
+        }
+
+        private static LatticeValue of(Literal constant) {
+            return constant == null ? VARYING : new LatticeValue(constant);
+        }
+
+        private boolean isConstant() {
+            return constant != null;
+        }
+
+        private LatticeValue meet(LatticeValue other) {
+            if (this == UNKNOWN) {
+                return other;
+            }
+
+            if (other == UNKNOWN || equals(other)) {
+                return this;
+            }
+
+            return VARYING;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            return o instanceof LatticeValue value && isConstant() && constant.equals(value.constant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(constant);
+        }
+    }
+
+    private static class Propagation {
+
+        private final IrMethod method;
+
+        private final Map<Var, LatticeValue> values;
+        // Predecessors of each block whose edge to it may be taken
+        private final Map<Block, Set<Block>> executableEdges;
+        private final Set<Block> reached;
+
+        // Instructions that read each variable, and the block of each instruction
+        private final Map<Var, List<Instr>> users;
+        private final Map<Instr, Block> blocks;
+
+        private final ArrayDeque<Block> pendingBlocks;
+        private final ArrayDeque<Instr> pendingInstrs;
+
+        private Propagation(IrMethod method) {
+            this.method = method;
+            this.values = new HashMap<>();
+            this.executableEdges = new HashMap<>();
+            this.reached = new HashSet<>();
+            this.users = new HashMap<>();
+            this.blocks = new IdentityHashMap<>();
+            this.pendingBlocks = new ArrayDeque<>();
+            this.pendingInstrs = new ArrayDeque<>();
+
+            var assigned = new HashSet<Var>();
+
+            for (var block : method.getBlocks()) {
+                executableEdges.put(block, new HashSet<>());
+
+                for (var instr : block.getAllInstrs()) {
+                    blocks.put(instr, block);
+
+                    for (var use : instr.getUses()) {
+                        if (use instanceof Var var) {
+                            users.computeIfAbsent(var, key -> new ArrayList<>()).add(instr);
+                        }
+                    }
+
+                    if (instr.getDef() != null) {
+                        assigned.add(instr.getDef());
+                    }
+                }
+            }
+
+            // Parameters, and variables read without being assigned, can have any value
+            for (var var : users.keySet()) {
+                if (!assigned.contains(var)) {
+                    values.put(var, LatticeValue.VARYING);
+                }
+            }
+        }
+
+        private void run() {
+            reached.add(method.getEntry());
+            pendingBlocks.add(method.getEntry());
+
+            while (!pendingBlocks.isEmpty() || !pendingInstrs.isEmpty()) {
+                if (!pendingBlocks.isEmpty()) {
+                    var block = pendingBlocks.poll();
+                    block.getAllInstrs().forEach(this::visit);
+                    continue;
+                }
+
+                var instr = pendingInstrs.poll();
+                if (reached.contains(blocks.get(instr))) {
+                    visit(instr);
+                }
+            }
+        }
+
+        private void visit(Instr instr) {
+            var block = blocks.get(instr);
+
+            if (instr instanceof Phi phi) {
+                var value = LatticeValue.UNKNOWN;
+
+                for (var entry : phi.getValues().entrySet()) {
+                    if (executableEdges.get(block).contains(entry.getKey())) {
+                        value = value.meet(evaluate(entry.getValue()));
+                    }
+                }
+
+                setValue(phi.getDest(), value);
+            } else if (instr instanceof AssignInstr assign) {
+                setValue(assign.getDest(), evaluate(assign.getRhs()));
+            } else if (instr instanceof Jump jump) {
+                addEdge(block, jump.getTarget());
+            } else if (instr instanceof Branch branch) {
+                var condition = evaluate(branch.getCondition());
+
+                if (condition.isConstant()) {
+                    addEdge(block, condition.constant.getValue() != 0 ? branch.getIfTrue() : branch.getIfFalse());
+                } else if (condition == LatticeValue.VARYING) {
+                    addEdge(block, branch.getIfTrue());
+                    addEdge(block, branch.getIfFalse());
+                }
+            }
+        }
+
+        private void setValue(Var var, LatticeValue value) {
+            var current = values.getOrDefault(var, LatticeValue.UNKNOWN);
+            var lowered = current.meet(value);
+
+            if (!lowered.equals(current)) {
+                values.put(var, lowered);
+                pendingInstrs.addAll(users.getOrDefault(var, List.of()));
+            }
+        }
+
+        private void addEdge(Block from, Block to) {
+            if (!executableEdges.get(to).add(from)) {
+                return;
+            }
+
+            // The phis of a block that was already evaluated get a new value to merge
+            if (reached.add(to)) {
+                pendingBlocks.add(to);
+            } else {
+                to.getInstrs().stream().takeWhile(instr -> instr instanceof Phi).forEach(pendingInstrs::add);
+            }
+        }
+
+        private LatticeValue evaluate(Expr expr) {
+            if (expr instanceof Literal literal) {
+                return LatticeValue.of(literal);
+            }
+
+            if (expr instanceof Var var) {
+                return values.getOrDefault(var, LatticeValue.UNKNOWN);
+            }
+
+            if (expr instanceof BinaryExpr binary) {
+                var left = evaluate(binary.getLeft());
+                var right = evaluate(binary.getRight());
+
+                if (left == LatticeValue.UNKNOWN || right == LatticeValue.UNKNOWN) {
+                    return LatticeValue.UNKNOWN;
+                }
+
+                if (!left.isConstant() || !right.isConstant()) {
+                    return LatticeValue.VARYING;
+                }
+
+                // Divisions by zero are not folded, they must still throw
+                return LatticeValue.of(AlgebraicSimplification.fold(binary.getOperation(),
+                        left.constant.getValue(), right.constant.getValue()));
+            }
+
+            if (expr instanceof UnaryExpr unary && unary.getOperation() == OperationType.NOTB) {
+                var operand = evaluate(unary.getOperand());
+
+                return operand.isConstant() ? LatticeValue.of(Literal.ofBool(operand.constant.getValue() == 0))
+                        : operand;
+            }
+
+            return LatticeValue.VARYING;
+        }
+
+        /**
+         * Replaces constant variables by their values, removes their assignments, and turns branches that always
+         * go the same way into jumps.
+         *
+         * @return true if the method changed
+         */
+        private boolean rewrite() {
+            boolean changed = false;
+
+            for (var block : method.getBlocks()) {
+                if (!reached.contains(block)) {
+                    changed = true;
+                    continue;
+                }
+
+                var instrs = block.getInstrs();
+
+                for (var instr : instrs) {
+                    if (instr instanceof Phi phi) {
+                        changed |= phi.getValues().keySet().retainAll(executableEdges.get(block));
+                    }
+                }
+
+                changed |= instrs.removeIf(instr -> instr.getDef() != null && getConstant(instr.getDef()) != null
+                        && !instr.hasSideEffects() && !instr.canThrow());
+
+                for (var instr : block.getAllInstrs()) {
+                    var uses = instr.getUses();
+                    instr.mapUses(value -> value instanceof Var var && getConstant(var) != null ? getConstant(var)
+                            : value);
+                    changed |= !uses.equals(instr.getUses());
+                }
+
+                if (block.getTerminator() instanceof Branch branch) {
+                    var condition = evaluate(branch.getCondition());
+
+                    if (condition.isConstant()) {
+                        block.setTerminator(new Jump(condition.constant.getValue() != 0 ? branch.getIfTrue()
+                                : branch.getIfFalse()));
+                        changed = true;
+                    }
+                }
+            }
+
+            method.removeUnreachableBlocks();
+
+            return changed;
+        }
+
+        /**
+         * @return the literal the variable is always equal to, with the type of the variable, or null
+         */
+        private Literal getConstant(Var var) {
+            var value = values.getOrDefault(var, LatticeValue.UNKNOWN);
+
+            return value.isConstant() ? new Literal(value.constant.getValue(), var.getType()) : null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.CallType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calls the methods of the class that do not use {@code this} with invokestatic, since the class has no subclasses
+ * that could override them.
+ * <p>
+ * A method is promoted when it does not use {@code this}, other than to call methods that are also promoted. Its code
+ * moves to a static twin, and the instance method only calls the twin, since other classes that import this one still
+ * call it with invokevirtual. Calls in the class only call the twin when their object is {@code this} or a variable
+ * only assigned new objects, since a call on null must still throw. The object of a promoted call is no longer used by
+ * it, which lets {@link ScalarReplacement} remove the object.
+ */
+public class StaticCallPromotion implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        var promoted = getPromotedMethods(irClass);
+        if (promoted.isEmpty()) {
+            return false;
+        }
+
+        var staticNames = new HashMap<String, String>();
+        for (var method : promoted) {
+            staticNames.put(method.getName(), getFreeName(irClass, method.getName() + "_static"));
+        }
+
+        for (var method : irClass.getMethods()) {
+            promoteCalls(irClass, method, staticNames);
+        }
+
+        var methods = irClass.getMethods();
+        for (var method : promoted) {
+            var staticMethod = method.moveToStatic(staticNames.get(method.getName()));
+
+            methods.add(staticMethod);
+            addForwardingCall(irClass, method, staticMethod);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the instance methods of the class that only use {@code this} to call each other
+     */
+    private static Set<IrMethod> getPromotedMethods(IrClass irClass) {
+        var promoted = new LinkedHashSet<IrMethod>();
+        for (var method : irClass.getMethods()) {
+            if (!method.isStatic()) {
+                promoted.add(method);
+            }
+        }
+
+        // A method stops being promoted when it calls a method on this that is not promoted
+        boolean changed = true;
+        while (changed) {
+            var names = promoted.stream().map(IrMethod::getName).toList();
+            changed = promoted.removeIf(method -> usesThis(method, names));
+        }
+
+        return promoted;
+    }
+
+    private static boolean usesThis(IrMethod method, List<String> promotedNames) {
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getAllInstrs()) {
+                var call = instr.getCall();
+
+                if (call != null && call.getCaller() instanceof This && call.getCallType() == CallType.invokevirtual
+                        && promotedNames.contains(call.getMethodName())
+                        && call.getArguments().stream().noneMatch(argument -> argument instanceof This)) {
+                    continue;
+                }
+
+                if (instr.getUses().stream().anyMatch(use -> use instanceof This)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    static String getFreeName(IrClass irClass, String name) {
+        var freeName = name;
+
+        for (int number = 0; irClass.getMethod(freeName).isPresent(); number++) {
+            freeName = name + number;
+        }
+
+        return freeName;
+    }
+
+    private static boolean isNotNull(IrMethod method, Value object) {
+        return object instanceof This || object instanceof Var var && Inlining.isNewObject(method, var);
+    }
+
+    private static void promoteCalls(IrClass irClass, IrMethod method, Map<String, String> staticNames) {
+        for (var block : method.getBlocks()) {
+            var instrs = block.getInstrs();
+
+            for (int i = 0; i < instrs.size(); i++) {
+                var call = instrs.get(i).getCall();
+
+                if (call == null || call.getCallType() != CallType.invokevirtual || !call.isCallTo(irClass.getName())
+                        || !staticNames.containsKey(call.getMethodName()) || !isNotNull(method, call.getCaller())) {
+                    continue;
+                }
+
+                var staticCall = new CallExpr(CallType.invokestatic, new ClassRef(irClass.getName()),
+                        staticNames.get(call.getMethodName()), call.getArguments(), call.getType());
+
+                if (instrs.get(i) instanceof AssignInstr assign) {
+                    assign.setRhs(staticCall);
+                } else {
+                    instrs.set(i, new CallInstr(staticCall));
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the method, which has no code, return the result of a call to the static method.
+     */
+    private static void addForwardingCall(IrClass irClass, IrMethod method, IrMethod staticMethod) {
+        var block = method.newBlock("forward");
+        var call = new CallExpr(CallType.invokestatic, new ClassRef(irClass.getName()), staticMethod.getName(),
+                new ArrayList<Value>(method.getParams()), method.getReturnType());
+
+        if (method.getReturnType().equals(Value.VOID)) {
+            block.getInstrs().add(new CallInstr(call));
+            block.setTerminator(new Return(null, Value.VOID));
+        } else {
+            var result = method.newVar("tmp", method.getReturnType());
+            block.getInstrs().add(new AssignInstr(result, call));
+            block.setTerminator(new Return(result, method.getReturnType()));
+        }
+
+        method.getBlocks().add(block);
+    }
+}
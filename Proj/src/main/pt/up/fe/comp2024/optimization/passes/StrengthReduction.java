@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Replaces multiplications of loop counters by a constant with a variable that is increased with the counter.
+ * <p>
+ * For a counter {@code i} increased by {@code s} once per iteration, {@code t = i * c} in the loop becomes
+ * {@code t = r}, where {@code r = i * c} is computed in the preheader and {@code r = r + s * c} is added right after
+ * the assignment of {@code i}. The variable then has the value of the product wherever the loop reads it, with the
+ * same overflow, and each iteration does an addition instead of a multiplication.
+ */
+public class StrengthReduction implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            changed |= optimize(method);
+        }
+
+        return changed;
+    }
+
+    private boolean optimize(IrMethod method) {
+        method.removeUnreachableBlocks();
+
+        var loops = Loop.findLoops(method, new Dominators(method));
+        if (loops.isEmpty()) {
+            return false;
+        }
+
+        // Preheaders change the graph, so the loops are found again with them
+        loops.forEach(loop -> loop.getOrCreatePreheader(method));
+        loops = Loop.findLoops(method, new Dominators(method));
+
+        boolean changed = false;
+        for (var loop : loops) {
+            changed |= reduce(method, loop);
+        }
+
+        method.removeEmptyBlocks();
+
+        return changed;
+    }
+
+    private boolean reduce(IrMethod method, Loop loop) {
+        var counters = loop.getCounters();
+        var preheader = loop.getOrCreatePreheader(method);
+
+        // Variable with the product of each counter and constant, shared by the multiplications of the loop
+        var products = new HashMap<Product, Var>();
+
+        for (var block : loop.getBlocks()) {
+            for (var instr : block.getInstrs()) {
+                if (!(instr instanceof AssignInstr assign) || !(assign.getRhs() instanceof BinaryExpr binary)
+                        || binary.getOperation() != OperationType.MUL) {
+                    continue;
+                }
+
+                var product = getProduct(binary, counters);
+                if (product == null || product.counter.equals(assign.getDest())) {
+                    continue;
+                }
+
+                var reduced = products.computeIfAbsent(product, key -> method.newVar("iv", Value.INT));
+                assign.setRhs(reduced);
+            }
+        }
+
+        products.forEach((product, reduced) -> {
+            preheader.getInstrs().add(new AssignInstr(reduced, new BinaryExpr(OperationType.MUL, product.counter,
+                    product.factor, Value.INT)));
+
+            var increment = Literal.ofInt(counters.get(product.counter) * product.factor.getValue());
+            var update = new AssignInstr(reduced, new BinaryExpr(OperationType.ADD, reduced, increment, Value.INT));
+            insertAfterUpdate(loop, product.counter, update);
+        });
+
+        return !products.isEmpty();
+    }
+
+    /**
+     * @return the counter and constant multiplied by the expression, or null if it is not such a multiplication
+     */
+    private static Product getProduct(BinaryExpr multiplication, Map<Var, Integer> counters) {
+        var swapped = List.of(multiplication.getRight(), multiplication.getLeft());
+
+        for (var operands : List.of(multiplication.getOperands(), swapped)) {
+            if (operands.get(0) instanceof Var counter && counters.containsKey(counter)
+                    && operands.get(1) instanceof Literal factor) {
+                return new Product(counter, factor);
+            }
+        }
+
+        return null;
+    }
+
+    private static void insertAfterUpdate(Loop loop, Var counter, Instr instr) {
+        for (var block : loop.getBlocks()) {
+            var instrs = block.getInstrs();
+
+            for (int i = 0; i < instrs.size(); i++) {
+                if (counter.equals(instrs.get(i).getDef())) {
+                    instrs.add(i + 1, instr);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Product {
+
+        private final Var counter;
+        private final Literal factor;
+
+        private Product(Var counter, Literal factor) {
+            this.counter = counter;
+            this.factor = factor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Product product && counter.equals(product.counter) && factor.equals(product.factor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(counter, factor);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.CallType;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the calls of a method to itself that are the last thing it does by an assignment of the arguments to the
+ * parameters and a jump to the start of the method, so that deep recursion no longer grows the stack.
+ * <p>
+ * A call is a tail call when its block then returns its result, directly or by jumping to a block that only returns.
+ * A call whose result is not used is also a tail call when the method always returns the same literal, like methods
+ * that return true only to be called in expressions. Calls on objects other than {@code this} are not replaced, since
+ * they run with another object. The arguments are assigned to new variables before the parameters, as they may read
+ * the parameters, and copy propagation later removes the copies that are not needed.
+ */
+public class TailRecursionElimination implements OptimizationPass {
+
+    @Override
+    public boolean optimize(IrClass irClass) {
+        boolean changed = false;
+
+        for (var method : irClass.getMethods()) {
+            changed |= eliminate(irClass, method);
+        }
+
+        return changed;
+    }
+
+    private static boolean eliminate(IrClass irClass, IrMethod method) {
+        var returned = getReturnedLiteral(method);
+        Block start = null;
+
+        for (var block : new ArrayList<>(method.getBlocks())) {
+            var instrs = block.getInstrs();
+            var last = instrs.isEmpty() ? null : instrs.get(instrs.size() - 1);
+            if (last == null || !isSelfCall(irClass, method, last.getCall()) || !isTailCall(block, last, returned)) {
+                continue;
+            }
+
+            // The entry cannot be the target of a jump, so the method gets a new entry before the old one
+            if (start == null) {
+                start = method.getEntry();
+
+                var entry = method.newBlock("tailcall");
+                entry.setTerminator(new Jump(start));
+                method.getBlocks().add(0, entry);
+            }
+
+            var arguments = instrs.remove(instrs.size() - 1).getCall().getArguments();
+            var params = method.getParams();
+            var temps = new ArrayList<Var>();
+
+            for (int i = 0; i < params.size(); i++) {
+                var temp = method.newVar("tailarg", params.get(i).getType());
+                instrs.add(new AssignInstr(temp, arguments.get(i)));
+                temps.add(temp);
+            }
+
+            for (int i = 0; i < params.size(); i++) {
+                instrs.add(new AssignInstr(params.get(i), temps.get(i)));
+            }
+
+            block.setTerminator(new Jump(start));
+        }
+
+        if (start == null) {
+            return false;
+        }
+
+        method.removeUnreachableBlocks();
+
+        return true;
+    }
+
+    /**
+     * @return the literal every return of the method returns, or null if there is none
+     */
+    private static Literal getReturnedLiteral(IrMethod method) {
+        Literal returned = null;
+
+        for (var block : method.getBlocks()) {
+            if (!(block.getTerminator() instanceof Return ret)) {
+                continue;
+            }
+
+            if (!(ret.getValue() instanceof Literal literal) || returned != null && !returned.equals(literal)) {
+                return null;
+            }
+
+            returned = literal;
+        }
+
+        return returned;
+    }
+
+    /**
+     * @return true if the call is made by the method to itself, with the same object if it is not static
+     */
+    private static boolean isSelfCall(IrClass irClass, IrMethod method, CallExpr call) {
+        if (call == null || !call.isCallTo(irClass.getName()) || !call.getMethodName().equals(method.getName())) {
+            return false;
+        }
+
+        boolean sameObject = method.isStatic()
+                ? call.getCallType() == CallType.invokestatic
+                : call.getCallType() == CallType.invokevirtual && call.getCaller() instanceof This;
+
+        return sameObject && hasParamTypes(method, call.getArguments());
+    }
+
+    private static boolean hasParamTypes(IrMethod method, List<Value> arguments) {
+        var params = method.getParams();
+        if (params.size() != arguments.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < params.size(); i++) {
+            if (!params.get(i).getType().equals(arguments.get(i).getType())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param returned literal that the method always returns, or null
+     * @return true if the block returns the result of the call, which is its last instruction
+     */
+    private static boolean isTailCall(Block block, Instr call, Literal returned) {
+        var terminator = block.getTerminator();
+
+        if (terminator instanceof Jump jump && jump.getTarget().getInstrs().isEmpty()) {
+            terminator = jump.getTarget().getTerminator();
+        }
+
+        if (!(terminator instanceof Return ret)) {
+            return false;
+        }
+
+        var value = ret.getValue();
+
+        return value == null || value.equals(call.getDef()) || value.equals(returned);
+    }
+}
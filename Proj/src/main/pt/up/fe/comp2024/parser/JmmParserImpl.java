@@ -1,14 +1,26 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.tree.ParseTree;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.ast.antlr.JmmNodeCleanup;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.ast.compact.CompactAst;
+import pt.up.fe.comp2024.ast.compact.CompactAstBuilder;
 
-import java.util.Collections;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Map;
 
 /**
@@ -33,10 +45,28 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        // Convert code string into a character stream
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
+
+    /**
+     * Parses a source file, reading it through a memory mapping instead of loading it into a String.
+     */
+    public JmmParserResult parse(File jmmFile, Map<String, String> config) {
+        CharStream input;
+
+        try {
+            input = MappedCharStream.load(jmmFile);
+        } catch (Exception e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Could not read file '" + jmmFile + "'", e), config);
+        }
+
+        return parse(input, getDefaultRule(), config);
+    }
+
+    public JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
 
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
             // Transform characters into tokens using the lexer
             var lex = new pt.up.fe.comp2024.JavammLexer(input);
             // Wrap lexer around a token stream
@@ -44,13 +74,56 @@ public class JmmParserImpl implements JmmParser {
             // Transforms tokens into a parse tree
             var parser = new pt.up.fe.comp2024.JavammParser(tokens);
 
-
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+            return parse(lex, parser, startingRule, config);
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
         }
     }
+
+    /**
+     * Same as {@link AntlrParser#parse(Lexer, Parser, String, Map)}, but the root node is a view of a
+     * {@link CompactAst} if that option is enabled.
+     * <p>
+     * The starting rule is invoked directly, since the method cache of {@link pt.up.fe.specs.util.SpecsSystem#invoke}
+     * is not safe to use from several threads at the same time.
+     */
+    private JmmParserResult parse(Lexer lex, Parser parser, String startingRule, Map<String, String> config)
+            throws ReflectiveOperationException {
+
+        lex.removeErrorListeners();
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        lex.addErrorListener(lexerListener);
+
+        parser.removeErrorListeners();
+        var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+        parser.addErrorListener(parserListener);
+
+        var tree = (ParseTree) parser.getClass().getMethod(startingRule).invoke(parser);
+
+        var reports = new ArrayList<Report>();
+        reports.addAll(lexerListener.getReports());
+        reports.addAll(parserListener.getReports());
+
+        if (reports.stream().anyMatch(r -> r.getType().equals(ReportType.ERROR))) {
+            return new JmmParserResult(null, reports, config);
+        }
+
+        // Convert ANTLR CST to compact AST, if enabled
+        if (CompilerConfig.getCompactAst(config)) {
+            var ast = CompactAstBuilder.build(tree, parser);
+            return new JmmParserResult(ast.getRoot(), reports, config);
+        }
+
+        // Convert ANTLR CST to JmmNode AST
+        var root = AntlrToJmmNodeConverter.convert(tree, parser);
+
+        var ignoreList = AntlrParser.getIgnoreList(parser);
+        if (!ignoreList.isEmpty()) {
+            new JmmNodeCleanup(ignoreList).visit(root);
+        }
+
+        return new JmmParserResult(root, reports, config);
+    }
 }
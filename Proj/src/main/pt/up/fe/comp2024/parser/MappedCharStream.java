@@ -0,0 +1,198 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Character stream for the lexer that reads the source file through a memory mapping, instead of reading it into a
+ * {@link String} that {@link org.antlr.v4.runtime.ANTLRInputStream} would then copy again into a {@code char[]}.
+ * <p>
+ * Files that only contain ASCII characters are served directly from the mapped bytes. Otherwise, the file is decoded
+ * as UTF-8 once, on the first access past the ASCII prefix of the file.
+ */
+public class MappedCharStream implements CharStream {
+
+    private final ByteBuffer bytes;
+    private final String sourceName;
+
+    // Number of bytes at the start of the file that are ASCII, equal to the file size for ASCII files
+    private final int asciiPrefix;
+
+    // Decoded contents, only used for files with non-ASCII characters
+    private char[] chars;
+
+    // Number of characters in the stream, only known before decoding for ASCII files
+    private int size;
+
+    // Index of the next character to consume
+    private int index;
+
+    private MappedCharStream(ByteBuffer bytes, String sourceName) {
+        this.bytes = bytes;
+        this.sourceName = sourceName;
+        this.asciiPrefix = findAsciiPrefix(bytes);
+        this.chars = null;
+        this.size = asciiPrefix;
+        this.index = 0;
+    }
+
+    /**
+     * Maps the given file into memory. The mapping stays valid after the file is closed.
+     *
+     * @param file the source file
+     * @return a character stream over the contents of the file
+     * @throws IOException if the file could not be mapped
+     */
+    public static MappedCharStream load(File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            var bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedCharStream(bytes, file.getPath());
+        }
+    }
+
+    private static int findAsciiPrefix(ByteBuffer bytes) {
+        int limit = bytes.limit();
+
+        for (int i = 0; i < limit; i++) {
+            if (bytes.get(i) < 0) {
+                return i;
+            }
+        }
+
+        return limit;
+    }
+
+    private boolean isAscii() {
+        return asciiPrefix == bytes.limit();
+    }
+
+    private void decode() {
+        if (chars != null) {
+            return;
+        }
+
+        CharBuffer decoded = StandardCharsets.UTF_8.decode(bytes.duplicate().position(0));
+        chars = new char[decoded.remaining()];
+        decoded.get(chars);
+        size = chars.length;
+    }
+
+    private char charAt(int i) {
+        if (i < asciiPrefix) {
+            return (char) bytes.get(i);
+        }
+
+        decode();
+        return chars[i];
+    }
+
+    @Override
+    public void consume() {
+        if (LA(1) == IntStream.EOF) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+
+        index++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            // Undefined
+            return 0;
+        }
+
+        if (i < 0) {
+            // LA(-1) is the last consumed character
+            i++;
+            if (index + i - 1 < 0) {
+                return IntStream.EOF;
+            }
+        }
+
+        int position = index + i - 1;
+
+        // Position may be past the ASCII prefix, where the size is only known after decoding
+        if (position >= asciiPrefix && !isAscii()) {
+            decode();
+        }
+
+        if (position >= size) {
+            return IntStream.EOF;
+        }
+
+        return charAt(position);
+    }
+
+    @Override
+    public int mark() {
+        // The whole file is always available, there is nothing to keep buffered
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int index) {
+        if (index <= this.index) {
+            this.index = index;
+            return;
+        }
+
+        this.index = Math.min(index, size());
+    }
+
+    @Override
+    public int size() {
+        if (!isAscii()) {
+            decode();
+        }
+
+        return size;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, size() - 1);
+
+        if (start >= size() || stop < start) {
+            return "";
+        }
+
+        if (stop < asciiPrefix) {
+            var text = new byte[stop - start + 1];
+            bytes.get(start, text);
+            return new String(text, StandardCharsets.ISO_8859_1);
+        }
+
+        decode();
+        return new String(chars, start, stop - start + 1);
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size() - 1));
+    }
+}
@@ -0,0 +1,68 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DuplicatedTest {
+
+    private static List<String> getReports(String filename) {
+        var result = TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp2024/analysis/" + filename));
+
+        return result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .map(DuplicatedTest::toString)
+                .toList();
+    }
+
+    private static String toString(Report report) {
+        return report.getLine() + ": " + report.getMessage();
+    }
+
+    @Test
+    public void duplicatedFields() {
+        // Each repeated declaration is reported, even when it has another type or is not next to the first one
+        assertEquals(List.of(
+                        "4: Duplicated field 'a'.",
+                        "6: Duplicated field 'b'."),
+                getReports("DuplicatedFields.jmm"));
+    }
+
+    @Test
+    public void duplicatedParams() {
+        assertEquals(List.of("3: Duplicated parameter 'a'."), getReports("DuplicatedParams.jmm"));
+    }
+
+    @Test
+    public void duplicatedLocals() {
+        assertEquals(List.of(
+                        "6: Duplicated local variable 'b'.",
+                        "7: Duplicated local variable 'c'."),
+                getReports("DuplicatedLocals.jmm"));
+    }
+
+    @Test
+    public void duplicatedMethods() {
+        assertEquals(List.of("11: Duplicated method 'get'."), getReports("DuplicatedMethods.jmm"));
+    }
+
+    @Test
+    public void duplicatedImports() {
+        // Imports of classes with the same name from different packages are also duplicated
+        assertEquals(List.of(
+                        "4: Duplicated import 'List'.",
+                        "5: Duplicated import 'io'."),
+                getReports("DuplicatedImports.jmm"));
+    }
+
+    @Test
+    public void sameNameInOtherScopes() {
+        assertEquals(List.of(), getReports("NoDuplicates.jmm"));
+    }
+}
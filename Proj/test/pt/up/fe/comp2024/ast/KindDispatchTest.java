@@ -0,0 +1,70 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class KindDispatchTest {
+
+    /**
+     * Visitor with visits for kinds, for a kind of their hierarchy and a default one, that keeps the lookup by name.
+     */
+    private static class NameVisitor extends AJmmVisitor<Void, String> {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_DECL, (node, unused) -> "method");
+            addVisit(Kind.IDENTIFIER, (node, unused) -> "identifier");
+            addVisit("Expr", (node, unused) -> "expr");
+            setDefaultVisit((node, unused) -> "default");
+        }
+
+        private BiFunction<JmmNode, Void, String> getVisitByName(JmmNode node) {
+            return super.getVisit(node);
+        }
+    }
+
+    @Test
+    public void sameVisitsAsLookupByName() {
+        var code = SpecsIo.getResource("pt/up/fe/comp2024/optimization/Specialize.jmm");
+        var root = TestUtils.parse(code).getRootNode();
+
+        var visitor = new NameVisitor();
+        var dispatch = new KindDispatch<>(visitor::getVisitByName);
+
+        // Nodes of the same kind are visited many times, later ones get the cached visit
+        for (int i = 0; i < 2; i++) {
+            for (var node : root.getDescendants()) {
+                assertNotNull(node.getKind(), Kind.ofOrNull(node));
+                assertSame(node.getKind(), visitor.getVisitByName(node), dispatch.getVisit(node));
+            }
+        }
+    }
+
+    @Test
+    public void unknownKindsAreNotCached() {
+        var visitor = new NameVisitor();
+        var dispatch = new KindDispatch<>(visitor::getVisitByName);
+
+        var unknown = new JmmNodeImpl("Unknown");
+        var unknownExpr = new JmmNodeImpl("UnknownExpr");
+        unknownExpr.setHierarchy(List.of("UnknownExpr", "Expr"));
+
+        for (var node : List.of(unknown, unknownExpr, unknown)) {
+            assertNull(node.getKind(), Kind.ofOrNull(node));
+            assertSame(node.getKind(), visitor.getVisitByName(node), dispatch.getVisit(node));
+        }
+
+        assertSame(visitor.getVisitByName(unknown), dispatch.getVisit(unknown));
+    }
+}
@@ -0,0 +1,171 @@
+package pt.up.fe.comp2024.ast.compact;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompactAstTest {
+
+    private static final Map<String, String> COMPACT = Map.of("compactAst", "true");
+
+    private static final List<String> PROGRAMS = List.of(
+            "pt/up/fe/comp/cp1/symboltable/Imports.jmm",
+            "pt/up/fe/comp/cpf/3_ollir/arrays/VarargsAndArrayInit.jmm",
+            "pt/up/fe/comp/cpf/3_ollir/control_flow/SimpleIfElseStat.jmm",
+            "pt/up/fe/comp/cpf/3_ollir/arithmetic/Arithmetic_and.jmm");
+
+    // Kind, hierarchy and attributes of every node
+    private static List<String> toStrings(JmmNode root) {
+        return root.getDescendantsAndSelfStream()
+                .map(node -> node.getKind() + node.getHierarchy() + new TreeSet<>(node.getAttributes()).stream()
+                        .map(attribute -> attribute + "=" + node.get(attribute))
+                        .toList())
+                .toList();
+    }
+
+    // Temporaries and labels are numbered by counters shared between compilations
+    private static String renumberTemps(String ollirCode) {
+        var temps = new HashMap<String, Integer>();
+
+        return Pattern.compile("(tmp|ifbody_|endif_|whilebody_|endwhile_)\\d+").matcher(ollirCode)
+                .replaceAll(match -> match.group(1) + temps.computeIfAbsent(match.group(), name -> temps.size()));
+    }
+
+    @Test
+    public void sameTreeAsParser() {
+        for (var program : PROGRAMS) {
+            var code = SpecsIo.getResource(program);
+
+            var expected = TestUtils.parse(code).getRootNode();
+            var actual = TestUtils.parse(code, COMPACT).getRootNode();
+
+            assertTrue(actual instanceof CompactNode);
+            assertEquals(program, toStrings(expected), toStrings(actual));
+        }
+    }
+
+    @Test
+    public void sameOllirAsParser() {
+        for (var program : PROGRAMS) {
+            var code = SpecsIo.getResource(program);
+
+            var expected = TestUtils.optimize(code);
+            var actual = TestUtils.optimize(code, COMPACT);
+
+            assertEquals(program, renumberTemps(expected.getOllirCode()), renumberTemps(actual.getOllirCode()));
+        }
+    }
+
+    @Test
+    public void editTree() {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cpf/3_ollir/arithmetic/Arithmetic_and.jmm");
+        var root = TestUtils.parse(code, COMPACT).getRootNode();
+
+        var classDecl = root.getChild(root.getNumChildren() - 1);
+        var first = classDecl.getChild(0);
+        var last = classDecl.getChild(classDecl.getNumChildren() - 1);
+        int numChildren = classDecl.getNumChildren();
+
+        // Swap within the same parent
+        classDecl.setChild(first, numChildren - 1);
+        assertEquals(last, classDecl.getChild(0));
+        assertEquals(first, classDecl.getChild(numChildren - 1));
+        assertEquals(classDecl, first.getParent());
+
+        // Copies are detached and keep the attributes
+        var copy = first.copy();
+        assertEquals(null, copy.getParent());
+        assertEquals(toStrings(first), toStrings(copy));
+
+        classDecl.add(copy);
+        assertEquals(numChildren + 1, classDecl.getNumChildren());
+        assertEquals(numChildren, copy.getIndexOfSelf());
+
+        copy.detach();
+        assertEquals(numChildren, classDecl.getNumChildren());
+        assertEquals(-1, copy.getIndexOfSelf());
+
+        // Children looked up by index follow the edits
+        classDecl.removeChild(first);
+        classDecl.add(first, 1);
+        var children = classDecl.getChildren();
+        for (int i = 0; i < children.size(); i++) {
+            assertEquals(children.get(i), classDecl.getChild(i));
+        }
+        assertEquals(first, classDecl.getChild(1));
+    }
+
+    @Test
+    public void objectAttributes() {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cpf/3_ollir/arithmetic/Arithmetic_and.jmm");
+        var root = TestUtils.parse(code, COMPACT).getRootNode();
+        var child = root.getChild(0);
+
+        // Values other than strings are kept as they were put, so changes to them are seen by the node
+        var values = new ArrayList<String>();
+        root.putObject("values", values);
+        values.add("a");
+        assertSame(values, root.getObject("values"));
+        assertEquals(List.of("a"), root.getObject("values"));
+
+        root.putObject("node", child);
+        assertSame(child, root.getObject("node"));
+
+        // Copies keep the values of the original, and values can be replaced by strings or removed
+        var copy = root.copy();
+        root.putObject("values", "a");
+        assertEquals("a", root.get("values"));
+        assertSame(values, copy.getObject("values"));
+
+        root.putObject("node", null);
+        assertFalse(root.hasAttribute("node"));
+        assertSame(child, copy.getObject("node"));
+    }
+
+    @Test
+    public void internedValues() {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cpf/3_ollir/arithmetic/Arithmetic_and.jmm");
+        var root = (CompactNode) TestUtils.parse(code, COMPACT).getRootNode();
+        var ast = root.getAst();
+        var nodes = root.getDescendantsAndSelfStream().toList();
+
+        // Equal types share one value
+        int numValues = ast.getNumValues();
+        for (var node : nodes) {
+            node.putObject("type", new Type("int", false));
+        }
+        assertEquals(numValues + 1, ast.getNumValues());
+        assertEquals(new Type("int", false), nodes.get(nodes.size() - 1).getObject("type"));
+
+        // Values no node uses are dropped
+        for (int i = 0; i < 100; i++) {
+            root.putObject("values", new ArrayList<String>());
+        }
+        assertEquals(numValues + 2, ast.getNumValues());
+
+        for (var node : nodes) {
+            node.putObject("type", null);
+        }
+        root.putObject("values", null);
+        assertEquals(numValues, ast.getNumValues());
+
+        // Views are created on demand and are equal for the same node
+        assertEquals(root.getChild(0), root.getChild(0));
+        assertEquals(root.getChild(0).hashCode(), root.getChild(0).hashCode());
+        assertFalse(root.getChild(0).equals(root.getChild(1)));
+    }
+}
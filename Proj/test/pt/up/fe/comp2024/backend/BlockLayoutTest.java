@@ -0,0 +1,84 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.execution.JasminRunner;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockLayoutTest {
+
+    private static JasminResult getJasminResult(String mainCode) {
+        var code = """
+                import io;
+                Layout {
+                    .construct Layout().V {
+                        invokespecial(this, "<init>").V;
+                    }
+                    .method public static main(args.array.String).V {
+                %s
+                    }
+                }
+                """.formatted(mainCode);
+
+        var jasminResult = TestUtils.backend(new OllirResult(code, Collections.emptyMap()));
+        TestUtils.noErrors(jasminResult.getReports());
+
+        return jasminResult;
+    }
+
+    private static int count(String code, String text) {
+        return code.split(text, -1).length - 1;
+    }
+
+    private static String run(JasminResult jasminResult) {
+        return SpecsStrings.normalizeFileContents(JasminRunner.run(jasminResult).getOutput(), true);
+    }
+
+    @Test
+    public void loopsTestTheirConditionAtTheEnd() {
+        var jasminResult = getJasminResult("""
+                i.i32 :=.i32 0.i32;
+                loop:
+                if (i.i32 >=.bool 3.i32) goto end;
+                invokestatic(io, "println", i.i32).V;
+                i.i32 :=.i32 i.i32 +.i32 1.i32;
+                goto loop;
+                end:
+                ret.V;
+                """);
+
+        var code = jasminResult.getJasminCode();
+        assertEquals(code, 0, count(code, "goto "));
+        assertTrue(code, code.contains("if_icmplt "));
+        assertEquals("0\n1\n2", run(jasminResult));
+    }
+
+    @Test
+    public void branchesOverGotosAreInverted() {
+        var jasminResult = getJasminResult("""
+                a.i32 :=.i32 1.i32;
+                b.i32 :=.i32 2.i32;
+                if (a.i32 <.bool b.i32) goto then;
+                goto else;
+                then:
+                invokestatic(io, "println", a.i32).V;
+                goto end;
+                else:
+                invokestatic(io, "println", b.i32).V;
+                end:
+                ret.V;
+                """);
+
+        var code = jasminResult.getJasminCode();
+        assertTrue(code, code.contains("if_icmpge else"));
+        assertEquals(code, 1, count(code, "goto "));
+        assertEquals("1", run(jasminResult));
+    }
+}
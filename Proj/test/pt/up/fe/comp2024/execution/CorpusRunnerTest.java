@@ -0,0 +1,56 @@
+package pt.up.fe.comp2024.execution;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CorpusRunnerTest {
+
+    private static final File ROOT = new File("test/pt/up/fe/comp");
+
+    private static List<CorpusRunner.Result> run(int threads, String... paths) {
+        var files = List.of(paths).stream()
+                .map(path -> new File(ROOT, path))
+                .toList();
+
+        return new CorpusRunner(CompilerConfig.getDefault(), threads).run(ROOT, files);
+    }
+
+    @Test
+    public void sameReportWithAnyNumberOfThreads() {
+        var folder = new File(ROOT, "cpf/4_jasmin");
+        var files = CorpusRunner.findSources(folder);
+
+        var sequential = CorpusRunner.report(new CorpusRunner(CompilerConfig.getDefault(), 1).run(folder, files));
+        var parallel = CorpusRunner.report(new CorpusRunner(CompilerConfig.getDefault(), 8).run(folder, files));
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void resultsAreSortedByPath() {
+        var results = run(4,
+                "cpf/4_jasmin/control_flow/SimpleIfElseStat.jmm",
+                "cp2/semanticanalysis/ArrayAccessOnInt.jmm",
+                "cpf/4_jasmin/control_flow/SimpleControlFlow.jmm");
+
+        assertEquals(List.of(
+                        "cp2/semanticanalysis/ArrayAccessOnInt.jmm",
+                        "cpf/4_jasmin/control_flow/SimpleControlFlow.jmm",
+                        "cpf/4_jasmin/control_flow/SimpleIfElseStat.jmm"),
+                results.stream().map(CorpusRunner.Result::getPath).toList());
+
+        assertEquals(CorpusRunner.Status.SEMANTIC_ERROR, results.get(0).getStatus());
+
+        assertEquals(CorpusRunner.Status.OK, results.get(1).getStatus());
+        assertEquals("Result: 3", SpecsStrings.normalizeFileContents(results.get(1).getOutput(), true));
+
+        assertEquals(CorpusRunner.Status.OK, results.get(2).getStatus());
+        assertEquals("Result: 5\nResult: 8", SpecsStrings.normalizeFileContents(results.get(2).getOutput(), true));
+    }
+}
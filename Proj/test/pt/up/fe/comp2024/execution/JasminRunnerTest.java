@@ -0,0 +1,64 @@
+package pt.up.fe.comp2024.execution;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class JasminRunnerTest {
+
+    private static JasminResult getJasminResult(String filename) {
+        var ollirResult = new OllirResult(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/" + filename),
+                Collections.emptyMap());
+
+        return TestUtils.backend(ollirResult);
+    }
+
+    private static String normalize(String output) {
+        return SpecsStrings.normalizeFileContents(output, true);
+    }
+
+    @Test
+    public void sameOutputAsProcess() {
+        var jasminResult = getJasminResult("control_flow/SimpleIfElseStat.ollir");
+
+        var output = JasminRunner.run(jasminResult);
+
+        assertEquals(0, output.getReturnValue());
+        assertEquals("Result: 5\nResult: 8", normalize(output.getOutput()));
+        assertEquals(normalize(jasminResult.run()), normalize(output.getOutput()));
+    }
+
+    @Test
+    public void parallelRunsDoNotMix() throws Exception {
+        var programs = List.of(
+                getJasminResult("control_flow/SimpleIfElseStat.ollir"),
+                getJasminResult("control_flow/SimpleControlFlow.ollir"));
+        var expected = List.of("Result: 5\nResult: 8", "Result: 3");
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < 20; i++) {
+                var program = programs.get(i % programs.size());
+                futures.add(executor.submit(() -> normalize(JasminRunner.run(program).getOutput())));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(expected.get(i % expected.size()), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package pt.up.fe.comp2024.execution;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OllirInterpreterTest {
+
+    private static OllirResult getOllirResult(String filename) {
+        return new OllirResult(SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/" + filename), Collections.emptyMap());
+    }
+
+    private static String normalize(String output) {
+        return SpecsStrings.normalizeFileContents(output, true);
+    }
+
+    @Test
+    public void sameOutputAsJasmin() {
+        var filenames = List.of(
+                "arithmetic/Arithmetic_not.ollir",
+                "arrays/ComplexArrayAccess.ollir",
+                "arrays/ArrayVarArgs.ollir",
+                "calls/ConditionArgsFuncCall.ollir",
+                "control_flow/IfWhileNested.ollir",
+                "control_flow/SwitchStat.ollir");
+
+        for (var filename : filenames) {
+            var ollirResult = getOllirResult(filename);
+
+            var interpreted = OllirInterpreter.run(ollirResult);
+            var compiled = JasminRunner.run(TestUtils.backend(ollirResult));
+
+            assertEquals(filename, 0, interpreted.getReturnValue());
+            assertEquals(filename, normalize(compiled.getOutput()), normalize(interpreted.getOutput()));
+        }
+    }
+
+    @Test
+    public void compiledCodeGivesSameOutput() {
+        var filenames = List.of(
+                "arrays/ArrayAsArg.ollir",
+                "arrays/VarargsAndArrayInit.ollir",
+                "control_flow/IfWhileNested.ollir",
+                "control_flow/SimpleIfElseNot.ollir");
+
+        for (var filename : filenames) {
+            var ollirResult = getOllirResult(filename);
+
+            var interpreted = OllirInterpreter.run(ollirResult, Collections.emptyList(), null, Integer.MAX_VALUE);
+            var compiled = OllirInterpreter.run(ollirResult, Collections.emptyList(), null, 0);
+
+            assertEquals(filename, 0, compiled.getReturnValue());
+            assertEquals(filename, normalize(interpreted.getOutput()), normalize(compiled.getOutput()));
+        }
+    }
+
+    @Test
+    public void hotLoopContinuesCompiled() {
+        var code = """
+                import io;
+                Sum {
+                    .construct Sum().V {
+                        invokespecial(this, "<init>").V;
+                    }
+                    .method public static main(args.array.String).V {
+                        a.array.i32 :=.array.i32 new(array, 100.i32).array.i32;
+                        s.i32 :=.i32 0.i32;
+                        i.i32 :=.i32 0.i32;
+                        loop:
+                        a[i.i32].i32 :=.i32 i.i32;
+                        t.i32 :=.i32 a[i.i32].i32;
+                        s.i32 :=.i32 s.i32 +.i32 t.i32;
+                        i.i32 :=.i32 i.i32 +.i32 1.i32;
+                        if (i.i32 <.bool 100.i32) goto loop;
+                        invokestatic(io, "println", s.i32).V;
+                        ret.V;
+                    }
+                }
+                """;
+
+        var ollirResult = new OllirResult(code, Collections.emptyMap());
+        var libraries = new InMemoryClassLoader(Map.of(), List.of(new File(JasminRunner.getLibsClasspath())));
+        var interpreter = new OllirInterpreter(ollirResult.getOllirClass(), libraries, 10);
+
+        var output = ProgramThread.run("Sum", libraries, null, () -> interpreter.runMain(Collections.emptyList()));
+
+        // main is only called once, so it was compiled in the middle of the loop
+        assertTrue(interpreter.isCompiled("main"));
+        assertEquals(0, output.getReturnValue());
+        assertEquals("4950", normalize(output.getOutput()));
+    }
+
+    @Test
+    public void fieldsAndInstanceCalls() {
+        var code = """
+                import io;
+                Counter {
+                    .field count.i32;
+                    .construct Counter().V {
+                        invokespecial(this, "<init>").V;
+                    }
+                    .method public add(n.i32).i32 {
+                        t1.i32 :=.i32 getfield(this, count.i32).i32;
+                        t2.i32 :=.i32 t1.i32 +.i32 n.i32;
+                        putfield(this, count.i32, t2.i32).V;
+                        ret.i32 t2.i32;
+                    }
+                    .method public static main(args.array.String).V {
+                        c.Counter :=.Counter new(Counter).Counter;
+                        invokespecial(c.Counter, "<init>").V;
+                        i.i32 :=.i32 0.i32;
+                        if (i.i32 >=.bool 3.i32) goto end;
+                        loop:
+                        r.i32 :=.i32 invokevirtual(c.Counter, "add", i.i32).i32;
+                        invokestatic(io, "println", r.i32).V;
+                        i.i32 :=.i32 i.i32 +.i32 1.i32;
+                        if (i.i32 <.bool 3.i32) goto loop;
+                        end:
+                        ret.V;
+                    }
+                }
+                """;
+
+        var ollirResult = new OllirResult(code, Collections.emptyMap());
+
+        for (var compileThreshold : List.of(Integer.MAX_VALUE, 0)) {
+            var output = OllirInterpreter.run(ollirResult, Collections.emptyList(), null, compileThreshold);
+
+            assertEquals(0, output.getReturnValue());
+            assertEquals("0\n1\n3", normalize(output.getOutput()));
+        }
+    }
+
+    @Test
+    public void thisAsValue() {
+        var code = """
+                import io;
+                Self {
+                    .field value.i32;
+                    .construct Self().V {
+                        invokespecial(this, "<init>").V;
+                    }
+                    .method public get().Self {
+                        ret.Self this.Self;
+                    }
+                    .method public same(other.Self).Self {
+                        ret.Self other.Self;
+                    }
+                    .method public run().i32 {
+                        putfield(this, value.i32, 7.i32).V;
+                        s.Self :=.Self invokevirtual(this.Self, "get").Self;
+                        o.Self :=.Self invokevirtual(s.Self, "same", this.Self).Self;
+                        v.i32 :=.i32 getfield(o.Self, value.i32).i32;
+                        ret.i32 v.i32;
+                    }
+                    .method public static main(args.array.String).V {
+                        c.Self :=.Self new(Self).Self;
+                        invokespecial(c.Self, "<init>").V;
+                        r.i32 :=.i32 invokevirtual(c.Self, "run").i32;
+                        invokestatic(io, "println", r.i32).V;
+                        ret.V;
+                    }
+                }
+                """;
+
+        var ollirResult = new OllirResult(code, Collections.emptyMap());
+
+        for (var compileThreshold : List.of(Integer.MAX_VALUE, 0)) {
+            var output = OllirInterpreter.run(ollirResult, Collections.emptyList(), null, compileThreshold);
+
+            assertEquals(output.getStdErr(), 0, output.getReturnValue());
+            assertEquals("7", normalize(output.getOutput()));
+        }
+    }
+
+    @Test
+    public void exceptionsEndTheProgram() {
+        var code = """
+                import io;
+                Divide {
+                    .construct Divide().V {
+                        invokespecial(this, "<init>").V;
+                    }
+                    .method public static main(args.array.String).V {
+                        invokestatic(io, "println", 1.i32).V;
+                        a.i32 :=.i32 1.i32 /.i32 0.i32;
+                        invokestatic(io, "println", a.i32).V;
+                        ret.V;
+                    }
+                }
+                """;
+
+        var output = OllirInterpreter.run(new OllirResult(code, Collections.emptyMap()));
+
+        assertEquals(1, output.getReturnValue());
+        assertEquals("1", normalize(output.getStdOut()));
+        assertTrue(output.getStdErr(), output.getStdErr().contains("java.lang.ArithmeticException"));
+    }
+}
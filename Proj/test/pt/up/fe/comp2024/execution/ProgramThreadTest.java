@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024.execution;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProgramThreadTest {
+
+    @Test
+    public void abandonedThreadsAreCapped() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+
+        // Ignores interrupts, like a program stuck in a loop, without using the processor
+        ProgramThread.Program stuck = () -> {
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // Keeps waiting
+                }
+            }
+        };
+
+        try {
+            for (int i = ProgramThread.getNumAbandoned(); i < ProgramThread.MAX_ABANDONED; i++) {
+                var output = ProgramThread.run("Stuck", null, null, 10, stuck);
+                assertEquals(-1, output.getReturnValue());
+                assertTrue(output.getStdErr(), output.getStdErr().startsWith("Timeout"));
+            }
+
+            assertEquals(ProgramThread.MAX_ABANDONED, ProgramThread.getNumAbandoned());
+
+            var output = ProgramThread.run("Other", null, null, 10, started::countDown);
+            assertEquals(-1, output.getReturnValue());
+            assertTrue(output.getStdErr(), output.getStdErr().startsWith("Not started"));
+            assertEquals(1, started.getCount());
+        } finally {
+            release.countDown();
+        }
+
+        // Programs start again once the abandoned ones finish
+        while (ProgramThread.getNumAbandoned() > 0) {
+            Thread.sleep(10);
+        }
+
+        var output = ProgramThread.run("Other", null, null, started::countDown);
+        assertEquals(0, output.getReturnValue());
+        assertEquals(0, started.getCount());
+    }
+}
@@ -0,0 +1,132 @@
+package pt.up.fe.comp2024.incremental;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalCacheTest {
+
+    private static String getCode(String filename) {
+        return SpecsIo.getResource("pt/up/fe/comp2024/incremental/" + filename);
+    }
+
+    private static JmmSemanticsResult analyse(String filename, IncrementalCache cache) {
+        return new JmmAnalysisImpl(cache).semanticAnalysis(TestUtils.parse(getCode(filename)));
+    }
+
+    private static List<String> toStrings(List<Report> reports) {
+        return reports.stream()
+                .map(report -> report.getType() + ":" + report.getLine() + ":" + report.getColumn() + ":" + report.getMessage())
+                .sorted()
+                .toList();
+    }
+
+    private static void assertSameReports(String filename, IncrementalCache cache) {
+        var expected = analyse(filename, null);
+        var actual = analyse(filename, cache);
+
+        assertEquals(toStrings(expected.getReports()), toStrings(actual.getReports()));
+    }
+
+    @Test
+    public void reportsMatchFullAnalysis() {
+        var cache = new IncrementalCache();
+
+        assertSameReports("Original.jmm", cache);
+        // Methods only moved down, cached reports must follow them
+        assertSameReports("Shifted.jmm", cache);
+        assertSameReports("Fixed.jmm", cache);
+        assertSameReports("Original.jmm", cache);
+    }
+
+    @Test
+    public void blockingReportsHideCachedReports() {
+        var cache = new IncrementalCache();
+
+        // Only 'first' changes, the condition of 'second' is reported from the cache until 'zz' blocks the analysis
+        assertSameReports("Condition.jmm", cache);
+        assertSameReports("Blocking.jmm", cache);
+        assertEquals(1, analyse("Blocking.jmm", cache).getReports().size());
+        assertSameReports("Condition.jmm", cache);
+    }
+
+    @Test
+    public void unchangedMethodsKeepOllir() {
+        var cache = new IncrementalCache();
+
+        // Cache starts with the results of a version where 'broken' has an error
+        analyse("Original.jmm", cache);
+
+        var semantics = analyse("Fixed.jmm", cache);
+        TestUtils.noErrors(semantics.getReports());
+        var first = new JmmOptimizationImpl(cache).toOllir(semantics);
+        TestUtils.noErrors(first.getReports());
+
+        var cached = getCachedOllir(semantics, cache);
+
+        var again = analyse("Fixed.jmm", cache);
+        var second = new JmmOptimizationImpl(cache).toOllir(again);
+
+        assertEquals(first.getOllirCode(), second.getOllirCode());
+        assertEquals(3, second.getOllirClass().getMethods().stream()
+                .filter(method -> !method.isConstructMethod())
+                .count());
+
+        // Methods that did not change are not lowered again, the code of the first compilation is used as is
+        var reused = getCachedOllir(again, cache);
+        assertEquals(cached.keySet(), reused.keySet());
+        for (var method : cached.keySet()) {
+            assertNotNull(method, cached.get(method));
+            assertSame(method, cached.get(method), reused.get(method));
+        }
+    }
+
+    @Test
+    public void removedMethodsAreDropped() {
+        var cache = new IncrementalCache();
+
+        var original = analyse("Original.jmm", cache);
+        assertEquals(3, cache.getNumMethods());
+
+        var broken = original.getRootNode().getChildren(Kind.CLASS_DECL).get(0).getChildren(Kind.METHOD_DECL).stream()
+                .filter(method -> method.get("name").equals("broken"))
+                .findFirst()
+                .orElseThrow();
+        var fingerprint = MethodFingerprint.of(broken, original.getSymbolTable());
+        int line = NodeUtils.getLine(broken);
+        assertTrue(cache.getMethodReports("broken", fingerprint, line).isPresent());
+
+        // 'broken' was renamed to 'fixed', only the methods of the new version are kept
+        analyse("Renamed.jmm", cache);
+        assertEquals(3, cache.getNumMethods());
+        assertFalse(cache.getMethodReports("broken", fingerprint, line).isPresent());
+    }
+
+    private static Map<String, String> getCachedOllir(JmmSemanticsResult semantics, IncrementalCache cache) {
+        var classDecl = semantics.getRootNode().getChildren(Kind.CLASS_DECL).get(0);
+        var ollirCode = new HashMap<String, String>();
+
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL)) {
+            var fingerprint = MethodFingerprint.of(method, semantics.getSymbolTable());
+            ollirCode.put(method.get("name"), cache.getOllirCode(method.get("name"), fingerprint).orElse(null));
+        }
+
+        return ollirCode;
+    }
+}
@@ -0,0 +1,38 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.getOllirMethod;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class ConditionLoweringTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Conditions.jmm", optimize);
+    }
+
+    @Test
+    public void conditionsAreJumps() {
+        var count = getOllirMethod(getOllirResult(false), "count");
+
+        // The conditions of the loop and of the if, with && and !, only compute the values they compare
+        assertFalse(count, count.contains(".bool :=.bool"));
+        assertTrue(count, count.contains("if (i.i32 >=.bool "));
+        assertTrue(count, count.contains("if ($3.skip.bool) goto "));
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+        assertEquals("2\n0\n1", output);
+
+        runJasmin(getOllirResult(false), output);
+        runJasmin(getOllirResult(true), output);
+    }
+}
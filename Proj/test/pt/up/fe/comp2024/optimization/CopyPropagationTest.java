@@ -0,0 +1,77 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.count;
+import static utils.ProjectTestUtils.getOllirMethod;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class CopyPropagationTest {
+
+    // Assignment of a variable, not of a literal or of an expression
+    private static final Pattern COPY = Pattern.compile("(?m):=\\.i32 [A-Za-z_$][\\w.$]*\\.i32;$");
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Copies.jmm", optimize);
+    }
+
+    private static String getJasminMethod(String code, String name) {
+        var start = code.indexOf(" " + name + "(");
+
+        return code.substring(start, code.indexOf(".end method", start));
+    }
+
+    private static int getLocals(String method) {
+        var start = method.indexOf(".limit locals ") + ".limit locals ".length();
+
+        return Integer.parseInt(method.substring(start, method.indexOf("\n", start)).trim());
+    }
+
+    @Test
+    public void copiesAreRemoved() {
+        var ollirResult = getOllirResult(true);
+
+        for (var name : new String[]{"chain", "loop", "swap"}) {
+            var method = getOllirMethod(ollirResult, name);
+
+            assertFalse(method, COPY.matcher(method).find());
+        }
+
+        // The temporary of c + 1 is assigned to d directly
+        var code = ollirResult.getOllirCode();
+        assertTrue(code, code.contains("d.i32 :=.i32 a.i32 +.i32 1.i32;"));
+    }
+
+    @Test
+    public void fewerStoresAndLocals() {
+        var original = TestUtils.backend(getOllirResult(false)).getJasminCode();
+        var optimized = TestUtils.backend(getOllirResult(true)).getJasminCode();
+
+        var originalChain = getJasminMethod(original, "chain");
+        var optimizedChain = getJasminMethod(optimized, "chain");
+        assertEquals(optimizedChain, 1, count(optimizedChain, "istore"));
+        assertTrue(originalChain, count(originalChain, "istore") > 1);
+
+        // Without t
+        var originalLoop = getJasminMethod(original, "loop");
+        var optimizedLoop = getJasminMethod(optimized, "loop");
+        assertTrue(optimizedLoop, getLocals(optimizedLoop) < getLocals(originalLoop));
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+        assertEquals("5\n10\n21", output);
+
+        runJasmin(getOllirResult(true), output);
+    }
+}
@@ -0,0 +1,51 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class CountedLoopShapingTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/CountedLoops.jmm", optimize);
+    }
+
+    private static String getLoop(String method) {
+        var start = method.indexOf("whilebody");
+        start = method.indexOf("\n", method.indexOf(":", start));
+
+        return method.substring(start, method.indexOf("endwhile", start));
+    }
+
+    @Test
+    public void loopTestsCompareTheCounter() {
+        var ollirResult = getOllirResult(true);
+
+        for (var name : new String[]{"sum", "sumFlag"}) {
+            var loop = getLoop(getOllirMethodOrTwin(ollirResult, name));
+
+            assertTrue(loop, loop.contains("if (i.i32 <.bool "));
+            assertFalse(loop, loop.contains(".bool :=.bool"));
+            // The length of the array is computed before the loop
+            assertFalse(loop, loop.contains("arraylength"));
+        }
+
+        // !(n < i + 1) is tested as i + 1 <= n
+        var loop = getLoop(getOllirMethodOrTwin(ollirResult, "sumTo"));
+        assertTrue(loop, loop.matches("(?s).*if \\(tmp\\d+\\.i32 <=\\.bool n\\.i32\\).*"));
+        assertFalse(loop, loop.contains(".bool :=.bool"));
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+
+        runJasmin(getOllirResult(true), output);
+    }
+}
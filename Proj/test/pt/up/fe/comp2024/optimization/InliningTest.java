@@ -0,0 +1,48 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.getOllirMethod;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+
+public class InliningTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Inline.jmm", optimize);
+    }
+
+    @Test
+    public void smallCalleesAreInlined() {
+        var ollirResult = getOllirResult(true);
+        var walk = getOllirMethodOrTwin(ollirResult, "walk");
+        var main = getOllirMethod(ollirResult, "main");
+
+        assertFalse(walk, walk.contains("\"next\""));
+        assertFalse(walk, walk.contains("\"square\""));
+        // The receiver of setStep is a new object, so the field is written in main
+        assertFalse(main, main.contains("\"setStep\""));
+        assertTrue(main, main.contains("putfield(in.Inline, step.i32"));
+    }
+
+    @Test
+    public void recursiveAndNullableCallsAreKept() {
+        var ollirResult = getOllirResult(true);
+        var fact = getOllirMethodOrTwin(ollirResult, "fact");
+        var main = getOllirMethod(ollirResult, "main");
+
+        assertTrue(fact, fact.contains("\"fact_static\""));
+        assertTrue(main, main.contains("\"fact_static\""));
+        // The parameter may be null, the call must still fail for it
+        assertTrue(main, main.contains("invokevirtual(in.Inline, \"next"));
+    }
+
+    @Test
+    public void sameOutput() {
+        assertSameOutput(getOllirResult(false), getOllirResult(true));
+    }
+}
@@ -0,0 +1,70 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.count;
+import static utils.ProjectTestUtils.getOllirMethod;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class InterproceduralConstantPropagationTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Specialize.jmm", optimize);
+    }
+
+    @Test
+    public void callsWithConstantsAreSpecialized() {
+        var ollirResult = getOllirResult(true);
+
+        var main = getOllirMethod(ollirResult, "main");
+        assertFalse(main, main.contains("\"power\""));
+        assertEquals(main, 3, count(main, "\"power_static_const"));
+
+        // power(2, 3, false) is computed entirely, and the copies no longer test verbose
+        var code = ollirResult.getOllirCode();
+        assertTrue(code, code.contains("ret.i32 8.i32;"));
+        for (var copy : code.split("\\.method ")) {
+            if (copy.contains(" power_static_const")) {
+                assertFalse(copy, copy.contains("if (verbose.bool)"));
+            }
+        }
+    }
+
+    @Test
+    public void constantParamsOfRecursiveMethods() {
+        var ollirResult = getOllirResult(true);
+
+        // All calls pass 2 as step, but recursive calls change n, so sumDown is only copied for step
+        var sumDown = getOllirMethod(ollirResult, "sumDown_static_const");
+        assertFalse(sumDown, sumDown.contains("step.i32;"));
+        assertFalse(ollirResult.getOllirCode(), ollirResult.getOllirCode().contains("sumDown_static_const0"));
+    }
+
+    @Test
+    public void otherClassesCallTheOriginalMethod() {
+        var lib = ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/SpecializeLib.jmm", true);
+        var caller = ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/SpecializeLibCaller.jmm", true);
+
+        // The class only passes 3, but the method still prints the argument of other classes
+        var countDown = getOllirMethod(lib, "countDown");
+        assertTrue(countDown, countDown.contains("invokestatic(io, \"println\", k.i32)"));
+
+        runJasmin(List.of(caller, lib), "5\n4\n3\n2\n1\n56");
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+        assertEquals("8\n4\n2\n16\n64\n30\n6", output);
+
+        runJasmin(getOllirResult(true), output);
+    }
+}
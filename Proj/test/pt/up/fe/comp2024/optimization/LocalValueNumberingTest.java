@@ -0,0 +1,41 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.count;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+
+public class LocalValueNumberingTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Stencil.jmm", optimize);
+    }
+
+    @Test
+    public void repeatedLoadsAreReused() {
+        var smooth = getOllirMethodOrTwin(getOllirResult(true), "smooth");
+
+        // a[i] is read three times, once through a copy of i
+        assertEquals(smooth, 1, count(smooth, ":=.i32 a\\[i.i32\\]"));
+        assertEquals(smooth, 0, count(smooth, ":=.i32 a\\[j.i32\\]"));
+        // b[i] is read twice right after it is written
+        assertEquals(smooth, 0, count(smooth, ":=.i32 b\\[i.i32\\]"));
+    }
+
+    @Test
+    public void storesToOtherArraysInvalidateLoads() {
+        var alias = getOllirMethodOrTwin(getOllirResult(true), "alias");
+
+        // c may be the same array as a
+        assertEquals(alias, 2, count(alias, ":=.i32 a\\[0.i32\\]"));
+    }
+
+    @Test
+    public void sameOutput() {
+        assertSameOutput(getOllirResult(false), getOllirResult(true));
+    }
+}
@@ -0,0 +1,44 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.getOllirMethod;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class LoopInvariantCodeMotionTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Licm.jmm", optimize);
+    }
+
+    @Test
+    public void invariantLoadsMoveBeforeLoop() {
+        var sum = getOllirMethod(getOllirResult(true), "sum");
+        var loopStart = sum.indexOf("whilebody_0:");
+
+        assertTrue(sum, sum.indexOf("getfield") < loopStart);
+        // The length computed for the first test of the condition is reused by the loop
+        assertEquals(sum, 1, sum.split("arraylength").length - 1);
+        assertTrue(sum, sum.lastIndexOf("arraylength") < loopStart);
+    }
+
+    @Test
+    public void fieldWrittenInLoopIsLoadedInLoop() {
+        var bump = getOllirMethod(getOllirResult(true), "bump");
+
+        assertTrue(bump, bump.indexOf("getfield") > bump.indexOf("whilebody_1:"));
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+        assertEquals("3\n135", output);
+
+        runJasmin(getOllirResult(true), output);
+    }
+}
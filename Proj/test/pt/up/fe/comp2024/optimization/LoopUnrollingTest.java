@@ -0,0 +1,56 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.count;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class LoopUnrollingTest {
+
+    private static OllirResult getOllirResult(boolean optimize, int unrollFactor) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Unroll.jmm",
+                Map.of("optimize", String.valueOf(optimize), "unroll", String.valueOf(unrollFactor)));
+    }
+
+    @Test
+    public void constantLoopsAreFullyUnrolled() {
+        var sum4 = getOllirMethodOrTwin(getOllirResult(true, 1), "sum4");
+
+        assertFalse(sum4, sum4.contains("goto "));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(sum4, sum4.contains("a[" + i + ".i32].i32"));
+        }
+    }
+
+    @Test
+    public void otherLoopsAreUnrolledByTheFactor() {
+        var sumAll = getOllirMethodOrTwin(getOllirResult(true, 4), "sumAll");
+        var unrolled = sumAll.substring(sumAll.indexOf("unrolled"), sumAll.indexOf("whilebody_1:"));
+        assertEquals(unrolled, 4, count(unrolled, ":=\\.i32 a\\["));
+
+        // The remaining iterations still run in the original loop
+        assertTrue(sumAll, sumAll.contains("goto whilebody_1;"));
+
+        var notUnrolled = getOllirMethodOrTwin(getOllirResult(true, 1), "sumAll");
+        assertFalse(notUnrolled, notUnrolled.contains("unrolled"));
+    }
+
+    @Test
+    public void sameOutput() {
+        for (int unrollFactor : new int[]{1, 2, 4}) {
+            var output = assertSameOutput(getOllirResult(false, 1), getOllirResult(true, unrollFactor));
+            assertEquals("10\n28\n25\n0", output);
+        }
+
+        runJasmin(getOllirResult(true, 4), "10\n28\n25\n0");
+    }
+}
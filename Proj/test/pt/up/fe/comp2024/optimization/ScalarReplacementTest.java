@@ -0,0 +1,58 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.getOllirMethod;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+
+public class ScalarReplacementTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Escape.jmm", optimize);
+    }
+
+    @Test
+    public void localObjectsAreNotAllocated() {
+        var ollirResult = getOllirResult(true);
+
+        // The calls on e are inlined, and its field becomes a variable that is then folded in the copy for the 3 that
+        // main passes as n
+        var local = getOllirMethodOrTwin(ollirResult, "local");
+        assertFalse(local, local.contains("new(Escape)"));
+        assertFalse(local, local.contains("field("));
+
+        var localConst = getOllirMethod(ollirResult, "local_static_const");
+        assertTrue(localConst, localConst.contains("ret.i32 5.i32;"));
+
+        var loop = getOllirMethodOrTwin(ollirResult, "loop");
+        assertFalse(loop, loop.contains("new(Escape)"));
+        assertFalse(loop, loop.contains("field("));
+    }
+
+    @Test
+    public void escapingObjectsAreKept() {
+        var ollirResult = getOllirResult(true);
+
+        // Returned
+        var escapes = getOllirMethodOrTwin(ollirResult, "escapes");
+        assertTrue(escapes, escapes.contains("new(Escape)"));
+        assertTrue(escapes, escapes.contains("putfield(e.Escape, count.i32"));
+
+        // A method that reads its fields is called on it
+        var main = getOllirMethod(ollirResult, "main");
+        assertTrue(main, main.contains("new(Escape)"));
+        assertTrue(main, main.contains("invokevirtual(f.Escape, \"get\""));
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+        assertEquals("5\n4\n6", output);
+    }
+}
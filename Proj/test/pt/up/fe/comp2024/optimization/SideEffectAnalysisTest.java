@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.count;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class SideEffectAnalysisTest {
+
+    private static OllirResult getOllirResult(boolean optimize, String pureMethods) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Purity.jmm",
+                Map.of("optimize", String.valueOf(optimize), "pureMethods", pureMethods));
+    }
+
+    @Test
+    public void callsOfPureMethodsAreReused() {
+        var twice = getOllirMethodOrTwin(getOllirResult(true, ""), "twice");
+
+        assertEquals(twice, 1, count(twice, "\"mix_static\""));
+    }
+
+    @Test
+    public void callsOfPureMethodsAreHoisted() {
+        var repeat = getOllirMethodOrTwin(getOllirResult(true, ""), "repeat");
+        var loop = repeat.substring(repeat.indexOf("whilebody"));
+
+        assertTrue(repeat, repeat.contains("\"mix_static\""));
+        assertFalse(loop, loop.contains("\"mix_static\""));
+    }
+
+    @Test
+    public void unusedCallsAreRemovedOnlyIfPure() {
+        var discard = getOllirMethodOrTwin(getOllirResult(true, ""), "discard");
+
+        assertFalse(discard, discard.contains("\"mix_static\""));
+        // Recursion may not end, so the call stays
+        assertTrue(discard, discard.contains("\"countDown_static\""));
+    }
+
+    @Test
+    public void importedMethodsArePureOnlyIfGiven() {
+        var hashTwice = getOllirMethodOrTwin(getOllirResult(true, ""), "hashTwice");
+        assertEquals(hashTwice, 2, count(hashTwice, "\"of\""));
+
+        var pure = getOllirMethodOrTwin(getOllirResult(true, "Hash.of"), "hashTwice");
+        assertEquals(pure, 1, count(pure, "\"of\""));
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false, ""), getOllirResult(true, ""));
+        assertEquals("9021848\n9348237\n7", output);
+
+        runJasmin(getOllirResult(true, ""), output);
+    }
+}
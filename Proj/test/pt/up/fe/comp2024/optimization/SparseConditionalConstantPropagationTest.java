@@ -0,0 +1,52 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class SparseConditionalConstantPropagationTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Sccp.jmm", optimize);
+    }
+
+    @Test
+    public void constantBranchesAreRemoved() {
+        var folded = getOllirMethodOrTwin(getOllirResult(true), "folded");
+
+        // if (true) and while (false) leave only the code that runs, with x known to be 6
+        assertFalse(folded, folded.contains("if ("));
+        assertFalse(folded, folded.contains("goto"));
+        assertTrue(folded, folded.contains("n.i32 +.i32 6.i32"));
+    }
+
+    @Test
+    public void constantsGoThroughLoops() {
+        var ollirResult = getOllirResult(true);
+
+        // x is 5 whenever the test of the if runs, so the else is never taken and x stays 5
+        var stable = getOllirMethodOrTwin(ollirResult, "stable");
+        assertFalse(stable, stable.contains("10.i32"));
+        assertTrue(stable, stable.contains("ret.i32 5.i32"));
+
+        // Both branches give 4, and the test of b is no longer needed
+        var merged = getOllirMethodOrTwin(ollirResult, "merged");
+        assertFalse(merged, merged.contains("if ("));
+        assertTrue(merged, merged.contains("ret.i32 4.i32"));
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+        assertEquals("7\n5\n4\n4", output);
+
+        runJasmin(getOllirResult(true), output);
+    }
+}
@@ -0,0 +1,125 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.execution.OllirInterpreter;
+import pt.up.fe.comp2024.optimization.ir.AssignInstr;
+import pt.up.fe.comp2024.optimization.ir.IrBuilder;
+import pt.up.fe.comp2024.optimization.ir.IrClass;
+import pt.up.fe.comp2024.optimization.ir.Phi;
+import pt.up.fe.comp2024.optimization.ir.Ssa;
+import pt.up.fe.comp2024.optimization.ir.Value;
+import pt.up.fe.comp2024.optimization.ir.Var;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SsaTest {
+
+    private static final String EXPECTED_OUTPUT = "55\n21\n12\n7\n8";
+
+    private static IrClass getIrClass() {
+        var code = SpecsIo.getResource("pt/up/fe/comp2024/optimization/Ssa.jmm");
+        var ollirResult = TestUtils.optimize(code, Map.of("optimize", "false"));
+        TestUtils.noErrors(ollirResult.getReports());
+
+        return IrBuilder.build(ollirResult.getOllirClass());
+    }
+
+    private static String run(IrClass irClass) {
+        var result = OllirInterpreter.run(new OllirResult(irClass.toOllir(), Map.of()));
+        assertEquals(irClass.toOllir(), 0, result.getReturnValue());
+
+        return SpecsStrings.normalizeFileContents(result.getStdOut(), true);
+    }
+
+    @Test
+    public void eachVariableIsAssignedOnce() {
+        var irClass = getIrClass();
+
+        for (var method : irClass.getMethods()) {
+            var ssa = Ssa.construct(method);
+            var assigned = new HashSet<>(method.getParams());
+            int phis = 0;
+
+            for (var block : method.getBlocks()) {
+                for (var instr : block.getInstrs()) {
+                    if (instr.getDef() != null) {
+                        assertTrue(method.toOllir(), assigned.add(instr.getDef()));
+                    }
+
+                    if (instr instanceof Phi phi) {
+                        assertEquals(method.toOllir(), 2, phi.getValues().size());
+                        assertFalse(method.toOllir(), ssa.getOriginal(phi.getDest()).getName().startsWith("t"));
+                        phis++;
+                    }
+                }
+            }
+
+            // a, b and n at the start and at the end of the loop of fib, m after the if of max
+            int expected = switch (method.getName()) {
+                case "fib" -> 6;
+                case "max" -> 1;
+                default -> phis;
+            };
+            assertEquals(method.toOllir(), expected, phis);
+        }
+    }
+
+    @Test
+    public void destructionRestoresNames() {
+        var irClass = getIrClass();
+        var original = irClass.toOllir();
+
+        for (var method : irClass.getMethods()) {
+            Ssa.construct(method).destruct();
+        }
+
+        assertEquals(EXPECTED_OUTPUT, run(irClass));
+
+        // Versions that do not overlap are given back the name of their variable, and the copies of phis are removed
+        var code = irClass.toOllir();
+        assertFalse(code, code.contains("phi"));
+        assertFalse(code, code.contains("_0."));
+        // m in max is given the name of x, which is no longer read when m is assigned
+        assertEquals(original.split(":=").length - 1, code.split(":=").length);
+    }
+
+    @Test
+    public void copiesArePropagated() {
+        var irClass = getIrClass();
+
+        for (var method : irClass.getMethods()) {
+            var ssa = Ssa.construct(method);
+
+            // Each use of a copy reads the copied value instead, which makes versions of a variable overlap
+            var copies = new HashMap<Var, Value>();
+            for (var block : method.getBlocks()) {
+                for (var instr : block.getInstrs()) {
+                    if (instr instanceof AssignInstr assign && assign.getRhs() instanceof Var source
+                            && !method.getParams().contains(assign.getDest())) {
+                        copies.put(assign.getDest(), copies.getOrDefault(source, source));
+                    }
+                }
+            }
+
+            for (var block : method.getBlocks()) {
+                for (var instr : block.getAllInstrs()) {
+                    instr.mapUses(value -> copies.getOrDefault(value, value));
+                }
+            }
+
+            ssa.destruct();
+        }
+
+        assertEquals(EXPECTED_OUTPUT, run(irClass));
+    }
+}
@@ -0,0 +1,78 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.getOllirMethod;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class StaticCallPromotionTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Promotion.jmm", optimize);
+    }
+
+    @Test
+    public void methodsWithoutThisBecomeStatic() {
+        var ollirResult = getOllirResult(true);
+        var code = ollirResult.getOllirCode();
+
+        assertTrue(code, code.contains(".method public static square_static("));
+        assertTrue(code, code.contains(".method public static sumTo_static("));
+
+        // The instance methods stay, and only call their static twin
+        var sumTo = getOllirMethod(ollirResult, "sumTo");
+        assertTrue(sumTo, sumTo.contains("invokestatic(Promotion, \"sumTo_static\", n.i32)"));
+
+        var sumToStatic = getOllirMethod(ollirResult, "sumTo_static");
+        assertTrue(sumToStatic, sumToStatic.contains("invokestatic(Promotion, \"sumTo_static\""));
+
+        var main = getOllirMethod(ollirResult, "main");
+        assertTrue(main, main.contains("invokestatic(Promotion, \"sumTo_static\", 4.i32)"));
+    }
+
+    @Test
+    public void methodsThatReadFieldsStayVirtual() {
+        var code = getOllirResult(true).getOllirCode();
+
+        assertTrue(code, code.contains(".method public next("));
+    }
+
+    @Test
+    public void callsOnObjectsThatMayBeNullKeepTheInstanceMethod() {
+        var ollirResult = getOllirResult(true);
+
+        // p may be null, so the call must still be able to throw
+        var viaParam = getOllirMethod(ollirResult, "viaParam_static");
+        assertTrue(viaParam, viaParam.contains("invokevirtual(p.Promotion, \"cube\""));
+
+        var cube = getOllirMethod(ollirResult, "cube");
+        assertTrue(cube, cube.contains("invokestatic(Promotion, \"cube_static\""));
+        assertTrue(ollirResult.getOllirCode(), ollirResult.getOllirCode().contains(".method public static cube_static("));
+    }
+
+    @Test
+    public void otherClassesKeepCallingTheInstanceMethod() {
+        var lib = ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/PromotionLib.jmm", true);
+        var caller = ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/PromotionLibCaller.jmm", true);
+
+        // Every call in the class is promoted, but the instance method is still there for other classes
+        var code = lib.getOllirCode();
+        assertTrue(code, code.contains(".method public twice("));
+        assertTrue(code, code.contains(".method public static twice_static("));
+
+        runJasmin(List.of(caller, lib), "42");
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+        assertEquals("9\n10\n1\n2\n8", output);
+    }
+}
@@ -0,0 +1,57 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class StrengthReductionTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/Reduce.jmm", optimize);
+    }
+
+    @Test
+    public void productsOfCountersBecomeAdditions() {
+        var fill = getOllirMethodOrTwin(getOllirResult(true), "fill");
+        var loop = fill.substring(fill.indexOf("whilebody_0:"), fill.indexOf("endwhile_0:"));
+
+        assertFalse(loop, loop.contains("*.i32"));
+        // i * 3 is replaced by a single variable for both of its uses, and i * 8 by another
+        assertEquals(loop, 2, loop.split("(?m)^iv\\d+\\.i32 :=\\.i32 iv").length - 1);
+    }
+
+    @Test
+    public void identitiesAreSimplified() {
+        var fill = getOllirMethodOrTwin(getOllirResult(true), "fill");
+
+        assertFalse(fill, fill.contains("*.i32 1.i32"));
+        assertFalse(fill, fill.contains("+.i32 0.i32"));
+        assertFalse(fill, fill.contains("/.i32"));
+        assertFalse(fill, fill.contains("-.i32"));
+    }
+
+    @Test
+    public void multiplicationsByPowersOfTwoAreShifts() {
+        var jasminResult = TestUtils.backend(getOllirResult(false));
+        TestUtils.noErrors(jasminResult.getReports());
+
+        var jasminCode = jasminResult.getJasminCode();
+        // i * 8 and a[6] * 4 are shifts, x * 1 and the two i * 3 are not
+        assertEquals(jasminCode, 2, jasminCode.split("ishl").length - 1);
+        assertEquals(jasminCode, 3, jasminCode.split("imul").length - 1);
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+
+        runJasmin(getOllirResult(true), output);
+    }
+}
@@ -0,0 +1,48 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.ProjectTestUtils.assertSameOutput;
+import static utils.ProjectTestUtils.count;
+import static utils.ProjectTestUtils.getOllirMethodOrTwin;
+import static utils.ProjectTestUtils.runJasmin;
+
+public class TailRecursionEliminationTest {
+
+    private static OllirResult getOllirResult(boolean optimize) {
+        return ProjectTestUtils.getOllirResult("pt/up/fe/comp2024/optimization/TailCalls.jmm", optimize);
+    }
+
+    @Test
+    public void tailCallsBecomeJumps() {
+        var ollirResult = getOllirResult(true);
+
+        var sum = getOllirMethodOrTwin(ollirResult, "sum");
+        assertFalse(sum, sum.contains("\"sum_static\""));
+        assertTrue(sum, sum.contains("goto "));
+
+        // The second call is the last thing quicksort does, since it always returns true
+        var quicksort = getOllirMethodOrTwin(ollirResult, "quicksort");
+        assertEquals(quicksort, 1, count(quicksort, "\"quicksort_static\""));
+    }
+
+    @Test
+    public void otherCallsAreKept() {
+        // The result of the call is multiplied after it returns
+        var fact = getOllirMethodOrTwin(getOllirResult(true), "fact");
+        assertTrue(fact, fact.contains("\"fact_static\""));
+    }
+
+    @Test
+    public void sameOutput() {
+        var output = assertSameOutput(getOllirResult(false), getOllirResult(true));
+        assertEquals("55\n120\n1\n2\n3\n4\n5", output);
+
+        runJasmin(getOllirResult(true), output);
+    }
+}
@@ -0,0 +1,76 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedCharStreamTest {
+
+    private static JmmParserResult parseFile(String code) throws IOException {
+        var file = Files.createTempFile("jmm", ".jmm");
+
+        try {
+            Files.writeString(file, code, StandardCharsets.UTF_8);
+            return new JmmParserImpl().parse(file.toFile(), new HashMap<>());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Kind and attributes of every node, including positions
+    private static List<String> toStrings(JmmNode root) {
+        return Stream.concat(Stream.of(root), root.getDescendantsStream())
+                .map(node -> node.getKind() + new TreeSet<>(node.getAttributes()).stream()
+                        .map(attribute -> attribute + "=" + node.get(attribute))
+                        .toList())
+                .toList();
+    }
+
+    private static void assertSameTree(String resource) throws IOException {
+        var code = SpecsIo.getResource(resource);
+
+        var expected = TestUtils.parse(code);
+        var actual = parseFile(code);
+
+        TestUtils.noErrors(actual);
+        assertEquals(toStrings(expected.getRootNode()), toStrings(actual.getRootNode()));
+    }
+
+    @Test
+    public void asciiFile() throws IOException {
+        assertSameTree("pt/up/fe/comp/cp1/symboltable/MethodsAndFields.jmm");
+    }
+
+    @Test
+    public void nonAsciiFile() throws IOException {
+        assertSameTree("pt/up/fe/comp2024/parser/Unicode.jmm");
+    }
+
+    @Test
+    public void textAcrossNonAsciiCharacters() throws IOException {
+        var code = SpecsIo.getResource("pt/up/fe/comp2024/parser/Unicode.jmm");
+        var file = Files.createTempFile("jmm", ".jmm");
+
+        try {
+            Files.writeString(file, code, StandardCharsets.UTF_8);
+            var stream = MappedCharStream.load(file.toFile());
+
+            assertEquals(code.length(), stream.size());
+            assertEquals(code, stream.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
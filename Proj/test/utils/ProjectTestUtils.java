@@ -1,8 +1,11 @@
 package utils;
 
 import org.specs.comp.ollir.*;
+import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.execution.JasminRunner;
+import pt.up.fe.comp2024.execution.OllirInterpreter;
 import pt.up.fe.specs.util.SpecsCollections;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
@@ -16,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -324,7 +328,8 @@ public class ProjectTestUtils {
     }
 
     public static void runJasmin(JasminResult jasminResult, String expected) {
-        var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+        // Assembled and run in this JVM, without writing files or starting a process
+        var output = SpecsStrings.normalizeFileContents(JasminRunner.run(jasminResult).getOutput(), true);
 
         // No expected output, just run test
         if (expected == null) {
@@ -336,6 +341,103 @@ public class ProjectTestUtils {
                 expected, output);
     }
 
+    /**
+     * Generates the Jasmin code of the OLLIR, checking that it has no errors, and runs it.
+     *
+     * @param expected the output the code must print, or null to only run it
+     */
+    public static void runJasmin(OllirResult ollirResult, String expected) {
+        var jasminResult = TestUtils.backend(ollirResult);
+        TestUtils.noErrors(jasminResult.getReports());
+
+        runJasmin(jasminResult, expected);
+    }
+
+    /**
+     * Generates the Jasmin code of classes that use each other and runs the first one.
+     *
+     * @param expected the output the first class must print
+     */
+    public static void runJasmin(List<OllirResult> ollirResults, String expected) {
+        var jasminResults = new ArrayList<JasminResult>();
+        for (var ollirResult : ollirResults) {
+            var jasminResult = TestUtils.backend(ollirResult);
+            TestUtils.noErrors(jasminResult.getReports());
+            jasminResults.add(jasminResult);
+        }
+
+        var run = JasminRunner.run(jasminResults);
+        assertEquals(run.getStdErr(), 0, run.getReturnValue());
+        assertEquals(expected, SpecsStrings.normalizeFileContents(run.getOutput(), true));
+    }
+
+    /**
+     * Compiles a file of the tests to OLLIR, checking that it has no errors.
+     *
+     * @param resource the path of the file in the tests, e.g., "pt/up/fe/comp2024/optimization/Inline.jmm"
+     * @param config   the options of the compiler, e.g., "optimize"
+     */
+    public static OllirResult getOllirResult(String resource, Map<String, String> config) {
+        var ollirResult = TestUtils.optimize(SpecsIo.getResource(resource), config);
+        TestUtils.noErrors(ollirResult.getReports());
+
+        return ollirResult;
+    }
+
+    public static OllirResult getOllirResult(String resource, boolean optimize) {
+        return getOllirResult(resource, Map.of("optimize", String.valueOf(optimize)));
+    }
+
+    /**
+     * @return the OLLIR code of the method, from its name to the end of its body
+     */
+    public static String getOllirMethod(OllirResult ollirResult, String methodName) {
+        var code = ollirResult.getOllirCode();
+        var start = code.indexOf(" " + methodName + "(");
+
+        if (start == -1) {
+            throw new RuntimeException("Could not find method '" + methodName + "' in the following code:\n" + code);
+        }
+
+        return code.substring(start, code.indexOf("\n}", start));
+    }
+
+    /**
+     * @return the OLLIR code of the static twin of the method when it has one, since
+     * {@link pt.up.fe.comp2024.optimization.passes.StaticCallPromotion} moves the code of methods that do not use
+     * {@code this} to it, or else the code of the method
+     */
+    public static String getOllirMethodOrTwin(OllirResult ollirResult, String methodName) {
+        var twinName = methodName + "_static";
+
+        return ollirResult.getOllirCode().contains(" " + twinName + "(")
+                ? getOllirMethod(ollirResult, twinName)
+                : getOllirMethod(ollirResult, methodName);
+    }
+
+    /**
+     * @return the number of times the regex is found in the code
+     */
+    public static int count(String code, String regex) {
+        return code.split(regex, -1).length - 1;
+    }
+
+    /**
+     * Interprets the OLLIR of a class compiled without and with optimizations, checking that both print the same and
+     * that the optimized code ends normally.
+     *
+     * @return the output of the class, with normalized line endings
+     */
+    public static String assertSameOutput(OllirResult original, OllirResult optimized) {
+        var originalRun = OllirInterpreter.run(original);
+        var optimizedRun = OllirInterpreter.run(optimized);
+
+        assertEquals(optimizedRun.getStdErr(), 0, optimizedRun.getReturnValue());
+        assertEquals(optimized.getOllirCode(), originalRun.getStdOut(), optimizedRun.getStdOut());
+
+        return SpecsStrings.normalizeFileContents(originalRun.getStdOut(), true);
+    }
+
     public static List<Node> getOllirNodes(ClassUnit classUnit, Predicate<Node> filter) {
         var nodes = new ArrayList<Node>();
 